@@ -22,9 +22,12 @@ import java.math.BigInteger;
 import javax.annotation.Nonnull;
 
 import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.contracts.Ensure;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
 import net.digitalid.utility.validation.annotations.size.Size;
 
 import net.digitalid.database.exceptions.DatabaseException;
@@ -82,6 +85,23 @@ public abstract class AndroidDecoder extends SQLDecoder {
         return cursor.isNull(columnIndex - 1);
     }
     
+    /* -------------------------------------------------- Look-Ahead -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    protected boolean areNull(@Positive int numberOfColumns) {
+        for (int i = 0; i < numberOfColumns; i++) {
+            if (!cursor.isNull(columnIndex + i)) { return false; }
+        }
+        return true;
+    }
+    
+    @Impure
+    @Override
+    protected void skip(@NonNegative int numberOfColumns) {
+        this.columnIndex += numberOfColumns;
+    }
+    
     /* -------------------------------------------------- Decoding -------------------------------------------------- */
     
     @Impure
@@ -18,6 +18,7 @@ package net.digitalid.database.android.encoder;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import net.digitalid.utility.annotations.method.Impure;
 import net.digitalid.utility.annotations.method.PureWithSideEffects;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
@@ -46,5 +47,21 @@ public abstract class AndroidDeleteEncoder extends AndroidWhereClauseEncoder imp
     public void execute() throws DatabaseException {
         sqliteDatabase.delete(tableName, whereClause, whereArgs);
     }
-       
+    
+    /* -------------------------------------------------- Batches -------------------------------------------------- */
+    
+    /**
+     * As the Android database does not support batches, the added row is executed immediately.
+     */
+    @Impure
+    @Override
+    public void addBatch() throws DatabaseException {
+        execute();
+        resetParameterIndex();
+    }
+    
+    @Override
+    @PureWithSideEffects
+    public void executeBatch() throws DatabaseException {}
+    
 }
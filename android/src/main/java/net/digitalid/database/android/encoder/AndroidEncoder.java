@@ -44,6 +44,14 @@ public abstract class AndroidEncoder extends SQLEncoderImplementation {
      */
     protected int parameterIndex = 0;
     
+    /**
+     * Resets the parameter index so that the values of the next row can be encoded starting again with the first parameter.
+     */
+    @Impure
+    protected void resetParameterIndex() {
+        this.parameterIndex = 0;
+    }
+    
     /* -------------------------------------------------- Constructor -------------------------------------------------- */
     
     protected AndroidEncoder(@Nonnull SQLiteDatabase sqliteDatabase) {
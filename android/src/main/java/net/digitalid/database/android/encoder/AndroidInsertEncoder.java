@@ -17,6 +17,7 @@ package net.digitalid.database.android.encoder;
 
 import javax.annotation.Nonnull;
 
+import net.digitalid.utility.annotations.method.Impure;
 import net.digitalid.utility.annotations.method.PureWithSideEffects;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
@@ -43,4 +44,21 @@ public abstract class AndroidInsertEncoder extends AndroidInsertUpdateEncoder im
         sqliteDatabase.insert(tableName, null, contentValues);
     }
     
+    /* -------------------------------------------------- Batches -------------------------------------------------- */
+    
+    /**
+     * As the Android database does not support batches, the added row is executed immediately.
+     */
+    @Impure
+    @Override
+    public void addBatch() throws DatabaseException {
+        execute();
+        contentValues.clear();
+        resetParameterIndex();
+    }
+    
+    @Override
+    @PureWithSideEffects
+    public void executeBatch() throws DatabaseException {}
+    
 }
@@ -55,6 +55,24 @@ public abstract class AndroidUpdateEncoder extends AndroidInsertUpdateEncoder im
         sqliteDatabase.update(tableName, contentValues, androidWhereClauseEncoder.whereClause, androidWhereClauseEncoder.whereArgs);
     }
     
+    /* -------------------------------------------------- Batches -------------------------------------------------- */
+    
+    /**
+     * As the Android database does not support batches, the added row is executed immediately.
+     */
+    @Impure
+    @Override
+    public void addBatch() throws DatabaseException {
+        execute();
+        contentValues.clear();
+        resetParameterIndex();
+        androidWhereClauseEncoder.resetParameterIndex();
+    }
+    
+    @Override
+    @PureWithSideEffects
+    public void executeBatch() throws DatabaseException {}
+    
     @Impure
     @Override
     public void encodeNull(int typeCode) throws DatabaseException {
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.storage.interfaces.Unit;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.h2.H2Dialect;
+import net.digitalid.database.interfaces.Database;
+import net.digitalid.database.jdbc.JDBCDatabaseBuilder;
+import net.digitalid.database.sqlite.SQLiteDialect;
+
+/**
+ * This enumeration lists the databases against which the benchmarks are run.
+ */
+@Immutable
+public enum BenchmarkDatabase {
+    
+    /* -------------------------------------------------- Databases -------------------------------------------------- */
+    
+    /**
+     * An in-memory H2 database, which is configured in the same way as in the unit tests.
+     */
+    H2 {
+        
+        @Override
+        @PureWithSideEffects
+        void initializeDialect() {
+            H2Dialect.initializeDialect();
+        }
+        
+        @Override
+        @PureWithSideEffects
+        @Nonnull Database createDatabase() {
+            final @Nonnull String URL = "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS " + Unit.DEFAULT.getName() + ";MODE=MySQL;";
+            return JDBCDatabaseBuilder.withDriver(new org.h2.Driver()).withURL(URL).withUser("sa").withPassword("sa").build();
+        }
+        
+    },
+    
+    /**
+     * A file-backed SQLite database in a temporary file, which is deleted when the virtual machine exits.
+     */
+    SQLITE {
+        
+        @Override
+        @PureWithSideEffects
+        void initializeDialect() {
+            SQLiteDialect.initializeDialect();
+        }
+        
+        @Override
+        @PureWithSideEffects
+        @Nonnull Database createDatabase() throws IOException {
+            final @Nonnull File file = File.createTempFile("benchmark", ".db");
+            file.deleteOnExit();
+            return JDBCDatabaseBuilder.withDriver(new org.sqlite.JDBC()).withURL("jdbc:sqlite:" + file.getAbsolutePath()).withUser("").withPassword("").build();
+        }
+        
+    };
+    
+    /* -------------------------------------------------- Initialization -------------------------------------------------- */
+    
+    /**
+     * Sets the dialect of this database as the configured dialect.
+     */
+    @PureWithSideEffects
+    abstract void initializeDialect();
+    
+    /**
+     * Creates a new instance of this database.
+     */
+    @PureWithSideEffects
+    abstract @Nonnull Database createDatabase() throws Exception;
+    
+    /**
+     * Initializes the configurations with this database and its dialect.
+     * The dialect is set after the other configurations have been initialized as the dialects of all databases are on the class path.
+     */
+    @Impure
+    public void initialize() throws Exception {
+        Database.instance.set(createDatabase());
+        Configuration.initializeAllConfigurations();
+        initializeDialect();
+    }
+    
+}
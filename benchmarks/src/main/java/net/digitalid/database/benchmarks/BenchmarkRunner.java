@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.benchmarks;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class runs the benchmarks with the given command line options and always adds the GC profiler,
+ * which reports the normalized allocation rate ({@code gc.alloc.rate.norm}) next to the throughput.
+ */
+@Utility
+public abstract class BenchmarkRunner {
+    
+    /**
+     * Runs the benchmarks that match the given command line arguments (e.g. {@code ConversionBenchmark.selectAll -p database=H2}).
+     */
+    public static void main(@Nonnull String[] arguments) throws CommandLineOptionException, RunnerException {
+        final @Nonnull Options options = new OptionsBuilder().parent(new CommandLineOptions(arguments)).addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+    
+}
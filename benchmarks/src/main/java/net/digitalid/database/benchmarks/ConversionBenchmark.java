@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.collections.list.FreezableList;
+
+import net.digitalid.database.interfaces.Database;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * This class benchmarks the insertion and selection of entries through the {@link net.digitalid.database.conversion.SQL SQL} facade,
+ * which covers the conversion of the entries as well as the binding of the parameters in the {@code JDBCEncoder} and the reading of the columns in the {@code JDBCDecoder}.
+ * Each operation processes the given number of rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+    
+    /* -------------------------------------------------- Parameters -------------------------------------------------- */
+    
+    @Param({"H2", "SQLITE"})
+    public BenchmarkDatabase database;
+    
+    @Param({"NARROW", "WIDE", "NESTED"})
+    public EntryLayout layout;
+    
+    @Param({"1", "100", "1000"})
+    public int rows;
+    
+    /* -------------------------------------------------- Setup -------------------------------------------------- */
+    
+    private Workload<?> workload;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database.initialize();
+        workload = layout.createWorkload(rows);
+        workload.createTable();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        workload.dropTable();
+        Database.instance.get().close();
+    }
+    
+    /* -------------------------------------------------- Insertion -------------------------------------------------- */
+    
+    @Benchmark
+    public void insertAll() throws Exception {
+        workload.insertAll();
+    }
+    
+    @Benchmark
+    public void insertEach() throws Exception {
+        workload.insertEach();
+    }
+    
+    /* -------------------------------------------------- Selection -------------------------------------------------- */
+    
+    @Benchmark
+    public @Nonnull FreezableList<?> selectAll() throws Exception {
+        final @Nonnull FreezableList<?> entries = workload.selectAll();
+        Database.commit();
+        return entries;
+    }
+    
+    @Benchmark
+    public void forEach(@Nonnull Blackhole blackhole) throws Exception {
+        workload.forEach(entry -> blackhole.consume(entry));
+        Database.commit();
+    }
+    
+}
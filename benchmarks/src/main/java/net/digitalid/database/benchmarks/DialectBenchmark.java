@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.conversion.model.CustomType;
+import net.digitalid.utility.functional.iterables.InfiniteIterable;
+import net.digitalid.utility.immutable.ImmutableList;
+import net.digitalid.utility.storage.interfaces.Unit;
+
+import net.digitalid.database.dialect.SQLDialect;
+import net.digitalid.database.dialect.expression.SQLParameter;
+import net.digitalid.database.dialect.expression.bool.SQLBooleanExpression;
+import net.digitalid.database.dialect.identifier.column.SQLColumnName;
+import net.digitalid.database.dialect.identifier.column.SQLColumnNameBuilder;
+import net.digitalid.database.dialect.identifier.schema.SQLSchemaNameBuilder;
+import net.digitalid.database.dialect.identifier.table.SQLExplicitlyQualifiedTableBuilder;
+import net.digitalid.database.dialect.identifier.table.SQLQualifiedTable;
+import net.digitalid.database.dialect.identifier.table.SQLTableNameBuilder;
+import net.digitalid.database.dialect.statement.insert.SQLConflictClause;
+import net.digitalid.database.dialect.statement.insert.SQLExpressions;
+import net.digitalid.database.dialect.statement.insert.SQLExpressionsBuilder;
+import net.digitalid.database.dialect.statement.insert.SQLInsertStatement;
+import net.digitalid.database.dialect.statement.insert.SQLInsertStatementBuilder;
+import net.digitalid.database.dialect.statement.insert.SQLRowsBuilder;
+import net.digitalid.database.dialect.statement.select.unordered.simple.SQLSimpleSelectStatement;
+import net.digitalid.database.dialect.statement.select.unordered.simple.SQLSimpleSelectStatementBuilder;
+import net.digitalid.database.dialect.statement.select.unordered.simple.columns.SQLAllColumnsBuilder;
+import net.digitalid.database.dialect.statement.select.unordered.simple.sources.SQLTableSourceBuilder;
+import net.digitalid.database.dialect.statement.table.create.SQLColumnDeclaration;
+import net.digitalid.database.dialect.statement.table.create.SQLColumnDeclarationBuilder;
+import net.digitalid.database.dialect.statement.table.create.SQLCreateTableStatement;
+import net.digitalid.database.dialect.statement.table.create.SQLCreateTableStatementBuilder;
+import net.digitalid.database.dialect.statement.table.create.SQLTypeBuilder;
+import net.digitalid.database.interfaces.Database;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks the unparsing of statements with the given number of columns and rows in the dialect of the given database.
+ * The where clause of the select statement is a left-deep conjunction with one comparison per column,
+ * which makes its depth and the number of its nodes grow with the number of columns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DialectBenchmark {
+    
+    /* -------------------------------------------------- Parameters -------------------------------------------------- */
+    
+    @Param({"H2", "SQLITE"})
+    public BenchmarkDatabase database;
+    
+    @Param({"1", "8", "32", "128"})
+    public int columns;
+    
+    @Param({"1", "100"})
+    public int rows;
+    
+    /* -------------------------------------------------- Setup -------------------------------------------------- */
+    
+    private static final @Nonnull Unit unit = Unit.DEFAULT;
+    
+    private SQLDialect dialect;
+    
+    private SQLInsertStatement insertStatement;
+    
+    private SQLSimpleSelectStatement selectStatement;
+    
+    private SQLCreateTableStatement createTableStatement;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database.initialize();
+        this.dialect = SQLDialect.instance.get();
+        
+        final @Nonnull SQLQualifiedTable table = SQLExplicitlyQualifiedTableBuilder.withTable(SQLTableNameBuilder.withString("benchmark").build()).withSchema(SQLSchemaNameBuilder.withString(unit.getName()).build()).build();
+        final @Nonnull FreezableArrayList<@Nonnull SQLColumnName> columnNames = FreezableArrayList.withInitialCapacity(columns);
+        for (int i = 0; i < columns; i++) { columnNames.add(SQLColumnNameBuilder.withString("column" + i).build()); }
+        
+        final @Nonnull SQLExpressions expressions = SQLExpressionsBuilder.withExpressions(ImmutableList.withElementsOf(InfiniteIterable.repeat(SQLParameter.INSTANCE).limit(columns))).build();
+        this.insertStatement = SQLInsertStatementBuilder.withTable(table).withColumns(ImmutableList.withElementsOf(columnNames)).withValues(SQLRowsBuilder.withRows(ImmutableList.withElementsOf(InfiniteIterable.repeat(expressions).limit(rows))).build()).withConflictClause(SQLConflictClause.ABORT).build();
+        
+        final @Nonnull SQLBooleanExpression whereClause = columnNames.map(column -> column.equal(SQLParameter.BOOLEAN)).reduce((left, right) -> left.and(right));
+        final @Nonnull FreezableArrayList<@Nonnull SQLColumnDeclaration> columnDeclarations = FreezableArrayList.withInitialCapacity(columns);
+        for (@Nonnull SQLColumnName columnName : columnNames) { columnDeclarations.add(SQLColumnDeclarationBuilder.withName(columnName).withType(SQLTypeBuilder.withType(CustomType.STRING64).build()).withNotNull(true).build()); }
+        this.createTableStatement = SQLCreateTableStatementBuilder.withTable(table).withColumnDeclarations(ImmutableList.withElementsOf(columnDeclarations)).build();
+        
+        this.selectStatement = SQLSimpleSelectStatementBuilder.withColumns(ImmutableList.withElements(SQLAllColumnsBuilder.buildWithTable(table))).withSources(ImmutableList.withElements(SQLTableSourceBuilder.withSource(table).build())).withWhereClause(whereClause).build();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Database.instance.get().close();
+    }
+    
+    /* -------------------------------------------------- Unparsing -------------------------------------------------- */
+    
+    @Benchmark
+    public @Nonnull String unparseInsert() {
+        final @Nonnull StringBuilder string = new StringBuilder();
+        dialect.unparse(insertStatement, unit, string);
+        return string.toString();
+    }
+    
+    @Benchmark
+    public @Nonnull String unparseSelect() {
+        final @Nonnull StringBuilder string = new StringBuilder();
+        dialect.unparse(selectStatement, unit, string);
+        return string.toString();
+    }
+    
+    @Benchmark
+    public @Nonnull String unparseCreateTable() {
+        final @Nonnull StringBuilder string = new StringBuilder();
+        dialect.unparse(createTableStatement, unit, string);
+        return string.toString();
+    }
+    
+}
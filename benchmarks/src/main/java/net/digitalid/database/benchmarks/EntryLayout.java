@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.benchmarks;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.benchmarks.entries.InnerValueBuilder;
+import net.digitalid.database.benchmarks.entries.NarrowEntryBuilder;
+import net.digitalid.database.benchmarks.entries.NarrowEntryConverter;
+import net.digitalid.database.benchmarks.entries.NestedEntryBuilder;
+import net.digitalid.database.benchmarks.entries.NestedEntryConverter;
+import net.digitalid.database.benchmarks.entries.OuterValueBuilder;
+import net.digitalid.database.benchmarks.entries.WideEntryBuilder;
+import net.digitalid.database.benchmarks.entries.WideEntryConverter;
+
+/**
+ * This enumeration lists the shapes of the entries with which the benchmarks are run.
+ */
+@Immutable
+public enum EntryLayout {
+    
+    /* -------------------------------------------------- Layouts -------------------------------------------------- */
+    
+    /**
+     * Entries with two columns.
+     */
+    NARROW {
+        
+        @Pure
+        @Override
+        public @Nonnull Workload<?> createWorkload(@Positive int rows) {
+            return new Workload<>(NarrowEntryConverter.INSTANCE, key -> NarrowEntryBuilder.withKey(key).withValue((int) key).build(), rows);
+        }
+        
+    },
+    
+    /**
+     * Entries with eight columns of various types.
+     */
+    WIDE {
+        
+        @Pure
+        @Override
+        public @Nonnull Workload<?> createWorkload(@Positive int rows) {
+            return new Workload<>(WideEntryConverter.INSTANCE, key -> WideEntryBuilder.withKey(key).withFirstNumber((int) key).withSecondNumber(key * 31).withThirdNumber(key / 7.0).withFlag(key % 2 == 0).withFirstText("first" + key).withSecondText("second" + key).withThirdText("third" + key).build(), rows);
+        }
+        
+    },
+    
+    /**
+     * Entries with four columns, three of which stem from values that are embedded two levels deep.
+     */
+    NESTED {
+        
+        @Pure
+        @Override
+        public @Nonnull Workload<?> createWorkload(@Positive int rows) {
+            return new Workload<>(NestedEntryConverter.INSTANCE, key -> NestedEntryBuilder.withKey(key).withOuter(OuterValueBuilder.withNumber((int) key).withInner(InnerValueBuilder.withNumber((int) -key).withText("inner" + key).build()).build()).build(), rows);
+        }
+        
+    };
+    
+    /* -------------------------------------------------- Workload -------------------------------------------------- */
+    
+    /**
+     * Returns a new workload with the given number of rows for entries of this layout.
+     */
+    @Pure
+    public abstract @Nonnull Workload<?> createWorkload(@Positive int rows);
+    
+}
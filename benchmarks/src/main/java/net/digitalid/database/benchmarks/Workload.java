@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.benchmarks;
+
+import java.util.function.LongFunction;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.functional.failable.FailableConsumer;
+import net.digitalid.utility.storage.Table;
+import net.digitalid.utility.storage.interfaces.Unit;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+import net.digitalid.database.annotations.transaction.Committing;
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
+
+/**
+ * A workload stores the entries that are inserted into and selected from the table of a converter in the benchmarks.
+ * The stored entries are inserted when the table is created, whereas the inserted entries are rolled back after each insertion.
+ */
+@Mutable
+public class Workload<@Unspecifiable TYPE> {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    private static final @Nonnull Unit unit = Unit.DEFAULT;
+    
+    private final @Nonnull Table<TYPE, ?> table;
+    
+    private final @Nonnull FreezableList<TYPE> storedEntries;
+    
+    private final @Nonnull FreezableList<TYPE> insertedEntries;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    /**
+     * Creates a workload with the given number of rows for the given table, whose entries are created with the given factory from their key.
+     */
+    Workload(@Nonnull Table<TYPE, ?> table, @Nonnull LongFunction<? extends TYPE> factory, @Positive int rows) {
+        this.table = table;
+        this.storedEntries = FreezableArrayList.withInitialCapacity(rows);
+        this.insertedEntries = FreezableArrayList.withInitialCapacity(rows);
+        for (int i = 0; i < rows; i++) {
+            storedEntries.add(factory.apply(i));
+            insertedEntries.add(factory.apply(rows + i));
+        }
+    }
+    
+    /* -------------------------------------------------- Table -------------------------------------------------- */
+    
+    /**
+     * Creates the table and inserts the stored entries.
+     */
+    @Committing
+    @PureWithSideEffects
+    public void createTable() throws DatabaseException {
+        SQL.createTable(table, unit);
+        SQL.insertOrAbortAll(table, storedEntries, unit);
+        Database.commit();
+    }
+    
+    /**
+     * Drops the table.
+     */
+    @Committing
+    @PureWithSideEffects
+    public void dropTable() throws DatabaseException {
+        SQL.dropTable(table, unit);
+    }
+    
+    /* -------------------------------------------------- Insertion -------------------------------------------------- */
+    
+    /**
+     * Inserts the inserted entries with a single call and rolls them back afterwards.
+     */
+    @Committing
+    @PureWithSideEffects
+    public void insertAll() throws DatabaseException {
+        SQL.insertOrAbortAll(table, insertedEntries, unit);
+        Database.rollback();
+    }
+    
+    /**
+     * Inserts the inserted entries one after the other and rolls them back afterwards.
+     */
+    @Committing
+    @PureWithSideEffects
+    public void insertEach() throws DatabaseException {
+        for (TYPE entry : insertedEntries) { SQL.insertOrAbort(table, entry, unit); }
+        Database.rollback();
+    }
+    
+    /* -------------------------------------------------- Selection -------------------------------------------------- */
+    
+    /**
+     * Selects all stored entries into a list.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public @Nonnull FreezableList<TYPE> selectAll() throws DatabaseException, RecoveryException {
+        return SQL.selectAll(table, null, unit);
+    }
+    
+    /**
+     * Passes all stored entries to the given consumer without materializing them.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public void forEach(@Nonnull FailableConsumer<? super TYPE, ? extends RuntimeException> consumer) throws DatabaseException, RecoveryException {
+        SQL.forEach(table, null, unit, consumer);
+    }
+    
+}
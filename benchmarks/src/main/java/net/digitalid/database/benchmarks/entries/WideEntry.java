@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.benchmarks.entries;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.generator.annotations.generators.GenerateTableConverter;
+
+import net.digitalid.database.annotations.constraints.PrimaryKey;
+
+/**
+ * A wide entry consists of a key and seven values of various types.
+ */
+@GenerateBuilder
+@GenerateSubclass
+@GenerateTableConverter
+public interface WideEntry {
+    
+    @Pure
+    @PrimaryKey
+    public long getKey();
+    
+    @Pure
+    public int getFirstNumber();
+    
+    @Pure
+    public long getSecondNumber();
+    
+    @Pure
+    public double getThirdNumber();
+    
+    @Pure
+    public boolean getFlag();
+    
+    @Pure
+    public @Nonnull String getFirstText();
+    
+    @Pure
+    public @Nonnull String getSecondText();
+    
+    @Pure
+    public @Nonnull String getThirdText();
+    
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * Provides JMH benchmarks for the conversion, dialect and JDBC hot paths.
+ * 
+ * Build the module with {@code mvn package} and run {@code java -jar target/benchmarks.jar},
+ * which reports the throughput together with the normalized allocation rate ({@code gc.alloc.rate.norm}) of each benchmark.
+ */
+package net.digitalid.database.benchmarks;
@@ -43,6 +43,13 @@ public abstract class ClientDatabaseInitializer {
      */
     public static final @Nonnull Configuration<String> fileName = Configuration.with("client");
     
+    /**
+     * Stores the number of microseconds that a commit waits for concurrent commits in order to batch them into a single physical commit.
+     * A window of zero disables the group commit. Otherwise, all write transactions run on a single writer connection and each commit
+     * waits at least the window, which reduces the number of fsyncs at the cost of latency (a few hundred microseconds work well).
+     */
+    public static final @Nonnull Configuration<Long> groupCommitWindow = Configuration.with(0l);
+    
     /* -------------------------------------------------- Initialization -------------------------------------------------- */
     
     /**
@@ -52,7 +59,7 @@ public abstract class ClientDatabaseInitializer {
     @Initialize(target = Database.class, dependencies = {Files.class, ClientDatabaseInitializer.class})
     public static void initializeDatabase() throws SQLException {
         final @Nonnull String URL = "jdbc:sqlite:" + Files.relativeToConfigurationDirectory(fileName.get() + ".db");
-        Database.instance.set(JDBCDatabaseBuilder.withDriver(new JDBC()).withURL(URL).build());
+        Database.instance.set(JDBCDatabaseBuilder.withDriver(new JDBC()).withURL(URL).withGroupCommitWindow(groupCommitWindow.get()).build());
     }
     
 }
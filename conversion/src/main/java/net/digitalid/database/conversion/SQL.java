@@ -15,6 +15,11 @@
  */
 package net.digitalid.database.conversion;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -29,33 +34,55 @@ import net.digitalid.utility.collections.list.FreezableList;
 import net.digitalid.utility.configuration.Configuration;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
 import net.digitalid.utility.conversion.exceptions.RecoveryExceptionBuilder;
+import net.digitalid.utility.conversion.interfaces.Converter;
 import net.digitalid.utility.freezable.annotations.NonFrozen;
+import net.digitalid.utility.functional.failable.FailableConsumer;
 import net.digitalid.utility.functional.iterables.FiniteIterable;
 import net.digitalid.utility.functional.iterables.InfiniteIterable;
 import net.digitalid.utility.immutable.ImmutableList;
 import net.digitalid.utility.storage.Table;
 import net.digitalid.utility.storage.interfaces.Unit;
 import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.size.NonEmpty;
 import net.digitalid.utility.validation.annotations.type.Utility;
 
+import net.digitalid.database.annotations.sql.SQLStatement;
 import net.digitalid.database.annotations.transaction.Committing;
 import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.conversion.template.SQLTemplate;
+import net.digitalid.database.conversion.template.SQLTemplates;
+import net.digitalid.database.dialect.SQLDialect;
 import net.digitalid.database.dialect.expression.SQLParameter;
 import net.digitalid.database.dialect.expression.bool.SQLBooleanExpression;
+import net.digitalid.database.dialect.expression.bool.SQLComparisonOperator;
+import net.digitalid.database.dialect.expression.bool.SQLNumberComparisonBooleanExpressionBuilder;
+import net.digitalid.database.dialect.expression.number.SQLAggregateNumberExpressionBuilder;
+import net.digitalid.database.dialect.expression.number.SQLAggregateOperator;
+import net.digitalid.database.dialect.expression.number.SQLNumberExpression;
+import net.digitalid.database.dialect.expression.number.SQLRowCountNumberExpression;
 import net.digitalid.database.dialect.identifier.column.SQLColumnName;
 import net.digitalid.database.dialect.identifier.table.SQLQualifiedTable;
 import net.digitalid.database.dialect.statement.delete.SQLDeleteStatement;
 import net.digitalid.database.dialect.statement.delete.SQLDeleteStatementBuilder;
 import net.digitalid.database.dialect.statement.insert.SQLConflictClause;
+import net.digitalid.database.dialect.statement.insert.SQLExpressions;
 import net.digitalid.database.dialect.statement.insert.SQLExpressionsBuilder;
 import net.digitalid.database.dialect.statement.insert.SQLInsertStatement;
 import net.digitalid.database.dialect.statement.insert.SQLInsertStatementBuilder;
 import net.digitalid.database.dialect.statement.insert.SQLRows;
 import net.digitalid.database.dialect.statement.insert.SQLRowsBuilder;
+import net.digitalid.database.dialect.statement.select.SQLSelectStatement;
+import net.digitalid.database.dialect.statement.select.ordered.SQLOrderedSelectStatement;
+import net.digitalid.database.dialect.statement.select.ordered.SQLOrderedSelectStatementBuilder;
+import net.digitalid.database.dialect.statement.select.ordered.SQLOrderingTerm;
 import net.digitalid.database.dialect.statement.select.unordered.simple.SQLSimpleSelectStatement;
 import net.digitalid.database.dialect.statement.select.unordered.simple.SQLSimpleSelectStatementBuilder;
 import net.digitalid.database.dialect.statement.select.unordered.simple.columns.SQLAllColumns;
 import net.digitalid.database.dialect.statement.select.unordered.simple.columns.SQLAllColumnsBuilder;
+import net.digitalid.database.dialect.statement.select.unordered.simple.columns.SQLResultColumn;
+import net.digitalid.database.dialect.statement.select.unordered.simple.columns.SQLResultColumnBuilder;
 import net.digitalid.database.dialect.statement.select.unordered.simple.sources.SQLTableSource;
 import net.digitalid.database.dialect.statement.select.unordered.simple.sources.SQLTableSourceBuilder;
 import net.digitalid.database.dialect.statement.table.create.SQLCreateTableStatement;
@@ -86,6 +113,26 @@ public abstract class SQL {
      */
     public static final @Nonnull Configuration<Boolean> configuration = Configuration.with(Boolean.TRUE).addDependency(Database.instance);
     
+    /**
+     * Stores the maximum number of objects that are inserted with a single batch or a single statement.
+     */
+    public static final @Nonnull Configuration<Integer> batchSize = Configuration.with(1_000);
+    
+    /**
+     * Stores whether several objects are inserted with a single statement containing multiple rows instead of a batch of single-row statements.
+     */
+    public static final @Nonnull Configuration<Boolean> multipleRows = Configuration.with(Boolean.FALSE);
+    
+    /**
+     * Stores the number of rows that are fetched from the database at once when the selected entries are streamed.
+     */
+    public static final @Nonnull Configuration<Integer> fetchSize = Configuration.with(100);
+    
+    /**
+     * Stores the number of objects whose matching entries are selected with a single statement containing alternative where conditions.
+     */
+    public static final @Nonnull Configuration<Integer> matchingSize = Configuration.with(100);
+    
     /* -------------------------------------------------- Create Table -------------------------------------------------- */
     
     /**
@@ -121,24 +168,36 @@ public abstract class SQL {
     
     /* -------------------------------------------------- Insert -------------------------------------------------- */
     
+    /**
+     * Returns the template for inserting the given number of rows into the table of the given converter in the given unit.
+     */
+    @Pure
+    private static <@Unspecifiable TYPE> @Nonnull SQLTemplate<SQLInsertStatement> getInsertTemplate(@Nonnull Table<TYPE, ?> table, @Nonnull Unit unit, @Nonnull SQLConflictClause conflictClause, @Positive int numberOfRows) {
+        return SQLTemplates.get(SQLTemplates.getKey("insert", table, unit, NO_WHERE_CONDITIONS, conflictClause, numberOfRows), unit, () -> {
+            final @Nonnull TableLayout layout = SQLUtility.getTableLayout(table, "");
+            final @Nonnull ImmutableList<@Nonnull SQLParameter> row = ImmutableList.withElementsOf(InfiniteIterable.repeat(SQLParameter.INSTANCE).limit(layout.getNumberOfParameters()));
+            final @Nonnull SQLExpressions expressions = SQLExpressionsBuilder.withExpressions(row).build();
+            final @Nonnull SQLRows rows = SQLRowsBuilder.withRows(ImmutableList.withElementsOf(InfiniteIterable.repeat(expressions).limit(numberOfRows))).build();
+            
+            final @Nonnull SQLQualifiedTable qualifiedTable = SQLUtility.getQualifiedTableName(table, unit);
+            return SQLInsertStatementBuilder.withTable(qualifiedTable).withColumns(layout.getColumnNames()).withValues(rows).withConflictClause(conflictClause).build();
+        });
+    }
+    
     /**
      * Inserts the given object with the given converter into its table in the given unit.
      */
     @NonCommitting
     @PureWithSideEffects
     public static <@Unspecifiable TYPE> void insert(@Nonnull Table<TYPE, ?> table, @Nonnull TYPE object, @Nonnull Unit unit, @Nonnull SQLConflictClause conflictClause) throws DatabaseException {
-        final @Nonnull FreezableArrayList<@Nonnull SQLColumnName> columns = FreezableArrayList.withNoElements();
-        SQLUtility.fillColumnNames(table, columns, "");
-        
-        final @Nonnull ImmutableList<@Nonnull SQLParameter> row = ImmutableList.withElementsOf(InfiniteIterable.repeat(SQLParameter.INSTANCE).limit(columns.size()));
-        final @Nonnull SQLRows rows = SQLRowsBuilder.withRows(ImmutableList.withElements(SQLExpressionsBuilder.withExpressions(row).build())).build();
-        
-        final @Nonnull SQLQualifiedTable qualifiedTable = SQLUtility.getQualifiedTableName(table, unit);
-        final SQLInsertStatement insertStatement = SQLInsertStatementBuilder.withTable(qualifiedTable).withColumns(ImmutableList.withElementsOf(columns)).withValues(rows).withConflictClause(conflictClause).build();
-        
-        final @Nonnull SQLActionEncoder actionEncoder = Database.instance.get().getEncoder(insertStatement, unit);
-        actionEncoder.encodeObject(table, object);
-        actionEncoder.execute();
+        final @Nonnull SQLTemplate<SQLInsertStatement> template = getInsertTemplate(table, unit, conflictClause, 1);
+        final @Nonnull SQLActionEncoder actionEncoder = Database.instance.get().getEncoder(template.getStatement(), template.getString(), unit);
+        try {
+            actionEncoder.encodeObject(table, object);
+            actionEncoder.execute();
+        } finally {
+            actionEncoder.close();
+        }
     }
     
     /**
@@ -168,17 +227,107 @@ public abstract class SQL {
         insert(table, object, unit, SQLConflictClause.REPLACE);
     }
     
+    /* -------------------------------------------------- Insert All -------------------------------------------------- */
+    
+    /**
+     * Inserts the given objects with the given converter into its table in the given unit.
+     * The objects are inserted in batches of at most {@link #batchSize} rows if the database supports batches
+     * or with statements of multiple rows if {@link #multipleRows} is set, which is limited by the maximum number of parameters of the dialect.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static <@Unspecifiable TYPE> void insertAll(@Nonnull Table<TYPE, ?> table, @Nonnull @NonNullableElements Iterable<? extends TYPE> objects, @Nonnull Unit unit, @Nonnull SQLConflictClause conflictClause) throws DatabaseException {
+        final @Nonnull Iterator<? extends TYPE> iterator = objects.iterator();
+        if (multipleRows.get()) {
+            final int numberOfColumns = SQLUtility.getTableLayout(table, "").getNumberOfParameters();
+            final int rowsPerStatement = Math.max(1, Math.min(batchSize.get(), SQLDialect.instance.get().getMaximumNumberOfParameters() / numberOfColumns));
+            final @Nonnull FreezableArrayList<TYPE> chunk = FreezableArrayList.withNoElements();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == rowsPerStatement || !iterator.hasNext()) {
+                    final @Nonnull SQLTemplate<SQLInsertStatement> template = getInsertTemplate(table, unit, conflictClause, chunk.size());
+                    final @Nonnull SQLActionEncoder actionEncoder = Database.instance.get().getEncoder(template.getStatement(), template.getString(), unit);
+                    try {
+                        for (TYPE object : chunk) { actionEncoder.encodeObject(table, object); }
+                        actionEncoder.execute();
+                    } finally {
+                        actionEncoder.close();
+                    }
+                    chunk.clear();
+                }
+            }
+        } else {
+            final @Nonnull SQLTemplate<SQLInsertStatement> template = getInsertTemplate(table, unit, conflictClause, 1);
+            @Nullable SQLActionEncoder actionEncoder = null;
+            int rowsInBatch = 0;
+            try {
+                while (iterator.hasNext()) {
+                    if (actionEncoder == null) { actionEncoder = Database.instance.get().getEncoder(template.getStatement(), template.getString(), unit); }
+                    actionEncoder.encodeObject(table, iterator.next());
+                    if (actionEncoder.supportsBatches()) {
+                        actionEncoder.addBatch();
+                        if (++rowsInBatch == batchSize.get()) {
+                            actionEncoder.executeBatch();
+                            actionEncoder.close();
+                            actionEncoder = null;
+                            rowsInBatch = 0;
+                        }
+                    } else {
+                        actionEncoder.execute();
+                        actionEncoder.close();
+                        actionEncoder = null;
+                    }
+                }
+                if (actionEncoder != null) { actionEncoder.executeBatch(); }
+            } finally {
+                if (actionEncoder != null) { actionEncoder.close(); }
+            }
+        }
+    }
+    
+    /**
+     * Inserts or aborts the given objects with the given converter into its table in the given unit.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static <@Unspecifiable TYPE> void insertOrAbortAll(@Nonnull Table<TYPE, ?> table, @Nonnull @NonNullableElements Iterable<? extends TYPE> objects, @Nonnull Unit unit) throws DatabaseException {
+        insertAll(table, objects, unit, SQLConflictClause.ABORT);
+    }
+    
+    /**
+     * Inserts or ignores the given objects with the given converter into its table in the given unit.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static <@Unspecifiable TYPE> void insertOrIgnoreAll(@Nonnull Table<TYPE, ?> table, @Nonnull @NonNullableElements Iterable<? extends TYPE> objects, @Nonnull Unit unit) throws DatabaseException {
+        insertAll(table, objects, unit, SQLConflictClause.IGNORE);
+    }
+    
+    /**
+     * Inserts or replaces the given objects with the given converter into its table in the given unit.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static <@Unspecifiable TYPE> void insertOrReplaceAll(@Nonnull Table<TYPE, ?> table, @Nonnull @NonNullableElements Iterable<? extends TYPE> objects, @Nonnull Unit unit) throws DatabaseException {
+        insertAll(table, objects, unit, SQLConflictClause.REPLACE);
+    }
+    
     /* -------------------------------------------------- Where -------------------------------------------------- */
     
+    /**
+     * Stores an empty array of where conditions for the templates of statements without a where clause.
+     */
+    private static final @Nonnull WhereCondition<?>[] NO_WHERE_CONDITIONS = new WhereCondition<?>[0];
+    
     @Pure
-    @NonCommitting
-    private static @Nullable SQLBooleanExpression getWhereClause(@Nonnull @NonNullableElements WhereCondition<?>... whereConditions) throws DatabaseException {
+    private static @Nullable SQLBooleanExpression getWhereClause(@Nonnull @NonNullableElements WhereCondition<?>... whereConditions) {
         @Nullable SQLBooleanExpression whereClause = null;
         for (@Nonnull WhereCondition<?> whereCondition : whereConditions) {
-            final @Nonnull FreezableArrayList<@Nonnull SQLColumnName> columns = FreezableArrayList.withNoElements();
-            SQLUtility.fillColumnNames(whereCondition.getConverter(), columns, whereCondition.getPrefix());
-            
-            final @Nonnull FiniteIterable<@Nonnull SQLBooleanExpression> expressions = columns.map(column -> column.equal(SQLParameter.BOOLEAN));
+            final @Nonnull ImmutableList<@Nonnull SQLColumnName> columns = SQLUtility.getTableLayout(whereCondition.getConverter(), whereCondition.getPrefix()).getColumnNames();
+            final @Nonnull SQLComparisonOperator operator = whereCondition.getOperator();
+            final @Nonnull FiniteIterable<@Nonnull SQLBooleanExpression> expressions;
+            if (operator == SQLComparisonOperator.EQUAL) { expressions = columns.map(column -> column.equal(SQLParameter.BOOLEAN)); }
+            else { expressions = columns.map(column -> SQLNumberComparisonBooleanExpressionBuilder.withOperator(operator).withLeftExpression(column).withRightExpression(SQLParameter.NUMBER).build()); }
             final @Nonnull SQLBooleanExpression expression = expressions.reduce((left, right) -> left.and(right));
             
             if (whereClause == null) { whereClause = expression; }
@@ -195,16 +344,21 @@ public abstract class SQL {
     @NonCommitting
     @PureWithSideEffects
     public static <@Unspecifiable UPDATE_TYPE, @Unspecifiable WHERE_TYPE> void update(@Nonnull Table<UPDATE_TYPE, ?> updateTable, @Nonnull UPDATE_TYPE updateObject, @Nonnull Unit unit, @Nonnull @NonNullableElements WhereCondition<?>... whereConditions) throws DatabaseException {
-        final @Nonnull SQLQualifiedTable qualifiedTable = SQLUtility.getQualifiedTableName(updateTable, unit);
-        final @Nonnull FreezableArrayList<@Nonnull SQLColumnName> columns = FreezableArrayList.withNoElements();
-        SQLUtility.fillColumnNames(updateTable, columns, "");
-        final @Nonnull FiniteIterable<SQLAssignment> assignments = columns.map(column -> SQLAssignmentBuilder.withColumn(column).withExpression(SQLParameter.INSTANCE).build());
-        final SQLUpdateStatement updateStatement = SQLUpdateStatementBuilder.withTable(qualifiedTable).withAssignments(ImmutableList.withElementsOf(assignments)).withWhereClause(getWhereClause(whereConditions)).build();
-    
-        final @Nonnull SQLActionEncoder actionEncoder = Database.instance.get().getEncoder(updateStatement, unit);
-        actionEncoder.encodeObject(updateTable, updateObject);
-        for (@Nonnull WhereCondition<?> whereCondition : whereConditions) { whereCondition.encode(actionEncoder); }
-        actionEncoder.execute();
+        final @Nonnull SQLTemplate<SQLUpdateStatement> template = SQLTemplates.get(SQLTemplates.getKey("update", updateTable, unit, whereConditions), unit, () -> {
+            final @Nonnull SQLQualifiedTable qualifiedTable = SQLUtility.getQualifiedTableName(updateTable, unit);
+            final @Nonnull ImmutableList<@Nonnull SQLColumnName> columns = SQLUtility.getTableLayout(updateTable, "").getColumnNames();
+            final @Nonnull FiniteIterable<SQLAssignment> assignments = columns.map(column -> SQLAssignmentBuilder.withColumn(column).withExpression(SQLParameter.INSTANCE).build());
+            return SQLUpdateStatementBuilder.withTable(qualifiedTable).withAssignments(ImmutableList.withElementsOf(assignments)).withWhereClause(getWhereClause(whereConditions)).build();
+        });
+        
+        final @Nonnull SQLActionEncoder actionEncoder = Database.instance.get().getEncoder(template.getStatement(), template.getString(), unit);
+        try {
+            actionEncoder.encodeObject(updateTable, updateObject);
+            for (@Nonnull WhereCondition<?> whereCondition : whereConditions) { whereCondition.encode(actionEncoder); }
+            actionEncoder.execute();
+        } finally {
+            actionEncoder.close();
+        }
     }
     
     /* -------------------------------------------------- Delete -------------------------------------------------- */
@@ -215,53 +369,153 @@ public abstract class SQL {
     @NonCommitting
     @PureWithSideEffects
     public static <@Unspecifiable WHERE_TYPE> void delete(@Nonnull Table<?, ?> deleteTable, @Nonnull Unit unit, @Nonnull @NonNullableElements WhereCondition<?>... whereConditions) throws DatabaseException {
-        final @Nonnull SQLQualifiedTable qualifiedTable = SQLUtility.getQualifiedTableName(deleteTable, unit);
-        final SQLDeleteStatement deleteStatement = SQLDeleteStatementBuilder.withTable(qualifiedTable).withWhereClause(getWhereClause(whereConditions)).build();
-    
-        final @Nonnull SQLActionEncoder actionEncoder = Database.instance.get().getEncoder(deleteStatement, unit);
-        for (@Nonnull WhereCondition<?> whereCondition : whereConditions) { whereCondition.encode(actionEncoder); }
-        actionEncoder.execute();
+        final @Nonnull SQLTemplate<SQLDeleteStatement> template = SQLTemplates.get(SQLTemplates.getKey("delete", deleteTable, unit, whereConditions), unit, () -> {
+            final @Nonnull SQLQualifiedTable qualifiedTable = SQLUtility.getQualifiedTableName(deleteTable, unit);
+            return SQLDeleteStatementBuilder.withTable(qualifiedTable).withWhereClause(getWhereClause(whereConditions)).build();
+        });
+        
+        final @Nonnull SQLActionEncoder actionEncoder = Database.instance.get().getEncoder(template.getStatement(), template.getString(), unit);
+        try {
+            for (@Nonnull WhereCondition<?> whereCondition : whereConditions) { whereCondition.encode(actionEncoder); }
+            actionEncoder.execute();
+        } finally {
+            actionEncoder.close();
+        }
     }
     
     /* -------------------------------------------------- Select -------------------------------------------------- */
     
-    @NonCommitting
-    @PureWithSideEffects
-    private static @Capturable SQLDecoder getDecoder(@Nonnull Table<?, ?> selectTable, @Nonnull Unit unit, @Nonnull @NonNullableElements WhereCondition<?>... whereConditions) throws DatabaseException {
+    /**
+     * Returns a statement that selects all columns of the given table in the given unit with the given where conditions.
+     */
+    @Pure
+    private static @Nonnull SQLSimpleSelectStatement getSelectStatement(@Nonnull Table<?, ?> selectTable, @Nonnull Unit unit, @Nonnull @NonNullableElements WhereCondition<?>... whereConditions) {
+        return getSelectStatement(selectTable, unit, getWhereClause(whereConditions));
+    }
+    
+    /**
+     * Returns a statement that selects all columns of the given table in the given unit with the given where clause.
+     */
+    @Pure
+    private static @Nonnull SQLSimpleSelectStatement getSelectStatement(@Nonnull Table<?, ?> selectTable, @Nonnull Unit unit, @Nullable SQLBooleanExpression whereClause) {
         final @Nonnull SQLQualifiedTable qualifiedTable = SQLUtility.getQualifiedTableName(selectTable, unit);
         final @Nonnull ImmutableList<SQLAllColumns> columns = ImmutableList.withElements(SQLAllColumnsBuilder.buildWithTable(qualifiedTable));
         final @Nonnull ImmutableList<SQLTableSource> sources = ImmutableList.withElements(SQLTableSourceBuilder.withSource(qualifiedTable).build());
-        final @Nonnull SQLSimpleSelectStatement selectStatement = SQLSimpleSelectStatementBuilder.withColumns(columns).withSources(sources).withWhereClause(getWhereClause(whereConditions)).build();
-        
-        final @Nonnull SQLQueryEncoder queryEncoder = Database.instance.get().getEncoder(selectStatement, unit);
+        return SQLSimpleSelectStatementBuilder.withColumns(columns).withSources(sources).withWhereClause(whereClause).build();
+    }
+    
+    /**
+     * Executes the given select statement, which is already unparsed if the given string is not null, with the given where conditions in the given unit.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    private static @Capturable SQLDecoder getDecoder(@Nonnull SQLSelectStatement selectStatement, @Nullable @SQLStatement String selectStatementAsString, @Nonnull Unit unit, @NonNegative int fetchSize, @Nonnull @NonNullableElements WhereCondition<?>... whereConditions) throws DatabaseException {
+        final @Nonnull SQLQueryEncoder queryEncoder;
+        if (selectStatementAsString != null) { queryEncoder = Database.instance.get().getEncoder(selectStatement, selectStatementAsString, unit); }
+        else { queryEncoder = Database.instance.get().getEncoder(selectStatement, unit); }
         for (@Nonnull WhereCondition<?> whereCondition : whereConditions) { whereCondition.encode(queryEncoder); }
+        queryEncoder.setFetchSize(fetchSize);
         return queryEncoder.execute();
     }
     
+    @NonCommitting
+    @PureWithSideEffects
+    private static @Capturable SQLDecoder getDecoder(@Nonnull Table<?, ?> selectTable, @Nonnull Unit unit, @NonNegative int fetchSize, @Nonnull @NonNullableElements WhereCondition<?>... whereConditions) throws DatabaseException {
+        final @Nonnull SQLTemplate<SQLSimpleSelectStatement> template = SQLTemplates.get(SQLTemplates.getKey("select", selectTable, unit, whereConditions), unit, () -> getSelectStatement(selectTable, unit, whereConditions));
+        return getDecoder(template.getStatement(), template.getString(), unit, fetchSize, whereConditions);
+    }
+    
     /**
      * Returns the entries of the given table as a list of decoded objects with the given where conditions in the given unit.
      */
     @NonCommitting
     @PureWithSideEffects
     public static @Capturable <@Unspecifiable SELECT_TYPE, @Specifiable PROVIDED> @Nonnull @NonNullableElements @NonFrozen FreezableList<SELECT_TYPE> selectAll(@Nonnull Table<SELECT_TYPE, PROVIDED> selectTable, @Shared PROVIDED provided, @Nonnull Unit unit, @Nonnull @NonNullableElements WhereCondition<?>... whereConditions) throws DatabaseException, RecoveryException {
-        final @Nonnull SQLDecoder decoder = getDecoder(selectTable, unit, whereConditions);
         final @Nonnull FreezableArrayList<SELECT_TYPE> results = FreezableArrayList.withNoElements();
-        if (decoder.moveToNextRow()) {
-            do {
-                results.add(selectTable.recover(decoder, provided));
-            } while (decoder.moveToNextRow());
+        try (@Nonnull SQLCursor<SELECT_TYPE, PROVIDED> cursor = new SQLCursor<>(getDecoder(selectTable, unit, 0, whereConditions), selectTable, provided)) {
+            while (cursor.moveToNext()) { results.add(cursor.get()); }
+        }
+        return results;
+    }
+    
+    /**
+     * Returns the entries of the given table in the given unit whose columns with the given prefix match any of the given objects as a list of decoded objects.
+     * The objects are matched in batches of {@link #matchingSize} with a single statement each, in which the where conditions of the objects are combined with OR.
+     * The last batch is padded by repeating its last object so that all batches share the same statement.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static @Capturable <@Unspecifiable SELECT_TYPE, @Specifiable PROVIDED, @Unspecifiable WHERE_TYPE> @Nonnull @NonNullableElements @NonFrozen FreezableList<SELECT_TYPE> selectAllMatching(@Nonnull Table<SELECT_TYPE, PROVIDED> selectTable, @Shared PROVIDED provided, @Nonnull Unit unit, @Nonnull Converter<WHERE_TYPE, ?> converter, @Nonnull String prefix, @Nonnull @NonNullableElements Iterable<? extends WHERE_TYPE> objects) throws DatabaseException, RecoveryException {
+        final @Nonnull List<WHERE_TYPE> list = new ArrayList<>();
+        for (@Nonnull WHERE_TYPE object : objects) { list.add(object); }
+        final @Nonnull FreezableArrayList<SELECT_TYPE> results = FreezableArrayList.withNoElements();
+        if (list.isEmpty()) { return results; }
+        
+        final @Positive int size = matchingSize.get();
+        final @Nonnull WhereCondition<WHERE_TYPE> firstCondition = WhereConditionBuilder.withConverter(converter).withObject(list.get(0)).withPrefix(prefix).build();
+        final @Nonnull SQLTemplate<SQLSimpleSelectStatement> template = SQLTemplates.get(SQLTemplates.getKey("selectMatching", selectTable, unit, new WhereCondition<?>[] { firstCondition }, size), unit, () -> {
+            final @Nonnull SQLBooleanExpression expression = getWhereClause(firstCondition);
+            @Nonnull SQLBooleanExpression whereClause = expression;
+            for (int i = 1; i < size; i++) { whereClause = whereClause.or(expression); }
+            return getSelectStatement(selectTable, unit, whereClause);
+        });
+        
+        for (int start = 0; start < list.size(); start += size) {
+            final @Nonnull WhereCondition<?>[] whereConditions = new WhereCondition<?>[size];
+            for (int i = 0; i < size; i++) {
+                whereConditions[i] = WhereConditionBuilder.withConverter(converter).withObject(list.get(Math.min(start + i, list.size() - 1))).withPrefix(prefix).build();
+            }
+            try (@Nonnull SQLCursor<SELECT_TYPE, PROVIDED> cursor = new SQLCursor<>(getDecoder(template.getStatement(), template.getString(), unit, 0, whereConditions), selectTable, provided)) {
+                while (cursor.moveToNext()) { results.add(cursor.get()); }
+            }
         }
         return results;
     }
     
+    /**
+     * Returns a cursor over the entries of the given table with the given where conditions in the given unit, which recovers the entries lazily.
+     * The returned cursor has to be closed if it is not iterated until the end.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static @Capturable <@Unspecifiable SELECT_TYPE, @Specifiable PROVIDED> @Nonnull SQLCursor<SELECT_TYPE, PROVIDED> selectStream(@Nonnull Table<SELECT_TYPE, PROVIDED> selectTable, @Shared PROVIDED provided, @Nonnull Unit unit, @Nonnull @NonNullableElements WhereCondition<?>... whereConditions) throws DatabaseException {
+        return new SQLCursor<>(getDecoder(selectTable, unit, fetchSize.get(), whereConditions), selectTable, provided);
+    }
+    
+    /**
+     * Passes the entries of the given table with the given where conditions in the given unit one after the other to the given consumer without materializing them.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static <@Unspecifiable SELECT_TYPE, @Specifiable PROVIDED, @Unspecifiable EXCEPTION extends Exception> void forEach(@Nonnull Table<SELECT_TYPE, PROVIDED> selectTable, @Shared PROVIDED provided, @Nonnull Unit unit, @Nonnull FailableConsumer<? super SELECT_TYPE, ? extends EXCEPTION> consumer, @Nonnull @NonNullableElements WhereCondition<?>... whereConditions) throws DatabaseException, RecoveryException, EXCEPTION {
+        selectStream(selectTable, provided, unit, whereConditions).forEach(consumer);
+    }
+    
     /**
      * Returns the first entry of the given table as a decoded object with the given where conditions in the given unit or null if there is no such entry.
      */
     @NonCommitting
     @PureWithSideEffects
     public static <@Unspecifiable SELECT_TYPE, @Specifiable PROVIDED> @Nullable SELECT_TYPE selectFirst(@Nonnull Table<SELECT_TYPE, PROVIDED> selectTable, @Shared PROVIDED provided, @Nonnull Unit unit, @Nonnull @NonNullableElements WhereCondition<?>... whereConditions) throws DatabaseException, RecoveryException {
-        final @Nonnull FreezableList<SELECT_TYPE> results = selectAll(selectTable, provided, unit, whereConditions);
-        if (results.isEmpty()) { return null; } else { return results.getFirst(); }
+        final @Nonnull SQLTemplate<SQLOrderedSelectStatement> template = SQLTemplates.get(SQLTemplates.getKey("selectFirst", selectTable, unit, whereConditions), unit, () -> SQLOrderedSelectStatementBuilder.withSelectStatement(getSelectStatement(selectTable, unit, whereConditions)).withLimit(1).build());
+        try (@Nonnull SQLCursor<SELECT_TYPE, PROVIDED> cursor = new SQLCursor<>(getDecoder(template.getStatement(), template.getString(), unit, 0, whereConditions), selectTable, provided)) {
+            return cursor.moveToNext() ? cursor.get() : null;
+        }
+    }
+    
+    /**
+     * Returns at most the given number of entries of the given table after skipping the given number of entries in the given order with the given where conditions in the given unit.
+     * If no orders are given, the order of the entries depends on the database and might not be stable across pages.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static @Capturable <@Unspecifiable SELECT_TYPE, @Specifiable PROVIDED> @Nonnull @NonNullableElements @NonFrozen FreezableList<SELECT_TYPE> selectPage(@Nonnull Table<SELECT_TYPE, PROVIDED> selectTable, @Shared PROVIDED provided, @Nonnull Unit unit, @Positive int limit, @NonNegative int offset, @Nullable @NonNullableElements @NonEmpty ImmutableList<? extends SQLOrderingTerm> orders, @Nonnull @NonNullableElements WhereCondition<?>... whereConditions) throws DatabaseException, RecoveryException {
+        final @Nonnull SQLOrderedSelectStatement selectStatement = SQLOrderedSelectStatementBuilder.withSelectStatement(getSelectStatement(selectTable, unit, whereConditions)).withOrders(orders).withLimit(limit).withOffset(offset).build();
+        final @Nonnull FreezableArrayList<SELECT_TYPE> results = FreezableArrayList.withInitialCapacity(limit);
+        try (@Nonnull SQLCursor<SELECT_TYPE, PROVIDED> cursor = new SQLCursor<>(getDecoder(selectStatement, null, unit, 0, whereConditions), selectTable, provided)) {
+            while (cursor.moveToNext()) { results.add(cursor.get()); }
+        }
+        return results;
     }
     
     /**
@@ -286,4 +540,126 @@ public abstract class SQL {
         else { return entry; }
     }
     
+    /* -------------------------------------------------- Aggregates -------------------------------------------------- */
+    
+    /**
+     * Returns a statement that selects the given expression over the entries of the given table in the given unit with the given where conditions.
+     */
+    @Pure
+    private static @Nonnull SQLSimpleSelectStatement getAggregateStatement(@Nonnull Table<?, ?> selectTable, @Nonnull Unit unit, @Nonnull SQLNumberExpression expression, @Nonnull @NonNullableElements WhereCondition<?>... whereConditions) {
+        final @Nonnull SQLQualifiedTable qualifiedTable = SQLUtility.getQualifiedTableName(selectTable, unit);
+        final @Nonnull ImmutableList<SQLResultColumn> columns = ImmutableList.withElements(SQLResultColumnBuilder.withExpression(expression).build());
+        final @Nonnull ImmutableList<SQLTableSource> sources = ImmutableList.withElements(SQLTableSourceBuilder.withSource(qualifiedTable).build());
+        return SQLSimpleSelectStatementBuilder.withColumns(columns).withSources(sources).withWhereClause(getWhereClause(whereConditions)).build();
+    }
+    
+    /**
+     * Returns the number of entries of the given table with the given where conditions in the given unit.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static @NonNegative long count(@Nonnull Table<?, ?> selectTable, @Nonnull Unit unit, @Nonnull @NonNullableElements WhereCondition<?>... whereConditions) throws DatabaseException {
+        final @Nonnull SQLTemplate<SQLSimpleSelectStatement> template = SQLTemplates.get(SQLTemplates.getKey("count", selectTable, unit, whereConditions), unit, () -> getAggregateStatement(selectTable, unit, SQLRowCountNumberExpression.INSTANCE, whereConditions));
+        final @Nonnull SQLDecoder decoder = getDecoder(template.getStatement(), template.getString(), unit, 0, whereConditions);
+        try {
+            decoder.moveToNextRow();
+            return decoder.decodeInteger64();
+        } finally {
+            decoder.close();
+        }
+    }
+    
+    /**
+     * Returns whether the given table contains an entry with the given where conditions in the given unit.
+     * In contrast to {@link #count(Table, Unit, WhereCondition...)}, the database can stop at the first matching entry.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static boolean exists(@Nonnull Table<?, ?> selectTable, @Nonnull Unit unit, @Nonnull @NonNullableElements WhereCondition<?>... whereConditions) throws DatabaseException {
+        final @Nonnull SQLTemplate<SQLOrderedSelectStatement> template = SQLTemplates.get(SQLTemplates.getKey("selectFirst", selectTable, unit, whereConditions), unit, () -> SQLOrderedSelectStatementBuilder.withSelectStatement(getSelectStatement(selectTable, unit, whereConditions)).withLimit(1).build());
+        final @Nonnull SQLDecoder decoder = getDecoder(template.getStatement(), template.getString(), unit, 0, whereConditions);
+        try {
+            return decoder.moveToNextRow();
+        } finally {
+            decoder.close();
+        }
+    }
+    
+    /**
+     * Returns the result of the given aggregate operator applied to the given integer column of the entries of the given table with the given where conditions in the given unit or null if there are no such entries.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static @Nullable Long aggregate(@Nonnull Table<?, ?> selectTable, @Nonnull Unit unit, @Nonnull SQLAggregateOperator operator, @Nonnull SQLColumnName column, @Nonnull @NonNullableElements WhereCondition<?>... whereConditions) throws DatabaseException {
+        final @Nonnull SQLTemplate<SQLSimpleSelectStatement> template = SQLTemplates.get(SQLTemplates.getKey("aggregate", selectTable, unit, whereConditions, operator, column.getString()), unit, () -> getAggregateStatement(selectTable, unit, SQLAggregateNumberExpressionBuilder.withOperator(operator).withColumn(column).build(), whereConditions));
+        final @Nonnull SQLDecoder decoder = getDecoder(template.getStatement(), template.getString(), unit, 0, whereConditions);
+        try {
+            decoder.moveToNextRow();
+            if (decoder.isNextNull()) { return null; }
+            return decoder.decodeInteger64();
+        } finally {
+            decoder.close();
+        }
+    }
+    
+    /**
+     * Returns the minimum of the given integer column of the entries of the given table with the given where conditions in the given unit or null if there are no such entries.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static @Nullable Long min(@Nonnull Table<?, ?> selectTable, @Nonnull Unit unit, @Nonnull SQLColumnName column, @Nonnull @NonNullableElements WhereCondition<?>... whereConditions) throws DatabaseException {
+        return aggregate(selectTable, unit, SQLAggregateOperator.MIN, column, whereConditions);
+    }
+    
+    /**
+     * Returns the maximum of the given integer column of the entries of the given table with the given where conditions in the given unit or null if there are no such entries.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static @Nullable Long max(@Nonnull Table<?, ?> selectTable, @Nonnull Unit unit, @Nonnull SQLColumnName column, @Nonnull @NonNullableElements WhereCondition<?>... whereConditions) throws DatabaseException {
+        return aggregate(selectTable, unit, SQLAggregateOperator.MAX, column, whereConditions);
+    }
+    
+    /* -------------------------------------------------- Asynchronous -------------------------------------------------- */
+    
+    /**
+     * Inserts the given object with the given converter into its table in the given unit asynchronously in its own transaction.
+     * 
+     * @see Database#submit(net.digitalid.database.interfaces.TransactionalWork)
+     */
+    @Committing
+    @PureWithSideEffects
+    public static <@Unspecifiable TYPE> @Nonnull CompletableFuture<Void> insertAsync(@Nonnull Table<TYPE, ?> table, @Nonnull TYPE object, @Nonnull Unit unit, @Nonnull SQLConflictClause conflictClause) {
+        return Database.submit(() -> {
+            insert(table, object, unit, conflictClause);
+            return null;
+        });
+    }
+    
+    /**
+     * Inserts the given objects with the given converter into their table in the given unit asynchronously in a single transaction.
+     * 
+     * @see Database#submit(net.digitalid.database.interfaces.TransactionalWork)
+     */
+    @Committing
+    @PureWithSideEffects
+    public static <@Unspecifiable TYPE> @Nonnull CompletableFuture<Void> insertAllAsync(@Nonnull Table<TYPE, ?> table, @Nonnull @NonNullableElements Iterable<? extends TYPE> objects, @Nonnull Unit unit, @Nonnull SQLConflictClause conflictClause) {
+        return Database.submit(() -> {
+            insertAll(table, objects, unit, conflictClause);
+            return null;
+        });
+    }
+    
+    /**
+     * Returns the entries of the given table with the given where conditions in the given unit asynchronously in a read-only transaction.
+     * Independent selections can thus overlap instead of blocking the calling thread one after the other.
+     * 
+     * @see Database#submitReadOnly(net.digitalid.database.interfaces.TransactionalWork)
+     */
+    @Committing
+    @PureWithSideEffects
+    public static <@Unspecifiable SELECT_TYPE, @Specifiable PROVIDED> @Nonnull CompletableFuture<@Nonnull @NonNullableElements @NonFrozen FreezableList<SELECT_TYPE>> selectAllAsync(@Nonnull Table<SELECT_TYPE, PROVIDED> selectTable, @Shared PROVIDED provided, @Nonnull Unit unit, @Nonnull @NonNullableElements WhereCondition<?>... whereConditions) {
+        return Database.submitReadOnly(() -> selectAll(selectTable, provided, unit, whereConditions));
+    }
+    
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.conversion;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Shared;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.functional.failable.FailableConsumer;
+import net.digitalid.utility.storage.Table;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.SQLDecoder;
+
+/**
+ * A cursor recovers the selected entries of a table lazily one row after the other without materializing them in a list.
+ * The cursor is closed automatically after the last row and has to be {@link #close() closed} explicitly if it is abandoned earlier.
+ * 
+ * @see SQL
+ */
+@Mutable
+public class SQLCursor<@Unspecifiable SELECT_TYPE, @Specifiable PROVIDED> implements AutoCloseable {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    /**
+     * Stores the decoder from which the entries are recovered.
+     */
+    private final @Nonnull SQLDecoder decoder;
+    
+    /**
+     * Stores the table whose entries are recovered.
+     */
+    private final @Nonnull Table<SELECT_TYPE, PROVIDED> table;
+    
+    /**
+     * Stores the object which is provided to the recovery of each entry.
+     */
+    private final @Shared PROVIDED provided;
+    
+    /**
+     * Stores whether this cursor has been closed.
+     */
+    private boolean closed = false;
+    
+    /* -------------------------------------------------- Constructor -------------------------------------------------- */
+    
+    /**
+     * Creates a new cursor which recovers the entries of the given table from the given decoder.
+     */
+    SQLCursor(@Nonnull SQLDecoder decoder, @Nonnull Table<SELECT_TYPE, PROVIDED> table, @Shared PROVIDED provided) {
+        this.decoder = decoder;
+        this.table = table;
+        this.provided = provided;
+    }
+    
+    /* -------------------------------------------------- Iteration -------------------------------------------------- */
+    
+    /**
+     * Moves this cursor to the next row and closes it if there is no such row.
+     * 
+     * @return whether there was another row to which the cursor could be moved.
+     */
+    @Impure
+    public boolean moveToNext() throws DatabaseException {
+        if (closed) { return false; }
+        if (decoder.moveToNextRow()) { return true; }
+        close();
+        return false;
+    }
+    
+    /**
+     * Recovers the entry of the current row.
+     * 
+     * @require !isClosed() : "This cursor is not closed.";
+     */
+    @Impure
+    public @Nonnull SELECT_TYPE get() throws DatabaseException, RecoveryException {
+        return table.recover(decoder, provided);
+    }
+    
+    /**
+     * Recovers the entries of the remaining rows and passes them to the given consumer, after which this cursor is closed.
+     */
+    @Impure
+    public <@Unspecifiable EXCEPTION extends Exception> void forEach(@Nonnull FailableConsumer<? super SELECT_TYPE, ? extends EXCEPTION> consumer) throws DatabaseException, RecoveryException, EXCEPTION {
+        try {
+            while (moveToNext()) { consumer.consume(get()); }
+        } finally {
+            close();
+        }
+    }
+    
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    /**
+     * Returns whether this cursor has been closed.
+     */
+    @Pure
+    public boolean isClosed() {
+        return closed;
+    }
+    
+    /**
+     * Closes the underlying result set and releases its statement.
+     */
+    @Impure
+    @Override
+    public void close() throws DatabaseException {
+        if (!closed) {
+            this.closed = true;
+            decoder.close();
+        }
+    }
+    
+}
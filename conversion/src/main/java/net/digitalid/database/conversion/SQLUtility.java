@@ -16,6 +16,8 @@
 package net.digitalid.database.conversion;
 
 import java.sql.Types;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -337,9 +339,10 @@ public abstract class SQLUtility {
      */
     @Pure
     public static <@Unspecifiable TYPE> @Nonnull @NonEmpty ImmutableList<@Nonnull SQLColumnDeclaration> getColumnDeclarations(@Nonnull Converter<TYPE, ?> converter) {
-        final @Nonnull @Modifiable FreezableArrayList<@Nonnull SQLColumnDeclaration> columnDeclarations = FreezableArrayList.withNoElements();
-        SQLUtility.fillColumnDeclarations(converter, columnDeclarations, false, false, false, true, "");
-        return ImmutableList.withElementsOf(columnDeclarations);
+        final @Nullable ImmutableList<@Nonnull SQLColumnDeclaration> columnDeclarations = getTableLayout(converter, "").getColumnDeclarations();
+        Require.that(columnDeclarations != null).orThrow("The layout of the converter $ without a prefix has to contain the column declarations.", converter);
+        assert columnDeclarations != null; // suppress compiler warning
+        return columnDeclarations;
     }
     
     /* -------------------------------------------------- Column Names -------------------------------------------------- */
@@ -379,9 +382,7 @@ public abstract class SQLUtility {
      */
     @Pure
     public static @Nonnull @NonNegative ImmutableList<@Nonnull SQLColumnName> getColumnNames(@Nonnull Converter<?, ?> converter, @Nonnull String prefix) {
-        final @Nonnull FreezableArrayList<@Nonnull SQLColumnName> columnNames = FreezableArrayList.withNoElements();
-        fillColumnNames(converter, columnNames, prefix);
-        return ImmutableList.withElementsOf(columnNames);
+        return getTableLayout(converter, prefix).getColumnNames();
     }
     
     /**
@@ -392,6 +393,72 @@ public abstract class SQLUtility {
         return getColumnNames(converter, "");
     }
     
+    /* -------------------------------------------------- Table Layouts -------------------------------------------------- */
+    
+    /**
+     * Stores the table layouts by their prefix by their converter.
+     */
+    private static final @Nonnull Map<@Nonnull Converter<?, ?>, @Nonnull Map<@Nonnull String, @Nonnull TableLayout>> tableLayouts = new ConcurrentHashMap<>();
+    
+    /**
+     * Returns the primary key columns of the table of the given converter with the given column names.
+     */
+    @Pure
+    private static @Nonnull ImmutableList<@Nonnull SQLColumnName> computePrimaryKeyColumns(@Nonnull Converter<?, ?> converter, @Nonnull ImmutableList<@Nonnull SQLColumnName> columnNames) {
+        boolean primaryKeySpecified = false;
+        final boolean multiplePrimaryKeys = hasMultiplePrimaryKeys(converter);
+        final @Nonnull FreezableList<@Nonnull SQLColumnName> primaryKeyColumns = FreezableLinkedList.withNoElements();
+        for (@Nonnull CustomField customField : converter.getFields(Representation.INTERNAL)) {
+            if (isPrimaryKey(customField)) {
+                primaryKeySpecified = true;
+                if (multiplePrimaryKeys) {
+                    final @Nonnull CustomType fieldType = customField.getCustomType();
+                    if (fieldType.isObjectType()) {
+                        final @Nonnull Converter<?, ?> fieldTypeConverter = ((CustomType.CustomConverterType) fieldType).getConverter();
+                        if (!fieldTypeConverter.isPrimitiveConverter()) {
+                            fillColumnNames(fieldTypeConverter, primaryKeyColumns, customField.getName().toLowerCase());
+                        } else {
+                            primaryKeyColumns.add(SQLColumnNameBuilder.withString(customField.getName()).build());
+                        }
+                    } else {
+                        primaryKeyColumns.add(SQLColumnNameBuilder.withString(customField.getName()).build());
+                    }
+                }
+            }
+        }
+        if (!primaryKeySpecified) { return columnNames; }
+        return ImmutableList.withElementsOf(primaryKeyColumns);
+    }
+    
+    /**
+     * Computes the table layout of the given converter with the given prefix.
+     */
+    @Pure
+    private static @Nonnull TableLayout computeTableLayout(@Nonnull Converter<?, ?> converter, @Nonnull String prefix) {
+        final @Nonnull FreezableArrayList<@Nonnull SQLColumnName> columnNames = FreezableArrayList.withNoElements();
+        fillColumnNames(converter, columnNames, prefix);
+        final @Nonnull ImmutableList<@Nonnull SQLColumnName> immutableColumnNames = ImmutableList.withElementsOf(columnNames);
+        if (!prefix.isEmpty()) { return TableLayoutBuilder.withConverter(converter).withPrefix(prefix).withColumnNames(immutableColumnNames).build(); }
+        
+        final @Nonnull @Modifiable FreezableArrayList<@Nonnull SQLColumnDeclaration> columnDeclarations = FreezableArrayList.withNoElements();
+        fillColumnDeclarations(converter, columnDeclarations, false, false, false, true, "");
+        return TableLayoutBuilder.withConverter(converter).withPrefix(prefix).withColumnNames(immutableColumnNames).withColumnDeclarations(ImmutableList.withElementsOf(columnDeclarations)).withPrimaryKeyColumns(computePrimaryKeyColumns(converter, immutableColumnNames)).build();
+    }
+    
+    /**
+     * Returns the table layout of the given converter with the given prefix, which is computed only once.
+     */
+    @Pure
+    public static @Nonnull TableLayout getTableLayout(@Nonnull Converter<?, ?> converter, @Nonnull String prefix) {
+        final @Nonnull Map<@Nonnull String, @Nonnull TableLayout> layouts = tableLayouts.computeIfAbsent(converter, key -> new ConcurrentHashMap<>());
+        @Nullable TableLayout layout = layouts.get(prefix);
+        if (layout == null) {
+            layout = computeTableLayout(converter, prefix);
+            layouts.put(prefix, layout);
+        }
+        return layout;
+    }
+    
     /* -------------------------------------------------- Qualified Table Name -------------------------------------------------- */
     
     /**
@@ -415,9 +482,6 @@ public abstract class SQLUtility {
     @Pure
     public static @Nonnull ImmutableList<SQLTableConstraint> getTableConstraints(@Nonnull Table<?, ?> tableConverter, @Nonnull Unit unit) {
         final @Nonnull FreezableList<@Nonnull SQLTableConstraint> tableConstraints = FreezableLinkedList.withNoElements();
-        boolean primaryKeySpecified = false;
-        final boolean multiplePrimaryKeys = hasMultiplePrimaryKeys(tableConverter);
-        final @Nonnull FreezableList<@Nonnull SQLColumnName> primaryKeyColumns = FreezableLinkedList.withNoElements();
         for (@Nonnull CustomField customField : tableConverter.getFields(Representation.INTERNAL)) {
             final @Nonnull CustomType fieldType = customField.getCustomType();
             if (fieldType.isObjectType()) {
@@ -459,31 +523,11 @@ public abstract class SQLUtility {
 //                        tableConstraints.add(foreignKeyConstraint);
 //                    }
 //                }
-            } 
-            if (isPrimaryKey(customField)) {
-                primaryKeySpecified = true;
-                if (multiplePrimaryKeys) {
-                    if (fieldType.isObjectType()) {
-                        final @Nonnull Converter<?, ?> fieldTypeConverter = ((CustomType.CustomConverterType) fieldType).getConverter();
-                        if (!fieldTypeConverter.isPrimitiveConverter()) {
-                            fillColumnNames(fieldTypeConverter, primaryKeyColumns, customField.getName().toLowerCase());
-                        } else {
-                            primaryKeyColumns.add(SQLColumnNameBuilder.withString(customField.getName()).build());
-                        }
-                    } else {
-                        primaryKeyColumns.add(SQLColumnNameBuilder.withString(customField.getName()).build());
-                    }
-                }
             }
         }
-        if (!primaryKeyColumns.isEmpty()) {
-            final @Nonnull ImmutableList<@Nonnull SQLColumnName> columnNames = ImmutableList.withElementsOf(primaryKeyColumns);
-            final @Nonnull SQLPrimaryKeyConstraint primaryKeyConstraint = SQLPrimaryKeyConstraintBuilder.withColumns(columnNames).build();
-            tableConstraints.add(primaryKeyConstraint);
-        }
-        if (!primaryKeySpecified) {
-            final @Nonnull ImmutableList<@Nonnull SQLColumnName> columnNames = getColumnNames(tableConverter);
-            final @Nonnull SQLPrimaryKeyConstraint primaryKeyConstraint = SQLPrimaryKeyConstraintBuilder.withColumns(columnNames).build();
+        final @Nullable ImmutableList<@Nonnull SQLColumnName> primaryKeyColumns = getTableLayout(tableConverter, "").getPrimaryKeyColumns();
+        if (primaryKeyColumns != null && !primaryKeyColumns.isEmpty()) {
+            final @Nonnull SQLPrimaryKeyConstraint primaryKeyConstraint = SQLPrimaryKeyConstraintBuilder.withColumns(primaryKeyColumns).build();
             tableConstraints.add(primaryKeyConstraint);
         }
         return ImmutableList.withElementsOf(tableConstraints);
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.conversion;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.immutable.ImmutableList;
+import net.digitalid.utility.rootclass.RootClass;
+import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.size.NonEmpty;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.dialect.identifier.column.SQLColumnName;
+import net.digitalid.database.dialect.statement.table.create.SQLColumnDeclaration;
+
+/**
+ * A table layout stores the flattened columns of a converter with a given prefix so that the fields of the converter do not have to be traversed for every statement.
+ * Table layouts are computed only once per converter and prefix and cached by {@link SQLUtility#getTableLayout(Converter, String)}.
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+public abstract class TableLayout extends RootClass {
+    
+    /* -------------------------------------------------- Converter -------------------------------------------------- */
+    
+    /**
+     * Returns the converter whose fields are flattened by this layout.
+     */
+    @Pure
+    public abstract @Nonnull Converter<?, ?> getConverter();
+    
+    /**
+     * Returns the prefix of the column names of this layout.
+     */
+    @Pure
+    public abstract @Nonnull String getPrefix();
+    
+    /* -------------------------------------------------- Column Names -------------------------------------------------- */
+    
+    /**
+     * Returns the names of the flattened columns of the converter in the order in which its objects are encoded.
+     */
+    @Pure
+    public abstract @Nonnull @NonNullableElements ImmutableList<SQLColumnName> getColumnNames();
+    
+    /**
+     * Returns the number of parameters which are needed to encode an object of the converter.
+     */
+    @Pure
+    public @NonNegative int getNumberOfParameters() {
+        return getColumnNames().size();
+    }
+    
+    /* -------------------------------------------------- Column Declarations -------------------------------------------------- */
+    
+    /**
+     * Returns the declarations of the columns with their SQL types, nullability and constraints
+     * or null if the prefix is not empty, in which case the layout describes columns that are embedded in another table.
+     */
+    @Pure
+    public abstract @Nullable @NonNullableElements @NonEmpty ImmutableList<SQLColumnDeclaration> getColumnDeclarations();
+    
+    /**
+     * Returns the columns of the primary key constraint of the table, which is empty if the primary key is declared on a single column,
+     * or null if the prefix is not empty, in which case the layout describes columns that are embedded in another table.
+     */
+    @Pure
+    public abstract @Nullable @NonNullableElements ImmutableList<SQLColumnName> getPrimaryKeyColumns();
+    
+}
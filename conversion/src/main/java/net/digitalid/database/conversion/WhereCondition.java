@@ -28,6 +28,7 @@ import net.digitalid.utility.rootclass.RootClass;
 import net.digitalid.utility.validation.annotations.generation.Default;
 import net.digitalid.utility.validation.annotations.type.Immutable;
 
+import net.digitalid.database.dialect.expression.bool.SQLComparisonOperator;
 import net.digitalid.database.exceptions.DatabaseException;
 import net.digitalid.database.interfaces.encoder.SQLEncoder;
 
@@ -60,6 +61,13 @@ public abstract class WhereCondition<@Specifiable WHERE_TYPE> extends RootClass
     @Default("\"\"")
     public abstract @Nonnull String getPrefix();
     
+    /**
+     * Returns the operator with which the columns of the {@link #getPrefix() prefix} are compared to the encoded {@link #getObject() object}.
+     */
+    @Pure
+    @Default("SQLComparisonOperator.EQUAL")
+    public abstract @Nonnull SQLComparisonOperator getOperator();
+    
     /* -------------------------------------------------- Encoding -------------------------------------------------- */
     
     /**
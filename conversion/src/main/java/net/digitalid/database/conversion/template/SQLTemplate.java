@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.conversion.template;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.rootclass.RootClass;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.annotations.sql.SQLStatement;
+import net.digitalid.database.dialect.SQLDialect;
+import net.digitalid.database.dialect.statement.SQLStatementNode;
+
+/**
+ * A template stores a fully built statement together with its unparsed string so that only the parameters have to be bound on execution.
+ * 
+ * @see SQLTemplates
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+public abstract class SQLTemplate<@Unspecifiable STATEMENT extends SQLStatementNode> extends RootClass {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    /**
+     * Returns the statement of this template.
+     */
+    @Pure
+    public abstract @Nonnull STATEMENT getStatement();
+    
+    /**
+     * Returns the {@link #getStatement() statement} unparsed in the {@link #getDialect() dialect}.
+     */
+    @Pure
+    public abstract @Nonnull @SQLStatement String getString();
+    
+    /**
+     * Returns the dialect in which the {@link #getStatement() statement} was unparsed.
+     */
+    @Pure
+    public abstract @Nonnull SQLDialect getDialect();
+    
+}
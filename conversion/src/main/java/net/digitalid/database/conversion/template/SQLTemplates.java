@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.conversion.template;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.storage.Table;
+import net.digitalid.utility.storage.interfaces.Unit;
+import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.conversion.WhereCondition;
+import net.digitalid.database.dialect.SQLDialect;
+import net.digitalid.database.dialect.statement.SQLStatementNode;
+
+/**
+ * This class caches the {@link SQLTemplate templates} of the statements that are executed repeatedly.
+ * A template is identified by a key, which has to capture everything that determines the shape of the statement
+ * (i.e. the kind of statement, the table, the unit and the converters and prefixes of the where conditions but not their objects).
+ * The templates are rebuilt whenever the configured {@link SQLDialect#instance dialect} changes.
+ */
+@Utility
+public abstract class SQLTemplates {
+    
+    /* -------------------------------------------------- Templates -------------------------------------------------- */
+    
+    /**
+     * Stores the templates by their key.
+     */
+    private static final @Nonnull Map<@Nonnull List<?>, @Nonnull SQLTemplate<?>> templates = new ConcurrentHashMap<>();
+    
+    /* -------------------------------------------------- Key -------------------------------------------------- */
+    
+    /**
+     * Returns a key for a statement of the given kind on the given table at the given unit with the given where conditions.
+     * Only the converters, the prefixes and the operators of the where conditions are part of the key as their objects are bound as parameters.
+     * The given components are used for everything else that determines the shape of the statement (like the conflict clause).
+     */
+    @Pure
+    public static @Nonnull List<?> getKey(@Nonnull String kind, @Nonnull Table<?, ?> table, @Nonnull Unit unit, @Nonnull @NonNullableElements WhereCondition<?>[] whereConditions, @Nullable Object... components) {
+        final @Nonnull List<Object> key = new ArrayList<>(3 + 3 * whereConditions.length + components.length);
+        key.add(kind);
+        key.add(table);
+        key.add(unit);
+        for (@Nonnull WhereCondition<?> whereCondition : whereConditions) {
+            key.add(whereCondition.getConverter());
+            key.add(whereCondition.getPrefix());
+            key.add(whereCondition.getOperator());
+        }
+        for (@Nullable Object component : components) { key.add(component); }
+        return key;
+    }
+    
+    /* -------------------------------------------------- Retrieval -------------------------------------------------- */
+    
+    /**
+     * Returns the template with the given key, which is built with the given supplier and unparsed at the given unit if it is not yet cached
+     * or if it was unparsed in a different dialect than the one that is currently configured.
+     */
+    @Impure
+    @SuppressWarnings("unchecked")
+    public static <@Unspecifiable STATEMENT extends SQLStatementNode> @Nonnull SQLTemplate<STATEMENT> get(@Nonnull List<?> key, @Nonnull Unit unit, @Nonnull Supplier<? extends STATEMENT> supplier) {
+        final @Nonnull SQLDialect dialect = SQLDialect.instance.get();
+        final @Nullable SQLTemplate<STATEMENT> cachedTemplate = (SQLTemplate<STATEMENT>) templates.get(key);
+        if (cachedTemplate != null && cachedTemplate.getDialect() == dialect) { return cachedTemplate; }
+        
+        final @Nonnull STATEMENT statement = supplier.get();
+        final @Nonnull StringBuilder string = new StringBuilder();
+        dialect.unparse(statement, unit, string);
+        final @Nonnull SQLTemplate<STATEMENT> template = SQLTemplateBuilder.<STATEMENT>withStatement(statement).withString(string.toString()).withDialect(dialect).build();
+        templates.put(key, template);
+        return template;
+    }
+    
+    /* -------------------------------------------------- Invalidation -------------------------------------------------- */
+    
+    /**
+     * Removes all cached templates (e.g. after the schema of a table has changed).
+     */
+    @Impure
+    public static void clear() {
+        templates.clear();
+    }
+    
+}
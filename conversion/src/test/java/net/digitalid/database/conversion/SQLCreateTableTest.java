@@ -41,6 +41,7 @@ import net.digitalid.database.testing.assertion.ExpectedTableConstraintBuilder;
 import net.digitalid.database.testing.assertion.ExpectedTableConstraints;
 import net.digitalid.database.testing.assertion.ExpectedTableConstraintsBuilder;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 public class SQLCreateTableTest extends DatabaseTest {
@@ -68,6 +69,16 @@ public class SQLCreateTableTest extends DatabaseTest {
         assertTableHasExpectedColumnsDeclaration(MultiBooleanColumnTableConverter.INSTANCE.getTypeName(), unit.getName(), expectedColumnDeclarations);
     }
     
+    @Test
+    public void shouldCacheTableLayoutOfMultipleBooleanColumns() throws Exception {
+        final @Nonnull TableLayout layout = SQLUtility.getTableLayout(MultiBooleanColumnTableConverter.INSTANCE, "");
+        Assert.assertSame(layout, SQLUtility.getTableLayout(MultiBooleanColumnTableConverter.INSTANCE, ""));
+        Assert.assertEquals(2, layout.getNumberOfParameters());
+        Assert.assertNotNull(layout.getColumnDeclarations());
+        Assert.assertEquals(2, layout.getColumnDeclarations().size());
+        Assert.assertNull(SQLUtility.getTableLayout(MultiBooleanColumnTableConverter.INSTANCE, "prefix").getColumnDeclarations());
+    }
+    
     @Test
     public void shouldCreateTableWithBooleanColumnWithDefaultValue() throws Exception {
         SQL.createTable(BooleanColumnDefaultTrueTableConverter.INSTANCE, unit);
@@ -15,6 +15,11 @@
  */
 package net.digitalid.database.conversion;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
 import javax.annotation.Nonnull;
 
 import net.digitalid.utility.storage.interfaces.Unit;
@@ -39,6 +44,7 @@ import org.h2.jdbc.JdbcBatchUpdateException;
 import org.h2.jdbc.JdbcSQLException;
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
+import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -78,6 +84,80 @@ public class SQLInsertTableTest extends DatabaseTest {
         }
     }
     
+    @Test
+    public void shouldInsertAllIntoMultiColumnBooleanTableInBatches() throws Exception {
+        SQL.createTable(MultiBooleanColumnTableConverter.INSTANCE, unit);
+        final int batchSize = SQL.batchSize.get();
+        try {
+            SQL.batchSize.set(2);
+            SQL.insertOrAbortAll(MultiBooleanColumnTableConverter.INSTANCE, Arrays.asList(MultiBooleanColumnTable.get(true, false), MultiBooleanColumnTable.get(false, true), MultiBooleanColumnTable.get(true, true)), unit);
+            
+            assertRowCount(MultiBooleanColumnTableConverter.INSTANCE.getTypeName(), unit.getName(), 3);
+            assertTableContains(MultiBooleanColumnTableConverter.INSTANCE.getTypeName(), unit.getName(), Expected.column("firstvalue").value("FALSE"), Expected.column("secondValue").value("TRUE"));
+        } finally {
+            SQL.batchSize.set(batchSize);
+            SQL.dropTable(MultiBooleanColumnTableConverter.INSTANCE, unit);
+        }
+    }
+    
+    @Test
+    public void shouldInsertAllAfterFailedInsertAll() throws Exception {
+        SQL.createTable(MultiBooleanColumnTableConverter.INSTANCE, unit);
+        final int batchSize = SQL.batchSize.get();
+        try {
+            SQL.batchSize.set(2);
+            final @Nonnull List<@Nonnull MultiBooleanColumnTable> objects = Arrays.asList(MultiBooleanColumnTable.get(true, false), MultiBooleanColumnTable.get(false, true), MultiBooleanColumnTable.get(true, true));
+            // The iterator fails after the first batch has been executed and the third object has been added to the second batch.
+            final @Nonnull Iterable<@Nonnull MultiBooleanColumnTable> failingObjects = () -> new Iterator<MultiBooleanColumnTable>() {
+                
+                private int index = 0;
+                
+                @Override
+                public boolean hasNext() {
+                    return true;
+                }
+                
+                @Override
+                public @Nonnull MultiBooleanColumnTable next() {
+                    if (index == objects.size()) { throw new IllegalStateException("The iteration failed."); }
+                    return objects.get(index++);
+                }
+                
+            };
+            try {
+                SQL.insertOrAbortAll(MultiBooleanColumnTableConverter.INSTANCE, failingObjects, unit);
+                Assert.fail("The objects could be inserted although their iteration failed.");
+            } catch (@Nonnull IllegalStateException exception) {
+                // The pending batch has to be discarded when the statement is released.
+            }
+            SQL.insertOrAbortAll(MultiBooleanColumnTableConverter.INSTANCE, Collections.singletonList(MultiBooleanColumnTable.get(false, false)), unit);
+            
+            assertRowCount(MultiBooleanColumnTableConverter.INSTANCE.getTypeName(), unit.getName(), 3);
+            assertTableContains(MultiBooleanColumnTableConverter.INSTANCE.getTypeName(), unit.getName(), Expected.column("firstvalue").value("FALSE"), Expected.column("secondValue").value("FALSE"));
+        } finally {
+            SQL.batchSize.set(batchSize);
+            SQL.dropTable(MultiBooleanColumnTableConverter.INSTANCE, unit);
+        }
+    }
+    
+    @Test
+    public void shouldInsertAllIntoMultiColumnBooleanTableWithMultipleRows() throws Exception {
+        SQL.createTable(MultiBooleanColumnTableConverter.INSTANCE, unit);
+        final int batchSize = SQL.batchSize.get();
+        try {
+            SQL.batchSize.set(2);
+            SQL.multipleRows.set(Boolean.TRUE);
+            SQL.insertOrAbortAll(MultiBooleanColumnTableConverter.INSTANCE, Arrays.asList(MultiBooleanColumnTable.get(true, false), MultiBooleanColumnTable.get(false, true), MultiBooleanColumnTable.get(true, true)), unit);
+            
+            assertRowCount(MultiBooleanColumnTableConverter.INSTANCE.getTypeName(), unit.getName(), 3);
+            assertTableContains(MultiBooleanColumnTableConverter.INSTANCE.getTypeName(), unit.getName(), Expected.column("firstvalue").value("TRUE"), Expected.column("secondValue").value("TRUE"));
+        } finally {
+            SQL.batchSize.set(batchSize);
+            SQL.multipleRows.set(Boolean.FALSE);
+            SQL.dropTable(MultiBooleanColumnTableConverter.INSTANCE, unit);
+        }
+    }
+    
     @Test
     public void shouldInsertIntoConstraintIntegerColumnTable() throws Exception {
         SQL.createTable(ConstraintIntegerColumnTableConverter.INSTANCE, unit);
@@ -15,9 +15,14 @@
  */
 package net.digitalid.database.conversion;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.immutable.ImmutableList;
 import net.digitalid.utility.storage.interfaces.Unit;
 
 import net.digitalid.database.conversion.testenvironment.embedded.Convertible1;
@@ -25,11 +30,21 @@ import net.digitalid.database.conversion.testenvironment.embedded.Convertible1Bu
 import net.digitalid.database.conversion.testenvironment.embedded.Convertible1Converter;
 import net.digitalid.database.conversion.testenvironment.embedded.Convertible2;
 import net.digitalid.database.conversion.testenvironment.embedded.Convertible2Builder;
+import net.digitalid.database.conversion.testenvironment.embedded.Convertible2Converter;
 import net.digitalid.database.conversion.testenvironment.embedded.EmbeddedConvertibles;
 import net.digitalid.database.conversion.testenvironment.embedded.EmbeddedConvertiblesBuilder;
 import net.digitalid.database.conversion.testenvironment.embedded.EmbeddedConvertiblesConverter;
+import net.digitalid.database.conversion.testenvironment.embedded.NullableEmbeddedConvertibles;
+import net.digitalid.database.conversion.testenvironment.embedded.NullableEmbeddedConvertiblesBuilder;
+import net.digitalid.database.conversion.testenvironment.embedded.NullableEmbeddedConvertiblesConverter;
 import net.digitalid.database.conversion.testenvironment.simple.SingleBooleanColumnTable;
 import net.digitalid.database.conversion.testenvironment.simple.SingleBooleanColumnTableConverter;
+import net.digitalid.database.dialect.identifier.column.SQLColumnName;
+import net.digitalid.database.dialect.identifier.column.SQLColumnNameBuilder;
+import net.digitalid.database.dialect.statement.insert.SQLConflictClause;
+import net.digitalid.database.dialect.statement.select.ordered.SQLOrderingTerm;
+import net.digitalid.database.dialect.statement.select.ordered.SQLOrderingTermBuilder;
+import net.digitalid.database.interfaces.Database;
 import net.digitalid.database.testing.DatabaseTest;
 
 import org.junit.Assert;
@@ -94,5 +109,121 @@ public class SQLSelectFromTableTest extends DatabaseTest {
         }
     }
     
+    /**
+     * Tests whether entries can be inserted and selected asynchronously on the database executor.
+     */
+    @Test
+    public void shouldInsertAndSelectAsynchronously() throws Exception {
+        SQL.createTable(EmbeddedConvertiblesConverter.INSTANCE, unit);
+        Database.commit();
+        try {
+            final @Nonnull CompletableFuture<?>[] insertions = new CompletableFuture<?>[3];
+            for (int i = 0; i < insertions.length; i++) {
+                insertions[i] = SQL.insertAsync(EmbeddedConvertiblesConverter.INSTANCE, EmbeddedConvertiblesBuilder.withConvertible1(Convertible1Builder.withValue(i).build()).withConvertible2(Convertible2Builder.withValue(i).build()).build(), unit, SQLConflictClause.ABORT);
+            }
+            CompletableFuture.allOf(insertions).get();
+            
+            final @Nonnull FreezableList<EmbeddedConvertibles> entries = SQL.selectAllAsync(EmbeddedConvertiblesConverter.INSTANCE, null, unit).get();
+            Assert.assertEquals(3, entries.size());
+        } finally {
+            SQL.dropTable(EmbeddedConvertiblesConverter.INSTANCE, unit);
+        }
+    }
+    
+    /**
+     * Tests whether the entries of a table can be streamed without materializing them.
+     */
+    @Test
+    public void shouldStreamFromTableWithEmbeddedConvertibles() throws Exception {
+        SQL.createTable(EmbeddedConvertiblesConverter.INSTANCE, unit);
+        try {
+            for (int i = 0; i < 3; i++) {
+                SQL.insertOrAbort(EmbeddedConvertiblesConverter.INSTANCE, EmbeddedConvertiblesBuilder.withConvertible1(Convertible1Builder.withValue(i).build()).withConvertible2(Convertible2Builder.withValue(i).build()).build(), unit);
+            }
+            
+            final @Nonnull AtomicInteger sum = new AtomicInteger();
+            SQL.forEach(EmbeddedConvertiblesConverter.INSTANCE, null, unit, entry -> sum.addAndGet(entry.getConvertible1().getValue()));
+            Assert.assertEquals(3, sum.get());
+            
+            final @Nonnull SQLCursor<EmbeddedConvertibles, ?> cursor = SQL.selectStream(EmbeddedConvertiblesConverter.INSTANCE, null, unit);
+            Assert.assertTrue(cursor.moveToNext());
+            Assert.assertNotNull(cursor.get());
+            cursor.close();
+            Assert.assertTrue(cursor.isClosed());
+            Assert.assertFalse(cursor.moveToNext());
+        } finally {
+            SQL.dropTable(EmbeddedConvertiblesConverter.INSTANCE, unit);
+        }
+    }
+    
+    /**
+     * Tests whether the entries of a table can be selected page by page in a given order.
+     */
+    @Test
+    public void shouldSelectPageFromTableWithEmbeddedConvertibles() throws Exception {
+        SQL.createTable(EmbeddedConvertiblesConverter.INSTANCE, unit);
+        try {
+            for (int i = 0; i < 5; i++) {
+                SQL.insertOrAbort(EmbeddedConvertiblesConverter.INSTANCE, EmbeddedConvertiblesBuilder.withConvertible1(Convertible1Builder.withValue(i).build()).withConvertible2(Convertible2Builder.withValue(i).build()).build(), unit);
+            }
+            
+            final @Nonnull ImmutableList<SQLOrderingTerm> orders = ImmutableList.withElements(SQLOrderingTermBuilder.withExpression(SQLColumnNameBuilder.withString("convertible1_value").build()).withAscending(false).build());
+            final @Nonnull FreezableList<EmbeddedConvertibles> page = SQL.selectPage(EmbeddedConvertiblesConverter.INSTANCE, null, unit, 2, 1, orders);
+            Assert.assertEquals(2, page.size());
+            Assert.assertSame(3, page.get(0).getConvertible1().getValue());
+            Assert.assertSame(2, page.get(1).getConvertible1().getValue());
+        } finally {
+            SQL.dropTable(EmbeddedConvertiblesConverter.INSTANCE, unit);
+        }
+    }
+    
+    /**
+     * Tests whether the entries of a table can be counted and aggregated without selecting them.
+     */
+    @Test
+    public void shouldAggregateTableWithEmbeddedConvertibles() throws Exception {
+        SQL.createTable(EmbeddedConvertiblesConverter.INSTANCE, unit);
+        try {
+            final @Nonnull SQLColumnName column = SQLColumnNameBuilder.withString("convertible1_value").build();
+            Assert.assertEquals(0, SQL.count(EmbeddedConvertiblesConverter.INSTANCE, unit));
+            Assert.assertFalse(SQL.exists(EmbeddedConvertiblesConverter.INSTANCE, unit));
+            Assert.assertNull(SQL.max(EmbeddedConvertiblesConverter.INSTANCE, unit, column));
+            
+            for (int i = 1; i < 4; i++) {
+                SQL.insertOrAbort(EmbeddedConvertiblesConverter.INSTANCE, EmbeddedConvertiblesBuilder.withConvertible1(Convertible1Builder.withValue(i).build()).withConvertible2(Convertible2Builder.withValue(i).build()).build(), unit);
+            }
+            
+            Assert.assertEquals(3, SQL.count(EmbeddedConvertiblesConverter.INSTANCE, unit));
+            Assert.assertTrue(SQL.exists(EmbeddedConvertiblesConverter.INSTANCE, unit));
+            Assert.assertEquals(Long.valueOf(1), SQL.min(EmbeddedConvertiblesConverter.INSTANCE, unit, column));
+            Assert.assertEquals(Long.valueOf(3), SQL.max(EmbeddedConvertiblesConverter.INSTANCE, unit, column));
+        } finally {
+            SQL.dropTable(EmbeddedConvertiblesConverter.INSTANCE, unit);
+        }
+    }
+    
+    /**
+     * Tests whether embedded convertibles whose columns are all null are decoded as null.
+     */
+    @Test
+    public void shouldSelectFromTableWithNullableEmbeddedConvertibles() throws Exception {
+        SQL.createTable(NullableEmbeddedConvertiblesConverter.INSTANCE, unit);
+        try {
+            SQL.insertOrAbort(NullableEmbeddedConvertiblesConverter.INSTANCE, NullableEmbeddedConvertiblesBuilder.withConvertible2(Convertible2Builder.withValue(1).build()).build(), unit);
+            SQL.insertOrAbort(NullableEmbeddedConvertiblesConverter.INSTANCE, NullableEmbeddedConvertiblesBuilder.withConvertible2(Convertible2Builder.withValue(2).build()).withConvertible1(Convertible1Builder.withValue(0).build()).build(), unit);
+            
+            final @Nonnull WhereCondition<Convertible2> firstCondition = WhereConditionBuilder.withConverter(Convertible2Converter.INSTANCE).withObject(Convertible2Builder.withValue(1).build()).withPrefix("convertible2").build();
+            final @Nonnull NullableEmbeddedConvertibles first = SQL.selectOne(NullableEmbeddedConvertiblesConverter.INSTANCE, null, unit, firstCondition);
+            Assert.assertNull(first.getConvertible1());
+            
+            final @Nonnull WhereCondition<Convertible2> secondCondition = WhereConditionBuilder.withConverter(Convertible2Converter.INSTANCE).withObject(Convertible2Builder.withValue(2).build()).withPrefix("convertible2").build();
+            final @Nonnull NullableEmbeddedConvertibles second = SQL.selectOne(NullableEmbeddedConvertiblesConverter.INSTANCE, null, unit, secondCondition);
+            Assert.assertNotNull(second.getConvertible1());
+            Assert.assertEquals(0, second.getConvertible1().getValue());
+        } finally {
+            SQL.dropTable(NullableEmbeddedConvertiblesConverter.INSTANCE, unit);
+        }
+    }
+    
     // TODO: add a test with a type that contains an Integer or String field and check whether the prefix is properly constructed.
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.conversion;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.storage.interfaces.Unit;
+
+import net.digitalid.database.conversion.testenvironment.columnconstraints.ConstraintIntegerColumnTable;
+import net.digitalid.database.conversion.testenvironment.columnconstraints.ConstraintIntegerColumnTableConverter;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.exceptions.DatabaseExceptionBuilder;
+import net.digitalid.database.interfaces.Database;
+import net.digitalid.database.interfaces.StatementMetrics;
+import net.digitalid.database.interfaces.TransactionContext;
+import net.digitalid.database.interfaces.TransactionExecutor;
+import net.digitalid.database.interfaces.TransactionExecutorBuilder;
+import net.digitalid.database.testing.DatabaseTest;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SQLTransactionTest extends DatabaseTest {
+    
+    private static final @Nonnull Unit unit = Unit.DEFAULT;
+    
+    @Impure
+    @BeforeClass
+    public static void createTable() throws Exception {
+        SQL.createTable(ConstraintIntegerColumnTableConverter.INSTANCE, unit);
+        Database.commit();
+    }
+    
+    @Impure
+    @AfterClass
+    public static void dropTable() throws Exception {
+        SQL.dropTable(ConstraintIntegerColumnTableConverter.INSTANCE, unit);
+        Database.commit();
+    }
+    
+    @Pure
+    private static long countRows() throws DatabaseException {
+        return SQL.count(ConstraintIntegerColumnTableConverter.INSTANCE, unit);
+    }
+    
+    @Impure
+    private static void insertRow(int value) throws DatabaseException {
+        SQL.insertOrAbort(ConstraintIntegerColumnTableConverter.INSTANCE, ConstraintIntegerColumnTable.get(value), unit);
+    }
+    
+    @Test
+    public void testTransactionExecutor() throws DatabaseException {
+        final long rows = countRows();
+        final @Nonnull AtomicInteger attempts = new AtomicInteger();
+        final @Nonnull TransactionExecutor executor = TransactionExecutorBuilder.build();
+        final long result = executor.execute(() -> {
+            insertRow(7);
+            if (attempts.incrementAndGet() == 1) { throw DatabaseExceptionBuilder.withCause(new SQLException("Could not serialize access.", "40001")).build(); }
+            return countRows();
+        });
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(result).as("the rows in the second attempt").isEqualTo(rows + 1);
+        assertThat(countRows()).as("the committed rows").isEqualTo(rows + 1);
+    }
+    
+    @Test
+    public void testReadOnlyTransaction() throws DatabaseException {
+        insertRow(14);
+        Database.commit();
+        final long rows = countRows();
+        assertThat(Database.inReadOnlyTransaction(() -> countRows())).as("the rows in a read-only transaction").isEqualTo(rows);
+        assertThat(Database.isInTransaction()).isFalse();
+    }
+    
+    @Test
+    public void testTransactionContext() throws DatabaseException {
+        final long rows = countRows();
+        try {
+            Database.inTransaction(() -> {
+                final @Nonnull TransactionContext context = Database.getTransactionContext();
+                final @Nonnull CompletableFuture<Boolean> future = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return Database.inContext(context, () -> {
+                            insertRow(21);
+                            return Database.isInTransaction();
+                        });
+                    } catch (@Nonnull DatabaseException exception) {
+                        throw new CompletionException(exception);
+                    }
+                });
+                assertThat(future.join()).isTrue();
+                assertThat(countRows()).as("the rows in the transaction").isEqualTo(rows + 1);
+                throw new IllegalStateException();
+            });
+            Assert.fail("The transaction scope should have failed.");
+        } catch (@Nonnull IllegalStateException exception) {}
+        assertThat(Database.isInTransaction()).isFalse();
+        assertThat(countRows()).as("the rows after the rollback").isEqualTo(rows);
+    }
+    
+    @Test
+    public void testStatementMetrics() throws DatabaseException, RecoveryException {
+        StatementMetrics.reset();
+        insertRow(28);
+        Database.commit();
+        assertThat(SQL.selectAll(ConstraintIntegerColumnTableConverter.INSTANCE, null, unit)).isNotEmpty();
+        Database.commit();
+        long calls = 0, rowsRead = 0, rowsWritten = 0;
+        for (@Nonnull StatementMetrics.Entry entry : StatementMetrics.getEntries()) {
+            calls += entry.getCallCount();
+            rowsRead += entry.getRowsRead();
+            rowsWritten += entry.getRowsWritten();
+            assertThat(entry.getLatencyPercentile(0.99)).isLessThanOrEqualTo(entry.getMaximumLatency());
+        }
+        assertThat(calls).isGreaterThanOrEqualTo(2);
+        assertThat(rowsRead).isPositive();
+        assertThat(rowsWritten).isPositive();
+        assertThat(StatementMetrics.getCommitCount()).isPositive();
+        assertThat(StatementMetrics.getSnapshot()).contains("SELECT").contains("rows written");
+    }
+    
+}
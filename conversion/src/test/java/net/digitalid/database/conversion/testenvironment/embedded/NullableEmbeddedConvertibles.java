@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.conversion.testenvironment.embedded;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.generator.annotations.generators.GenerateTableConverter;
+
+import net.digitalid.database.annotations.constraints.PrimaryKey;
+
+@GenerateBuilder
+@GenerateSubclass
+@GenerateTableConverter
+public interface NullableEmbeddedConvertibles  {
+    
+    @Pure
+    public @Nullable Convertible1 getConvertible1();
+    
+    @Pure
+    @PrimaryKey
+    public @Nonnull Convertible2 getConvertible2();
+    
+}
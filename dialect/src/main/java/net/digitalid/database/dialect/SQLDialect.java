@@ -15,9 +15,13 @@
  */
 package net.digitalid.database.dialect;
 
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.util.Iterator;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.annotations.ownership.NonCaptured;
@@ -26,9 +30,11 @@ import net.digitalid.utility.configuration.Configuration;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
 import net.digitalid.utility.logging.logger.Logger;
 import net.digitalid.utility.storage.interfaces.Unit;
+import net.digitalid.utility.validation.annotations.math.Positive;
 import net.digitalid.utility.validation.annotations.type.Stateless;
 
 import net.digitalid.database.annotations.sql.SQLFraction;
+import net.digitalid.database.annotations.sql.SQLStatement;
 
 /**
  * A dialect implements a particular version of the structured query language (SQL).
@@ -46,13 +52,26 @@ public abstract class SQLDialect {
     
     /* -------------------------------------------------- Unparse -------------------------------------------------- */
     
+    /**
+     * Returns the dispatch table with which this dialect overrides the default implementation of certain nodes or null if this dialect uses the default implementation of all nodes.
+     * Specific dialects should return a table that is stored in a static field so that the resolved unparsers are cached across all unparsings.
+     */
+    @Pure
+    protected @Nullable SQLDispatchTable<?> getDispatchTable() {
+        return null;
+    }
+    
     /**
      * Appends the given node as SQL in this dialect at the given unit to the given string.
-     * Override this method in specific dialects to avoid the default implementation of certain nodes with instance checks.
+     * The node is unparsed with the unparser registered for its type in the {@link #getDispatchTable() dispatch table} of this dialect or with its default implementation otherwise.
      */
     @Pure
+    @SuppressWarnings("unchecked")
     public void unparse(@Nonnull SQLNode node, @Nonnull Unit unit, @NonCaptured @Modified @Nonnull @SQLFraction StringBuilder string) {
-        node.unparse(this, unit, string);
+        final @Nullable SQLDispatchTable<?> dispatchTable = getDispatchTable();
+        if (dispatchTable == null || !((SQLDispatchTable<SQLDialect>) dispatchTable).unparse(this, node, unit, string)) {
+            node.unparse(this, unit, string);
+        }
     }
     
     /**
@@ -67,6 +86,53 @@ public abstract class SQLDialect {
         }
     }
     
+    /* -------------------------------------------------- Limits -------------------------------------------------- */
+    
+    /**
+     * Returns the maximum number of parameters that a single statement can have in this dialect.
+     * The default value corresponds to the limit of older SQLite versions, which is the most restrictive one.
+     */
+    @Pure
+    public @Positive int getMaximumNumberOfParameters() {
+        return 999;
+    }
+    
+    /* -------------------------------------------------- Query Plans -------------------------------------------------- */
+    
+    /**
+     * Returns the statement which explains the query plan of the given statement in this dialect or null if this dialect cannot explain statements.
+     * The returned statement has the same parameters as the given statement.
+     */
+    @Pure
+    public @Nullable @SQLStatement String getExplainStatement(@Nonnull @SQLStatement String statement) {
+        return "EXPLAIN " + statement;
+    }
+    
+    /**
+     * Returns the query plan in the given result of an {@link #getExplainStatement(String) explain statement} as text.
+     * A result with a single column is returned line by line, whereas a result with several columns is returned as a table with a header.
+     */
+    @Pure
+    public @Nonnull String formatPlan(@Nonnull ResultSet resultSet) throws SQLException {
+        final @Nonnull StringBuilder string = new StringBuilder();
+        final @Nonnull ResultSetMetaData metaData = resultSet.getMetaData();
+        final int columns = metaData.getColumnCount();
+        if (columns > 1) {
+            for (int column = 1; column <= columns; column++) {
+                if (column > 1) { string.append(" | "); }
+                string.append(metaData.getColumnLabel(column));
+            }
+        }
+        while (resultSet.next()) {
+            if (string.length() > 0) { string.append(System.lineSeparator()); }
+            for (int column = 1; column <= columns; column++) {
+                if (column > 1) { string.append(" | "); }
+                string.append(resultSet.getString(column));
+            }
+        }
+        return string.toString();
+    }
+    
     /* -------------------------------------------------- Utility -------------------------------------------------- */
     
     /**
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.dialect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.annotations.type.ThreadSafe;
+import net.digitalid.utility.storage.interfaces.Unit;
+
+import net.digitalid.database.annotations.sql.SQLFraction;
+
+/**
+ * A dispatch table maps node types to the unparsers with which a dialect overrides the default unparsing of these nodes.
+ * The unparser of a concrete node class is resolved once by looking for the first registered type that the class is assignable to
+ * and is then cached so that unparsing a node requires only a single map lookup instead of a chain of instance checks.
+ * 
+ * @param <DIALECT> the type of the dialect whose overrides are registered in this table.
+ * 
+ * @see SQLDialect#getDispatchTable()
+ */
+@ThreadSafe
+public final class SQLDispatchTable<@Unspecifiable DIALECT extends SQLDialect> {
+    
+    /* -------------------------------------------------- Unparser -------------------------------------------------- */
+    
+    /**
+     * An unparser appends a node of a specific type as SQL in the given dialect.
+     */
+    @FunctionalInterface
+    public static interface Unparser<@Unspecifiable DIALECT extends SQLDialect, @Unspecifiable NODE extends SQLNode> {
+        
+        /**
+         * Appends the given node as SQL in the given dialect at the given unit to the given string.
+         */
+        @Pure
+        public void unparse(@Nonnull DIALECT dialect, @Nonnull NODE node, @Nonnull Unit unit, @NonCaptured @Modified @Nonnull @SQLFraction StringBuilder string);
+        
+    }
+    
+    /* -------------------------------------------------- Registration -------------------------------------------------- */
+    
+    /**
+     * Stores the registered node types in the order of their registration.
+     */
+    private final @Nonnull List<@Nonnull Class<?>> types = new ArrayList<>();
+    
+    /**
+     * Stores the registered unparsers at the index of their node type.
+     */
+    private final @Nonnull List<@Nonnull Unparser<? super DIALECT, ?>> unparsers = new ArrayList<>();
+    
+    private SQLDispatchTable() {}
+    
+    /**
+     * Returns a new dispatch table without any registered unparsers.
+     */
+    @Pure
+    public static <@Unspecifiable DIALECT extends SQLDialect> @Nonnull SQLDispatchTable<DIALECT> create() {
+        return new SQLDispatchTable<>();
+    }
+    
+    /**
+     * Registers the given unparser for the nodes of the given type and returns this dispatch table.
+     * If a node is an instance of several registered types, the unparser of the type that was registered first is used.
+     * All unparsers have to be registered before the table is used for the first time.
+     */
+    @Impure
+    public <@Unspecifiable NODE extends SQLNode> @Nonnull SQLDispatchTable<DIALECT> with(@Nonnull Class<NODE> type, @Nonnull Unparser<? super DIALECT, ? super NODE> unparser) {
+        types.add(type);
+        unparsers.add(unparser);
+        return this;
+    }
+    
+    /* -------------------------------------------------- Dispatch -------------------------------------------------- */
+    
+    /**
+     * Stores the unparsers that have been resolved for concrete node classes.
+     * Classes without a registered unparser are mapped to the following sentinel.
+     */
+    private final @Nonnull ConcurrentHashMap<@Nonnull Class<?>, @Nonnull Unparser<? super DIALECT, ?>> resolvedUnparsers = new ConcurrentHashMap<>();
+    
+    /**
+     * Marks the classes for which no unparser has been registered.
+     */
+    private final @Nonnull Unparser<? super DIALECT, ?> none = (dialect, node, unit, string) -> {};
+    
+    /**
+     * Returns the unparser for the given node class or the sentinel if no unparser has been registered for its types.
+     */
+    @Pure
+    private @Nonnull Unparser<? super DIALECT, ?> resolve(@Nonnull Class<?> nodeClass) {
+        for (int i = 0; i < types.size(); i++) {
+            if (types.get(i).isAssignableFrom(nodeClass)) { return unparsers.get(i); }
+        }
+        return none;
+    }
+    
+    /**
+     * Returns the number of node classes for which an unparser has been resolved.
+     * This number is bounded by the number of distinct node classes and does not grow with the number of unparsed nodes.
+     */
+    @Pure
+    int getNumberOfResolvedClasses() {
+        return resolvedUnparsers.size();
+    }
+    
+    /**
+     * Appends the given node with the unparser registered for its type to the given string.
+     * 
+     * @return whether an unparser has been registered for the type of the given node.
+     * If not, the node has to be unparsed with its default implementation.
+     */
+    @Pure
+    @SuppressWarnings("unchecked")
+    public boolean unparse(@Nonnull DIALECT dialect, @Nonnull SQLNode node, @Nonnull Unit unit, @NonCaptured @Modified @Nonnull @SQLFraction StringBuilder string) {
+        @Nullable Unparser<? super DIALECT, ?> unparser = resolvedUnparsers.get(node.getClass());
+        if (unparser == null) { unparser = resolvedUnparsers.computeIfAbsent(node.getClass(), this::resolve); }
+        if (unparser == none) { return false; }
+        ((Unparser<? super DIALECT, SQLNode>) unparser).unparse(dialect, node, unit, string);
+        return true;
+    }
+    
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.dialect;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.storage.interfaces.Unit;
+
+import net.digitalid.database.dialect.expression.SQLParameter;
+import net.digitalid.database.dialect.identifier.SQLName;
+import net.digitalid.database.dialect.identifier.column.SQLColumnName;
+import net.digitalid.database.dialect.identifier.column.SQLColumnNameBuilder;
+import net.digitalid.database.dialect.identifier.table.SQLTableName;
+import net.digitalid.database.dialect.identifier.table.SQLTableNameBuilder;
+
+import org.junit.Test;
+
+public class SQLDispatchTableTest extends SQLDialectTest {
+    
+    private final @Nonnull SQLDispatchTable<SQLDialect> dispatchTable = SQLDispatchTable.<SQLDialect>create()
+            .with(SQLColumnName.class, (dialect, node, unit, string) -> string.append("column"))
+            .with(SQLName.class, (dialect, node, unit, string) -> string.append("name"));
+    
+    private @Nonnull String unparse(@Nonnull SQLNode node) {
+        final @Nonnull StringBuilder string = new StringBuilder();
+        if (!dispatchTable.unparse(SQLDialect.instance.get(), node, Unit.DEFAULT, string)) { string.append("default"); }
+        return string.toString();
+    }
+    
+    @Test
+    public void testDispatch() {
+        final @Nonnull SQLColumnName columnName = SQLColumnNameBuilder.withString("first_column").build();
+        final @Nonnull SQLTableName tableName = SQLTableNameBuilder.withString("test_table").build();
+        assertThat(unparse(columnName)).as("the type that was registered first").isEqualTo("column");
+        assertThat(unparse(tableName)).as("the supertype").isEqualTo("name");
+        assertThat(unparse(SQLParameter.INSTANCE)).as("an unregistered type").isEqualTo("default");
+    }
+    
+    @Test
+    public void testResolutionBound() {
+        for (int i = 0; i < 1_000; i++) {
+            unparse(SQLColumnNameBuilder.withString("column" + i).build());
+            unparse(SQLTableNameBuilder.withString("table" + i).build());
+            unparse(SQLParameter.INSTANCE);
+        }
+        assertThat(dispatchTable.getNumberOfResolvedClasses()).as("the number of resolved classes").isEqualTo(3);
+    }
+    
+}
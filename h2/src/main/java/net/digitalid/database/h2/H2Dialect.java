@@ -30,7 +30,7 @@ import net.digitalid.utility.validation.annotations.type.Stateless;
 
 import net.digitalid.database.annotations.sql.SQLFraction;
 import net.digitalid.database.dialect.SQLDialect;
-import net.digitalid.database.dialect.SQLNode;
+import net.digitalid.database.dialect.SQLDispatchTable;
 import net.digitalid.database.dialect.identifier.SQLIdentifier;
 import net.digitalid.database.dialect.statement.insert.SQLConflictClause;
 
@@ -66,12 +66,14 @@ public abstract class H2Dialect extends SQLDialect {
         else { string.append("INSERT"); }
     }
     
+    private static final @Nonnull SQLDispatchTable<H2Dialect> dispatchTable = SQLDispatchTable.<H2Dialect>create()
+            .with(SQLIdentifier.class, H2Dialect::unparse)
+            .with(SQLConflictClause.class, H2Dialect::unparse);
+    
     @Pure
     @Override
-    public void unparse(@Nonnull SQLNode node, @Nonnull Unit unit, @NonCaptured @Modified @Nonnull @SQLFraction StringBuilder string) {
-        if (node instanceof SQLIdentifier) { unparse((SQLIdentifier) node, unit, string); }
-        else if (node instanceof SQLConflictClause) { unparse((SQLConflictClause) node, unit, string); }
-        else { super.unparse(node, unit, string); }
+    protected @Nonnull SQLDispatchTable<H2Dialect> getDispatchTable() {
+        return dispatchTable;
     }
     
 }
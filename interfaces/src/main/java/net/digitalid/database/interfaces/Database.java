@@ -16,20 +16,30 @@
 package net.digitalid.database.interfaces;
 
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.generics.Unspecifiable;
 import net.digitalid.utility.annotations.method.Impure;
 import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.annotations.method.PureWithSideEffects;
-import net.digitalid.utility.concurrency.local.ThreadLocalIterable;
-import net.digitalid.utility.concurrency.local.ThreadLocalIterableBuilder;
 import net.digitalid.utility.configuration.Configuration;
 import net.digitalid.utility.storage.interfaces.Unit;
 import net.digitalid.utility.validation.annotations.type.Mutable;
 
 import net.digitalid.database.annotations.sql.SQLStatement;
 import net.digitalid.database.annotations.transaction.Committing;
+import net.digitalid.database.annotations.transaction.NonCommitting;
 import net.digitalid.database.dialect.SQLDialect;
 import net.digitalid.database.dialect.statement.delete.SQLDeleteStatement;
 import net.digitalid.database.dialect.statement.insert.SQLInsertStatement;
@@ -82,7 +92,9 @@ public abstract class Database implements AutoCloseable {
     @Impure
     @Committing
     public static void commit() throws DatabaseException {
-        instance.get().commitTransaction();
+        final @Nonnull Database database = instance.get();
+        final @Nullable TransactionContext context = database.getBoundContext();
+        if (context == null || !context.isInScope()) { database.commitTransaction(); }
     }
     
     /**
@@ -95,6 +107,335 @@ public abstract class Database implements AutoCloseable {
         instance.get().rollbackTransaction();
     }
     
+    /* -------------------------------------------------- Transaction Contexts -------------------------------------------------- */
+    
+    /**
+     * Stores the transaction context which is bound to the current thread or null if the current thread is not in a transaction.
+     * A context is only bound for the duration of a transaction so that idle threads do not retain any transaction state.
+     */
+    private final @Nonnull ThreadLocal<TransactionContext> context = new ThreadLocal<>();
+    
+    /**
+     * Creates a new transaction context, which databases can override in order to keep their connection in the context.
+     */
+    @Pure
+    protected @Nonnull TransactionContext createContext() {
+        return new TransactionContext();
+    }
+    
+    /**
+     * Returns the transaction context which is bound to the current thread or null if the current thread is not in a transaction.
+     */
+    @Pure
+    protected @Nullable TransactionContext getBoundContext() {
+        return context.get();
+    }
+    
+    /**
+     * Returns the transaction context which is bound to the current thread and binds a new context implicitly if necessary.
+     * An implicitly bound context is unbound again as soon as its transaction is committed or rolled back
+     * or, if the transaction only read data, as soon as the database {@link #canEndImplicitly() ends} it after its last read.
+     */
+    @Impure
+    protected @Nonnull TransactionContext getContext() {
+        @Nullable TransactionContext context = this.context.get();
+        if (context == null) {
+            context = createContext();
+            context.setImplicit(true);
+            this.context.set(context);
+        }
+        return context;
+    }
+    
+    /**
+     * Returns whether the current thread executes work in a transaction scope of its bound context.
+     */
+    @Pure
+    protected boolean isInScope() {
+        final @Nullable TransactionContext context = getBoundContext();
+        return context != null && context.isInScope();
+    }
+    
+    /**
+     * Returns whether the transaction of the current thread was begun implicitly by a statement outside of a transaction scope
+     * and no runnables wait for its end, in which case a database can end a transaction that only read data after its last read
+     * so that threads which only read do not keep a connection (and a bound context) between their statements.
+     */
+    @Pure
+    protected boolean canEndImplicitly() {
+        final @Nullable TransactionContext context = getBoundContext();
+        return context != null && context.isImplicit() && !context.isInScope() && context.getRunnablesAfterCommit().isEmpty() && context.getRunnablesAfterRollback().isEmpty();
+    }
+    
+    /**
+     * Unbinds the transaction context of the current thread if it was bound implicitly and is not used by a transaction scope.
+     */
+    @Impure
+    protected void unbindImplicitContext() {
+        final @Nullable TransactionContext context = this.context.get();
+        if (context != null && context.isImplicit() && !context.isInScope()) { this.context.remove(); }
+    }
+    
+    /**
+     * Executes the given work with the given context bound to the current thread and restores the previous binding afterwards.
+     */
+    @Impure
+    @NonCommitting
+    private <@Specifiable RESULT, @Unspecifiable EXCEPTION extends Exception> RESULT bind(@Nonnull TransactionContext context, @Nonnull TransactionalWork<RESULT, EXCEPTION> work) throws DatabaseException, EXCEPTION {
+        final @Nullable TransactionContext previous = this.context.get();
+        this.context.set(context);
+        try {
+            return work.execute();
+        } finally {
+            if (previous == null) { this.context.remove(); }
+            else { this.context.set(previous); }
+        }
+    }
+    
+    /**
+     * Returns the transaction context of the current thread, which can be {@link #inContext(TransactionContext, TransactionalWork) bound}
+     * to another thread in order to continue the current transaction there (for example, when a task hops between threads).
+     * If the current thread is not in a transaction, a new context is bound implicitly until the next commit or rollback.
+     */
+    @Impure
+    public static @Nonnull TransactionContext getTransactionContext() {
+        return instance.get().getContext();
+    }
+    
+    /**
+     * Executes the given work with the given transaction context bound to the current thread, which restores its previous binding afterwards.
+     * The work thus continues the transaction of the context on the same connection and joins its transaction scope if there is one.
+     */
+    @Impure
+    @NonCommitting
+    public static <@Specifiable RESULT, @Unspecifiable EXCEPTION extends Exception> RESULT inContext(@Nonnull TransactionContext context, @Nonnull TransactionalWork<RESULT, EXCEPTION> work) throws DatabaseException, EXCEPTION {
+        return instance.get().bind(context, work);
+    }
+    
+    /* -------------------------------------------------- Transaction Scopes -------------------------------------------------- */
+    
+    /**
+     * Returns whether the current thread executes work in a {@link #inTransaction(TransactionalWork) transaction scope}.
+     */
+    @Pure
+    public static boolean isInTransaction() {
+        return instance.get().isInScope();
+    }
+    
+    /**
+     * Executes the given work in a transaction scope, which is committed once at its end or rolled back entirely if the work fails.
+     * Calls to {@link #commit()} are deferred until the end of the scope so that several committing operations form a single atomic transaction.
+     * Nested scopes join the outermost scope of the current {@link TransactionContext transaction context}.
+     */
+    @Impure
+    @Committing
+    public static <@Specifiable RESULT, @Unspecifiable EXCEPTION extends Exception> RESULT inTransaction(@Nonnull TransactionalWork<RESULT, EXCEPTION> work) throws DatabaseException, EXCEPTION {
+        return inTransaction(null, false, work);
+    }
+    
+    /**
+     * Returns the isolation level with which the next transaction of the current thread is to be begun or null if the default level is to be used.
+     */
+    @Pure
+    protected @Nullable TransactionIsolation getIsolation() {
+        final @Nullable TransactionContext context = getBoundContext();
+        return context != null ? context.getIsolation() : null;
+    }
+    
+    /**
+     * Returns whether the next transaction of the current thread only reads data and can thus be executed on a read-only replica.
+     */
+    @Pure
+    protected boolean isReadOnly() {
+        final @Nullable TransactionContext context = getBoundContext();
+        return context != null && context.isReadOnly();
+    }
+    
+    /**
+     * Executes the given work in a {@link #inTransaction(TransactionalWork) transaction scope} with the given isolation level.
+     * The isolation level is only applied if the current thread has not yet begun a transaction and is ignored by nested scopes.
+     */
+    @Impure
+    @Committing
+    public static <@Specifiable RESULT, @Unspecifiable EXCEPTION extends Exception> RESULT inTransaction(@Nonnull TransactionIsolation isolation, @Nonnull TransactionalWork<RESULT, EXCEPTION> work) throws DatabaseException, EXCEPTION {
+        return inTransaction(isolation, false, work);
+    }
+    
+    /**
+     * Executes the given work in a read-only {@link #inTransaction(TransactionalWork) transaction scope}, which databases can route to a read-only replica.
+     * The read-only mode is only applied if the current thread has not yet begun a transaction and is ignored by nested scopes.
+     */
+    @Impure
+    @Committing
+    public static <@Specifiable RESULT, @Unspecifiable EXCEPTION extends Exception> RESULT inReadOnlyTransaction(@Nonnull TransactionalWork<RESULT, EXCEPTION> work) throws DatabaseException, EXCEPTION {
+        return inTransaction(null, true, work);
+    }
+    
+    /**
+     * Executes the given work in a read-only {@link #inTransaction(TransactionalWork) transaction scope} with the given isolation level.
+     * The isolation level and the read-only mode are only applied if the current thread has not yet begun a transaction and are ignored by nested scopes.
+     */
+    @Impure
+    @Committing
+    public static <@Specifiable RESULT, @Unspecifiable EXCEPTION extends Exception> RESULT inReadOnlyTransaction(@Nonnull TransactionIsolation isolation, @Nonnull TransactionalWork<RESULT, EXCEPTION> work) throws DatabaseException, EXCEPTION {
+        return inTransaction(isolation, true, work);
+    }
+    
+    /**
+     * Executes the given work in a transaction scope with the given isolation level or the default level if it is null and the given read-only mode.
+     * If the current thread is not bound to a transaction context, a new context is bound for the duration of the scope.
+     */
+    @Impure
+    @Committing
+    private static <@Specifiable RESULT, @Unspecifiable EXCEPTION extends Exception> RESULT inTransaction(@Nullable TransactionIsolation isolation, boolean readOnly, @Nonnull TransactionalWork<RESULT, EXCEPTION> work) throws DatabaseException, EXCEPTION {
+        final @Nonnull Database database = instance.get();
+        final @Nullable TransactionContext context = database.getBoundContext();
+        if (context == null) {
+            final @Nonnull TransactionContext newContext = database.createContext();
+            return database.bind(newContext, () -> database.executeInScope(newContext, isolation, readOnly, work));
+        }
+        if (context.isInScope()) { return work.execute(); }
+        return database.executeInScope(context, isolation, readOnly, work);
+    }
+    
+    /**
+     * Executes the given work in a transaction scope of the given context, which is bound to the current thread.
+     */
+    @Impure
+    @Committing
+    private <@Specifiable RESULT, @Unspecifiable EXCEPTION extends Exception> RESULT executeInScope(@Nonnull TransactionContext context, @Nullable TransactionIsolation isolation, boolean readOnly, @Nonnull TransactionalWork<RESULT, EXCEPTION> work) throws DatabaseException, EXCEPTION {
+        boolean committed = false;
+        context.setIsolation(isolation);
+        context.setReadOnly(readOnly);
+        context.setInScope(true);
+        try {
+            final RESULT result = work.execute();
+            context.setInScope(false);
+            commitTransaction();
+            committed = true;
+            return result;
+        } finally {
+            context.setInScope(false);
+            if (!committed) { rollbackTransaction(); }
+            context.setIsolation(null);
+            context.setReadOnly(false);
+        }
+    }
+    
+    /**
+     * Returns whether the given exception indicates that the transaction was aborted because of a serialization failure or a deadlock
+     * (SQL state 40001 or PostgreSQL's 40P01 and MySQL's error code 1213), in which case the transaction can be retried.
+     */
+    @Pure
+    public static boolean isSerializationFailure(@Nonnull DatabaseException exception) {
+        for (@Nullable Throwable cause = exception.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                final @Nonnull SQLException sqlException = (SQLException) cause;
+                if ("40001".equals(sqlException.getSQLState()) || "40P01".equals(sqlException.getSQLState()) || sqlException.getErrorCode() == 1213) { return true; }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Runs the given notification after the current transaction scope has been committed or immediately if the current thread is not in a transaction scope.
+     * If the transaction scope is rolled back instead, the given compensation is run to undo the in-memory changes that were made in the scope.
+     */
+    @Impure
+    public static void notifyAfterCommit(@Nonnull Runnable notification, @Nonnull Runnable compensation) {
+        if (isInTransaction()) {
+            final @Nonnull Database database = instance.get();
+            database.runAfterCommit(notification);
+            database.runAfterRollback(compensation);
+        } else {
+            notification.run();
+        }
+    }
+    
+    /* -------------------------------------------------- Asynchronous Execution -------------------------------------------------- */
+    
+    /**
+     * Stores the number of threads on which work is executed asynchronously.
+     */
+    public static final @Nonnull Configuration<Integer> executorThreads = Configuration.with(8);
+    
+    /**
+     * Stores the maximum number of asynchronous work items that wait for a thread before further submissions are rejected.
+     */
+    public static final @Nonnull Configuration<Integer> executorQueueCapacity = Configuration.with(1_000);
+    
+    /**
+     * Stores the executor for asynchronous work, which is created lazily with the configured number of threads and queue capacity.
+     */
+    private static volatile @Nullable ExecutorService executor;
+    
+    /**
+     * Returns the executor for asynchronous work.
+     */
+    @Impure
+    private static @Nonnull ExecutorService getExecutor() {
+        @Nullable ExecutorService executor = Database.executor;
+        if (executor == null) {
+            synchronized (Database.class) {
+                executor = Database.executor;
+                if (executor == null) {
+                    final @Nonnull AtomicInteger counter = new AtomicInteger();
+                    executor = new ThreadPoolExecutor(executorThreads.get(), executorThreads.get(), 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(executorQueueCapacity.get()), runnable -> {
+                        final @Nonnull Thread thread = new Thread(runnable, "Database-Executor-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    Database.executor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+    
+    /**
+     * Executes the given work in a transaction scope with the given read-only mode on a thread of the database executor.
+     */
+    @Impure
+    private static <@Specifiable RESULT, @Unspecifiable EXCEPTION extends Exception> @Nonnull CompletableFuture<RESULT> submit(boolean readOnly, @Nonnull TransactionalWork<RESULT, EXCEPTION> work) {
+        final @Nonnull CompletableFuture<RESULT> future = new CompletableFuture<>();
+        try {
+            getExecutor().execute(() -> {
+                try {
+                    future.complete(readOnly ? inReadOnlyTransaction(work) : inTransaction(work));
+                } catch (@Nonnull Throwable throwable) {
+                    future.completeExceptionally(throwable);
+                }
+            });
+        } catch (@Nonnull RejectedExecutionException exception) {
+            future.completeExceptionally(exception);
+        }
+        return future;
+    }
+    
+    /**
+     * Executes the given work asynchronously in its own {@link #inTransaction(TransactionalWork) transaction scope} on a thread of the database executor.
+     * As the whole scope runs on the same thread, the transaction stays on the same connection from its beginning until it is committed or rolled back.
+     * The work does not join a transaction scope of the calling thread. If the queue of the executor is full, the returned future fails with a {@link RejectedExecutionException}.
+     * 
+     * @return a future that is completed with the result of the work after the transaction has been committed or with the exception that caused the rollback.
+     */
+    @Impure
+    @Committing
+    public static <@Specifiable RESULT, @Unspecifiable EXCEPTION extends Exception> @Nonnull CompletableFuture<RESULT> submit(@Nonnull TransactionalWork<RESULT, EXCEPTION> work) {
+        return submit(false, work);
+    }
+    
+    /**
+     * Executes the given work asynchronously in its own {@link #inReadOnlyTransaction(TransactionalWork) read-only transaction scope} on a thread of the database executor.
+     * 
+     * @see #submit(TransactionalWork)
+     */
+    @Impure
+    @Committing
+    public static <@Specifiable RESULT, @Unspecifiable EXCEPTION extends Exception> @Nonnull CompletableFuture<RESULT> submitReadOnly(@Nonnull TransactionalWork<RESULT, EXCEPTION> work) {
+        return submit(true, work);
+    }
+    
     /* -------------------------------------------------- Create Schema -------------------------------------------------- */
     
     /**
@@ -127,6 +468,15 @@ public abstract class Database implements AutoCloseable {
     @Pure
     public abstract @Nonnull SQLActionEncoder getEncoder(@Nonnull SQLInsertStatement insertStatement, @Nonnull Unit unit) throws DatabaseException;
     
+    /**
+     * Returns an SQL action encoder for the given insert statement, which has already been unparsed to the given string in the current dialect, on the given unit.
+     * Databases that execute statements as strings should override this method in order to avoid unparsing the same statement again.
+     */
+    @Pure
+    public @Nonnull SQLActionEncoder getEncoder(@Nonnull SQLInsertStatement insertStatement, @Nonnull @SQLStatement String insertStatementAsString, @Nonnull Unit unit) throws DatabaseException {
+        return getEncoder(insertStatement, unit);
+    }
+    
     /* -------------------------------------------------- Update -------------------------------------------------- */
     
     /**
@@ -135,6 +485,15 @@ public abstract class Database implements AutoCloseable {
     @Pure
     public abstract @Nonnull SQLActionEncoder getEncoder(@Nonnull SQLUpdateStatement updateStatement, @Nonnull Unit unit) throws DatabaseException;
     
+    /**
+     * Returns an SQL action encoder for the given update statement, which has already been unparsed to the given string in the current dialect, on the given unit.
+     * Databases that execute statements as strings should override this method in order to avoid unparsing the same statement again.
+     */
+    @Pure
+    public @Nonnull SQLActionEncoder getEncoder(@Nonnull SQLUpdateStatement updateStatement, @Nonnull @SQLStatement String updateStatementAsString, @Nonnull Unit unit) throws DatabaseException {
+        return getEncoder(updateStatement, unit);
+    }
+    
     /* -------------------------------------------------- Delete -------------------------------------------------- */
     
     /**
@@ -143,6 +502,15 @@ public abstract class Database implements AutoCloseable {
     @Pure
     public abstract @Nonnull SQLActionEncoder getEncoder(@Nonnull SQLDeleteStatement deleteStatement, @Nonnull Unit unit) throws DatabaseException;
     
+    /**
+     * Returns an SQL action encoder for the given delete statement, which has already been unparsed to the given string in the current dialect, on the given unit.
+     * Databases that execute statements as strings should override this method in order to avoid unparsing the same statement again.
+     */
+    @Pure
+    public @Nonnull SQLActionEncoder getEncoder(@Nonnull SQLDeleteStatement deleteStatement, @Nonnull @SQLStatement String deleteStatementAsString, @Nonnull Unit unit) throws DatabaseException {
+        return getEncoder(deleteStatement, unit);
+    }
+    
     /* -------------------------------------------------- Select -------------------------------------------------- */
     
     /**
@@ -151,6 +519,15 @@ public abstract class Database implements AutoCloseable {
     @Pure
     public abstract @Nonnull SQLQueryEncoder getEncoder(@Nonnull SQLSelectStatement selectStatement, @Nonnull Unit unit) throws DatabaseException;
     
+    /**
+     * Returns an SQL query encoder for the given select statement, which has already been unparsed to the given string in the current dialect, on the given unit.
+     * Databases that execute statements as strings should override this method in order to avoid unparsing the same statement again.
+     */
+    @Pure
+    public @Nonnull SQLQueryEncoder getEncoder(@Nonnull SQLSelectStatement selectStatement, @Nonnull @SQLStatement String selectStatementAsString, @Nonnull Unit unit) throws DatabaseException {
+        return getEncoder(selectStatement, unit);
+    }
+    
     /* -------------------------------------------------- Testing -------------------------------------------------- */
     
     /**
@@ -163,9 +540,13 @@ public abstract class Database implements AutoCloseable {
     
     /* -------------------------------------------------- Runnables -------------------------------------------------- */
     
-    private final @Nonnull ThreadLocalIterable<@Nonnull Runnable> runnablesAfterCommit = ThreadLocalIterableBuilder.build();
-    
-    private final @Nonnull ThreadLocalIterable<@Nonnull Runnable> runnablesAfterRollback = ThreadLocalIterableBuilder.build();
+    /**
+     * Runs the given runnables in the given order.
+     */
+    @Impure
+    private static void run(@Nonnull Runnable[] runnables) {
+        for (@Nonnull Runnable runnable : runnables) { runnable.run(); }
+    }
     
     /* -------------------------------------------------- Commit -------------------------------------------------- */
     
@@ -173,19 +554,23 @@ public abstract class Database implements AutoCloseable {
      * Runs the given runnable after (and only after) committing the current transaction successfully.
      * If the current transaction is rolled back, then the runnable is removed without being run.
      * <p>
-     * <em>Important:</em> Do not rely on the order of execution of the passed runnables!
-     * (The current implementation uses a stack, i.e. last in, first out (LIFO).)
+     * The runnables are run in the order in which they were passed (first in, first out)
+     * so that deferred notifications reach the observers in the order of the changes.
      */
     @Impure
     public void runAfterCommit(@Nonnull Runnable runnable) {
-        runnablesAfterCommit.add(runnable);
+        getContext().getRunnablesAfterCommit().addLast(runnable);
     }
     
     @Impure
     protected void runRunnablesAfterCommit() {
-        for (@Nonnull Runnable runnable : runnablesAfterCommit) { runnable.run(); }
-        runnablesAfterCommit.clear();
-        runnablesAfterRollback.clear();
+        final @Nullable TransactionContext context = getBoundContext();
+        if (context == null) { return; }
+        final @Nonnull Runnable[] runnables = context.getRunnablesAfterCommit().toArray(new Runnable[0]);
+        context.getRunnablesAfterCommit().clear();
+        context.getRunnablesAfterRollback().clear();
+        unbindImplicitContext();
+        run(runnables);
     }
     
     /* -------------------------------------------------- Rollback -------------------------------------------------- */
@@ -194,19 +579,23 @@ public abstract class Database implements AutoCloseable {
      * Runs the given runnable after (and only after) rolling back the failed current transaction.
      * If the current transaction is committed, then the runnable is removed without being run.
      * <p>
-     * <em>Important:</em> Do not rely on the order of execution of the passed runnables!
-     * (The current implementation uses a stack, i.e. last in, first out (LIFO).)
+     * The runnables are run in the reverse order in which they were passed (last in, first out)
+     * so that compensations undo the in-memory changes in the reverse order of the changes.
      */
     @Impure
     public void runAfterRollback(@Nonnull Runnable runnable) {
-        runnablesAfterRollback.add(runnable);
+        getContext().getRunnablesAfterRollback().push(runnable);
     }
     
     @Impure
     protected void runRunnablesAfterRollback() {
-        for (@Nonnull Runnable runnable : runnablesAfterRollback) { runnable.run(); }
-        runnablesAfterCommit.clear();
-        runnablesAfterRollback.clear();
+        final @Nullable TransactionContext context = getBoundContext();
+        if (context == null) { return; }
+        final @Nonnull Runnable[] runnables = context.getRunnablesAfterRollback().toArray(new Runnable[0]);
+        context.getRunnablesAfterCommit().clear();
+        context.getRunnablesAfterRollback().clear();
+        unbindImplicitContext();
+        run(runnables);
     }
     
 }
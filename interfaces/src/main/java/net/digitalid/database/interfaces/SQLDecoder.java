@@ -19,6 +19,7 @@ package net.digitalid.database.interfaces;
 import java.security.MessageDigest;
 import java.sql.SQLException;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.Inflater;
 
 import javax.annotation.Nonnull;
@@ -28,14 +29,16 @@ import javax.crypto.Cipher;
 import net.digitalid.utility.annotations.method.Impure;
 import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.annotations.ownership.Shared;
-import net.digitalid.utility.collaboration.annotations.TODO;
-import net.digitalid.utility.collaboration.enumerations.Author;
 import net.digitalid.utility.conversion.enumerations.Representation;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
 import net.digitalid.utility.conversion.interfaces.Converter;
 import net.digitalid.utility.conversion.interfaces.Decoder;
+import net.digitalid.utility.conversion.model.CustomField;
+import net.digitalid.utility.conversion.model.CustomType;
 import net.digitalid.utility.functional.failable.FailableCollector;
 import net.digitalid.utility.functional.interfaces.UnaryFunction;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
 import net.digitalid.utility.validation.annotations.type.Mutable;
 
 import net.digitalid.database.exceptions.DatabaseException;
@@ -92,16 +95,61 @@ public abstract class SQLDecoder implements Decoder<DatabaseException> {
     
     @Pure
     @Override
-    @TODO(task = "This is wrong. The converter expects non-null values. This method returns null when all columns are null and calls the decodeObject method otherwise.", date = "2017-01-25", author = Author.KASPAR_ETTER)
     public <TYPE, PROVIDED> @Nullable TYPE decodeNullableObject(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws DatabaseException, RecoveryException {
-        try {
+        final int numberOfColumns = getNumberOfColumns(converter);
+        if (numberOfColumns > 0 && areNull(numberOfColumns)) {
+            skip(numberOfColumns);
+            return null;
+        } else {
             return decodeObject(converter, provided);
-        } catch (@Nonnull DatabaseException | RecoveryException exception) {
-            if (wasNull()) { return null; } // TODO: This try catch code was written on 2017-08-19. Is this the best we can do?
-            else { throw exception; }
         }
     }
     
+    /* -------------------------------------------------- Look-Ahead -------------------------------------------------- */
+    
+    /**
+     * Stores the number of columns by the converter whose objects are stored in these columns.
+     */
+    private static final @Nonnull Map<@Nonnull Converter<?, ?>, @Nonnull Integer> numbersOfColumns = new ConcurrentHashMap<>();
+    
+    /**
+     * Returns the number of columns in which the objects of the given converter are stored, which corresponds to the number of parameters with which a null object is encoded.
+     */
+    @Pure
+    public static @NonNegative int getNumberOfColumns(@Nonnull Converter<?, ?> converter) {
+        @Nullable Integer numberOfColumns = numbersOfColumns.get(converter);
+        if (numberOfColumns == null) {
+            int sum = 0;
+            for (@Nonnull CustomField field : converter.getFields(Representation.INTERNAL)) {
+                if (field.getCustomType().isObjectType()) { sum += getNumberOfColumns(((CustomType.CustomConverterType) field.getCustomType()).getConverter()); }
+                else if (!field.getCustomType().isCompositeType()) { sum += 1; }
+            }
+            numberOfColumns = sum;
+            numbersOfColumns.put(converter, numberOfColumns);
+        }
+        return numberOfColumns;
+    }
+    
+    /**
+     * Returns whether the given number of columns starting at the current column are all null without decoding them.
+     */
+    @Pure
+    protected abstract boolean areNull(@Positive int numberOfColumns) throws DatabaseException;
+    
+    /**
+     * Returns whether the next column to be decoded is null without decoding it.
+     */
+    @Pure
+    public boolean isNextNull() throws DatabaseException {
+        return areNull(1);
+    }
+    
+    /**
+     * Skips the given number of columns after which {@link #wasNull()} returns true.
+     */
+    @Impure
+    protected abstract void skip(@NonNegative int numberOfColumns);
+    
     /* -------------------------------------------------- Decoding -------------------------------------------------- */
     
     @Pure
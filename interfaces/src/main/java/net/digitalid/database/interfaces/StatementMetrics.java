@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.interfaces;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.type.ThreadSafe;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.annotations.sql.SQLStatement;
+
+/**
+ * This class collects the execution metrics of the database per statement template, which is the unparsed SQL with placeholders for its values.
+ * The metrics are recorded with lock-free counters and can be queried in-process or exported as a text {@link #getSnapshot() snapshot}
+ * in order to find the statements (and thus the tables) which dominate the load.
+ * <p>
+ * The latencies are recorded in a histogram with exponentially growing buckets so that the percentiles are accurate up to a factor of two.
+ */
+@Utility
+@ThreadSafe
+public abstract class StatementMetrics {
+    
+    /* -------------------------------------------------- Configuration -------------------------------------------------- */
+    
+    /**
+     * Stores whether the execution metrics are recorded.
+     */
+    public static final @Nonnull Configuration<Boolean> enabled = Configuration.with(Boolean.TRUE);
+    
+    /**
+     * Stores the maximum number of statement templates for which separate metrics are recorded.
+     * The executions of further templates are recorded together in an {@link #OTHER_TEMPLATES overflow entry}.
+     */
+    public static final @Nonnull Configuration<Integer> maximumTemplates = Configuration.with(10_000);
+    
+    /* -------------------------------------------------- Entry -------------------------------------------------- */
+    
+    /**
+     * An entry records the execution metrics of a single statement template.
+     */
+    @Mutable
+    @ThreadSafe
+    public static final class Entry {
+        
+        private final @Nonnull String template;
+        
+        /**
+         * Returns the statement template whose metrics are recorded by this entry.
+         */
+        @Pure
+        public @Nonnull String getTemplate() {
+            return template;
+        }
+        
+        private Entry(@Nonnull String template) {
+            this.template = template;
+        }
+        
+        /* -------------------------------------------------- Counters -------------------------------------------------- */
+        
+        private final @Nonnull LongAdder calls = new LongAdder();
+        
+        private final @Nonnull LongAdder bindTime = new LongAdder();
+        
+        private final @Nonnull LongAdder executeTime = new LongAdder();
+        
+        private final @Nonnull LongAdder rowsRead = new LongAdder();
+        
+        private final @Nonnull LongAdder rowsWritten = new LongAdder();
+        
+        /**
+         * Returns the number of times that the statement has been executed.
+         */
+        @Pure
+        public @NonNegative long getCallCount() {
+            return calls.sum();
+        }
+        
+        /**
+         * Returns the total number of nanoseconds spent on binding the values of the statement.
+         */
+        @Pure
+        public @NonNegative long getBindTime() {
+            return bindTime.sum();
+        }
+        
+        /**
+         * Returns the total number of nanoseconds spent on executing the statement.
+         */
+        @Pure
+        public @NonNegative long getExecuteTime() {
+            return executeTime.sum();
+        }
+        
+        /**
+         * Returns the number of rows that have been read from the results of the statement.
+         */
+        @Pure
+        public @NonNegative long getRowsRead() {
+            return rowsRead.sum();
+        }
+        
+        /**
+         * Returns the number of rows that have been inserted, updated or deleted by the statement.
+         */
+        @Pure
+        public @NonNegative long getRowsWritten() {
+            return rowsWritten.sum();
+        }
+        
+        /* -------------------------------------------------- Latency -------------------------------------------------- */
+        
+        /**
+         * Stores the number of executions per latency bucket, where bucket i contains the latencies from 2^(i-1) to 2^i - 1 nanoseconds.
+         */
+        private final @Nonnull AtomicLongArray histogram = new AtomicLongArray(Long.SIZE);
+        
+        private final @Nonnull LongAccumulator maximumLatency = new LongAccumulator(Math::max, 0);
+        
+        /**
+         * Returns the maximum number of nanoseconds that an execution of the statement took.
+         */
+        @Pure
+        public @NonNegative long getMaximumLatency() {
+            return maximumLatency.get();
+        }
+        
+        /**
+         * Returns the number of nanoseconds within which the given fraction (between 0 and 1) of the executions completed.
+         * The result is the upper bound of the corresponding histogram bucket and thus at most twice the exact percentile.
+         */
+        @Pure
+        public @NonNegative long getLatencyPercentile(double fraction) {
+            final @Nonnull long[] counts = new long[histogram.length()];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = histogram.get(i);
+                total += counts[i];
+            }
+            if (total == 0) { return 0; }
+            final long threshold = Math.max(1, (long) Math.ceil(total * fraction));
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                if (cumulative >= threshold) { return Math.min((1l << i) - 1, getMaximumLatency()); }
+            }
+            return getMaximumLatency();
+        }
+        
+        /* -------------------------------------------------- Recording -------------------------------------------------- */
+        
+        /**
+         * Records an execution of the statement with the given number of nanoseconds for binding its values and for executing it,
+         * which inserted, updated or deleted the given number of rows.
+         */
+        @Impure
+        public void recordExecution(@NonNegative long bindNanos, @NonNegative long executeNanos, @NonNegative long rows) {
+            calls.increment();
+            bindTime.add(bindNanos);
+            executeTime.add(executeNanos);
+            if (rows > 0) { rowsWritten.add(rows); }
+            histogram.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(executeNanos));
+            maximumLatency.accumulate(executeNanos);
+        }
+        
+        /**
+         * Records that the given number of rows have been read from a result of the statement.
+         */
+        @Impure
+        public void recordRowsRead(@NonNegative long rows) {
+            if (rows > 0) { rowsRead.add(rows); }
+        }
+        
+    }
+    
+    /* -------------------------------------------------- Entries -------------------------------------------------- */
+    
+    /**
+     * Stores the template of the overflow entry, which records the executions of the templates beyond the {@link #maximumTemplates maximum number}.
+     */
+    public static final @Nonnull String OTHER_TEMPLATES = "(other templates)";
+    
+    private static final @Nonnull ConcurrentHashMap<@Nonnull String, @Nonnull Entry> entries = new ConcurrentHashMap<>();
+    
+    /**
+     * Returns the entry of the given statement template, which is created if necessary.
+     */
+    @Impure
+    public static @Nonnull Entry of(@Nonnull @SQLStatement String template) {
+        final @Nullable Entry entry = entries.get(template);
+        if (entry != null) { return entry; }
+        if (entries.size() >= maximumTemplates.get()) { return entries.computeIfAbsent(OTHER_TEMPLATES, Entry::new); }
+        return entries.computeIfAbsent(template, Entry::new);
+    }
+    
+    /**
+     * Returns the entry of the given statement template or null if the template has not been executed since the last reset.
+     */
+    @Pure
+    public static @Nullable Entry get(@Nonnull @SQLStatement String template) {
+        return entries.get(template);
+    }
+    
+    /**
+     * Returns the entries of all statement templates sorted by their total execution time in descending order.
+     */
+    @Pure
+    public static @Nonnull List<@Nonnull Entry> getEntries() {
+        final @Nonnull List<@Nonnull Entry> list = new ArrayList<>(entries.values());
+        list.sort(Comparator.comparingLong(Entry::getExecuteTime).reversed());
+        return list;
+    }
+    
+    /* -------------------------------------------------- Transactions -------------------------------------------------- */
+    
+    private static final @Nonnull LongAdder commits = new LongAdder();
+    
+    private static final @Nonnull LongAdder rollbacks = new LongAdder();
+    
+    /**
+     * Returns the number of transactions that have been committed.
+     */
+    @Pure
+    public static @NonNegative long getCommitCount() {
+        return commits.sum();
+    }
+    
+    /**
+     * Returns the number of transactions that have been rolled back.
+     */
+    @Pure
+    public static @NonNegative long getRollbackCount() {
+        return rollbacks.sum();
+    }
+    
+    /**
+     * Records that a transaction has been committed.
+     */
+    @Impure
+    public static void recordCommit() {
+        commits.increment();
+    }
+    
+    /**
+     * Records that a transaction has been rolled back.
+     */
+    @Impure
+    public static void recordRollback() {
+        rollbacks.increment();
+    }
+    
+    /* -------------------------------------------------- Export -------------------------------------------------- */
+    
+    @Pure
+    private static double toMicroseconds(long nanos) {
+        return nanos / 1_000.0;
+    }
+    
+    @Pure
+    private static double toMilliseconds(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+    
+    /**
+     * Returns a text snapshot of the recorded metrics with one line per statement template, sorted by the total execution time in descending order.
+     */
+    @Pure
+    public static @Nonnull String getSnapshot() {
+        final @Nonnull StringBuilder string = new StringBuilder();
+        string.append("Commits: ").append(getCommitCount()).append(", rollbacks: ").append(getRollbackCount()).append(System.lineSeparator());
+        string.append(String.format("%10s %10s %10s %10s %12s %12s %12s %12s  %s", "calls", "p50 (us)", "p99 (us)", "max (us)", "bind (ms)", "execute (ms)", "rows read", "rows written", "template")).append(System.lineSeparator());
+        for (@Nonnull Entry entry : getEntries()) {
+            string.append(String.format("%10d %10.1f %10.1f %10.1f %12.3f %12.3f %12d %12d  %s", entry.getCallCount(), toMicroseconds(entry.getLatencyPercentile(0.50)), toMicroseconds(entry.getLatencyPercentile(0.99)), toMicroseconds(entry.getMaximumLatency()), toMilliseconds(entry.getBindTime()), toMilliseconds(entry.getExecuteTime()), entry.getRowsRead(), entry.getRowsWritten(), entry.getTemplate())).append(System.lineSeparator());
+        }
+        return string.toString();
+    }
+    
+    /* -------------------------------------------------- Reset -------------------------------------------------- */
+    
+    /**
+     * Removes all recorded metrics.
+     */
+    @Impure
+    public static void reset() {
+        entries.clear();
+        commits.reset();
+        rollbacks.reset();
+    }
+    
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.interfaces;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A transaction context carries the state of a transaction explicitly instead of in thread-local variables of the database.
+ * It is bound to a thread only for the duration of a {@link Database#inTransaction(TransactionalWork) transaction scope} or
+ * of an implicit transaction and can be {@link Database#inContext(TransactionContext, TransactionalWork) bound} to another thread
+ * in order to continue the transaction there. Databases keep their connection in the context only while the transaction is active,
+ * which ends for an implicit transaction that only read data as soon as its last read has been closed.
+ * <p>
+ * <em>Important:</em> A context may only be bound to one thread at a time.
+ * 
+ * @see Database#getTransactionContext()
+ */
+@Mutable
+public class TransactionContext {
+    
+    /* -------------------------------------------------- Constructor -------------------------------------------------- */
+    
+    /**
+     * Creates a new transaction context, which is only done by {@link Database#createContext() databases}.
+     */
+    protected TransactionContext() {}
+    
+    /* -------------------------------------------------- Implicit -------------------------------------------------- */
+    
+    /**
+     * Stores whether this context was bound implicitly by a statement outside of a transaction scope.
+     */
+    private boolean implicit;
+    
+    /**
+     * Returns whether this context was bound implicitly by a statement outside of a transaction scope and is thus unbound again when the transaction ends.
+     */
+    @Pure
+    boolean isImplicit() {
+        return implicit;
+    }
+    
+    /**
+     * Sets whether this context was bound implicitly by a statement outside of a transaction scope.
+     */
+    @Impure
+    void setImplicit(boolean implicit) {
+        this.implicit = implicit;
+    }
+    
+    /* -------------------------------------------------- Scope -------------------------------------------------- */
+    
+    /**
+     * Stores whether the work of a transaction scope is executed in this context.
+     */
+    private boolean scope;
+    
+    /**
+     * Returns whether the work of a transaction scope is executed in this context.
+     */
+    @Pure
+    boolean isInScope() {
+        return scope;
+    }
+    
+    /**
+     * Sets whether the work of a transaction scope is executed in this context.
+     */
+    @Impure
+    void setInScope(boolean scope) {
+        this.scope = scope;
+    }
+    
+    /* -------------------------------------------------- Isolation -------------------------------------------------- */
+    
+    /**
+     * Stores the isolation level with which the next transaction in this context is begun or null if the default level is used.
+     */
+    private @Nullable TransactionIsolation isolation;
+    
+    /**
+     * Returns the isolation level with which the next transaction in this context is begun or null if the default level is used.
+     */
+    @Pure
+    public @Nullable TransactionIsolation getIsolation() {
+        return isolation;
+    }
+    
+    /**
+     * Sets the isolation level with which the next transaction in this context is begun.
+     */
+    @Impure
+    void setIsolation(@Nullable TransactionIsolation isolation) {
+        this.isolation = isolation;
+    }
+    
+    /* -------------------------------------------------- Read-Only -------------------------------------------------- */
+    
+    /**
+     * Stores whether the next transaction in this context only reads data.
+     */
+    private boolean readOnly;
+    
+    /**
+     * Returns whether the next transaction in this context only reads data and can thus be executed on a read-only replica.
+     */
+    @Pure
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+    
+    /**
+     * Sets whether the next transaction in this context only reads data.
+     */
+    @Impure
+    void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+    
+    /* -------------------------------------------------- Runnables -------------------------------------------------- */
+    
+    /**
+     * Stores the runnables which are run after the current transaction in this context has been committed.
+     */
+    private final @Nonnull Deque<@Nonnull Runnable> runnablesAfterCommit = new ArrayDeque<>();
+    
+    /**
+     * Returns the runnables which are run after the current transaction in this context has been committed.
+     */
+    @Pure
+    @Nonnull Deque<@Nonnull Runnable> getRunnablesAfterCommit() {
+        return runnablesAfterCommit;
+    }
+    
+    /**
+     * Stores the runnables which are run after the current transaction in this context has been rolled back.
+     */
+    private final @Nonnull Deque<@Nonnull Runnable> runnablesAfterRollback = new ArrayDeque<>();
+    
+    /**
+     * Returns the runnables which are run after the current transaction in this context has been rolled back.
+     */
+    @Pure
+    @Nonnull Deque<@Nonnull Runnable> getRunnablesAfterRollback() {
+        return runnablesAfterRollback;
+    }
+    
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.interfaces;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.validation.annotations.generation.Default;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.annotations.transaction.Committing;
+import net.digitalid.database.exceptions.DatabaseException;
+
+/**
+ * A transaction executor runs transactional work in a {@link Database#inTransaction(TransactionIsolation, TransactionalWork) transaction scope}
+ * with the configured isolation level and retries the work with a jittered exponential backoff if the transaction is aborted
+ * because of a {@link Database#isSerializationFailure(DatabaseException) serialization failure or deadlock}.
+ * <p>
+ * <em>Important:</em> The work can be executed several times and should thus have no side effects outside of the database
+ * other than in-memory changes that are undone on rollback (as done by the persistent properties).
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+public abstract class TransactionExecutor {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    /**
+     * Returns the isolation level with which the transactions are executed.
+     */
+    @Pure
+    @Default("TransactionIsolation.SERIALIZABLE")
+    public abstract @Nonnull TransactionIsolation getIsolation();
+    
+    /**
+     * Returns whether the work only reads data, in which case the transactions can be executed on a read-only replica.
+     */
+    @Pure
+    @Default("false")
+    public abstract boolean isReadOnly();
+    
+    /**
+     * Returns the maximum number of times that the work is executed.
+     */
+    @Pure
+    @Default("5")
+    public abstract @Positive int getMaximumAttempts();
+    
+    /**
+     * Returns the number of milliseconds to wait before the first retry, which is doubled for each further retry.
+     */
+    @Pure
+    @Default("10l")
+    public abstract @NonNegative long getInitialBackoff();
+    
+    /**
+     * Returns the maximum number of milliseconds to wait before a retry.
+     */
+    @Pure
+    @Default("1_000l")
+    public abstract @NonNegative long getMaximumBackoff();
+    
+    /* -------------------------------------------------- Execution -------------------------------------------------- */
+    
+    /**
+     * Executes the given work in a transaction scope and retries it after serialization failures until the maximum number of attempts is reached.
+     * If the current thread is already in a transaction scope, the work joins this scope and is not retried as only the outermost scope can be rolled back.
+     */
+    @Impure
+    @Committing
+    public <@Specifiable RESULT, @Unspecifiable EXCEPTION extends Exception> RESULT execute(@Nonnull TransactionalWork<RESULT, EXCEPTION> work) throws DatabaseException, EXCEPTION {
+        if (Database.isInTransaction()) { return work.execute(); }
+        long backoff = getInitialBackoff();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return isReadOnly() ? Database.inReadOnlyTransaction(getIsolation(), work) : Database.inTransaction(getIsolation(), work);
+            } catch (@Nonnull DatabaseException exception) {
+                if (attempt >= getMaximumAttempts() || !Database.isSerializationFailure(exception)) { throw exception; }
+                Log.debugging("The transaction was aborted because of a serialization failure and is retried (attempt $ of $).", attempt + 1, getMaximumAttempts());
+                try {
+                    Thread.sleep(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+                } catch (@Nonnull InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    throw exception;
+                }
+                backoff = Math.min(2 * backoff, getMaximumBackoff());
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.interfaces;
+
+import java.sql.Connection;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+/**
+ * This class enumerates the isolation levels with which a {@link TransactionExecutor transaction} can be executed.
+ */
+@Immutable
+public enum TransactionIsolation {
+    
+    /* -------------------------------------------------- Constants -------------------------------------------------- */
+    
+    /**
+     * A transaction with this level sees only committed data but can observe the commits of other transactions.
+     * This level avoids most serialization failures and is thus suited for read-only work.
+     */
+    READ_COMMITTED(Connection.TRANSACTION_READ_COMMITTED),
+    
+    /**
+     * A transaction with this level reads the same data again when repeating a read.
+     */
+    REPEATABLE_READ(Connection.TRANSACTION_REPEATABLE_READ),
+    
+    /**
+     * A transaction with this level behaves as if all transactions were executed one after the other.
+     * This is the level with which transactions are executed by default.
+     */
+    SERIALIZABLE(Connection.TRANSACTION_SERIALIZABLE);
+    
+    /* -------------------------------------------------- Level -------------------------------------------------- */
+    
+    private final int level;
+    
+    /**
+     * Returns the JDBC constant of this isolation level.
+     */
+    @Pure
+    public int getLevel() {
+        return level;
+    }
+    
+    /* -------------------------------------------------- Constructor -------------------------------------------------- */
+    
+    private TransactionIsolation(int level) {
+        this.level = level;
+    }
+    
+}
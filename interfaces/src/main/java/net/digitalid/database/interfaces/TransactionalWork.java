@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.interfaces;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.exceptions.DatabaseException;
+
+/**
+ * Transactional work is executed in a {@link Database#inTransaction(TransactionalWork) transaction scope}.
+ * 
+ * @param <RESULT> the type of the result that is returned by the work.
+ * @param <EXCEPTION> the type of the exception that can be thrown by the work besides database exceptions.
+ */
+@FunctionalInterface
+public interface TransactionalWork<@Specifiable RESULT, @Unspecifiable EXCEPTION extends Exception> {
+    
+    /* -------------------------------------------------- Execution -------------------------------------------------- */
+    
+    /**
+     * Executes this work and returns its result.
+     * Calls to {@link Database#commit()} have no effect during its execution.
+     */
+    @Impure
+    @NonCommitting
+    public RESULT execute() throws DatabaseException, EXCEPTION;
+    
+}
@@ -15,6 +15,8 @@
  */
 package net.digitalid.database.interfaces.encoder;
 
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.annotations.method.PureWithSideEffects;
 import net.digitalid.utility.validation.annotations.type.Mutable;
 
@@ -44,4 +46,29 @@ public interface SQLActionEncoder extends SQLEncoder {
     @PureWithSideEffects
     public abstract void execute() throws DatabaseException;
     
+    /* -------------------------------------------------- Batches -------------------------------------------------- */
+    
+    /**
+     * Returns whether this encoder executes the rows that are {@link #addBatch() added} to its batch together.
+     * Otherwise, each row is executed as soon as it is added to the batch.
+     */
+    @Pure
+    public default boolean supportsBatches() {
+        return false;
+    }
+    
+    /**
+     * Adds the values that have been encoded since the last call to this method as a row to the batch of this encoder.
+     * Afterwards, the values of the next row can be encoded starting again with the first parameter.
+     */
+    @Impure
+    public abstract void addBatch() throws DatabaseException;
+    
+    /**
+     * Executes the statement once for each row that has been {@link #addBatch() added} to the batch of this encoder and not yet executed.
+     * The encoder can no longer be used afterwards.
+     */
+    @PureWithSideEffects
+    public abstract void executeBatch() throws DatabaseException;
+    
 }
@@ -69,6 +69,14 @@ public interface SQLEncoder extends Encoder<DatabaseException> {
     @Override
     public @Nonnull Representation getRepresentation();
     
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    /**
+     * Releases the resources of this encoder, which does nothing if they have already been released by the execution.
+     */
+    @Impure
+    public void close() throws DatabaseException;
+    
     /* -------------------------------------------------- Null -------------------------------------------------- */
     
     /**
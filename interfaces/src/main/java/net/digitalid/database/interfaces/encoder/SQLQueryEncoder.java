@@ -17,7 +17,9 @@ package net.digitalid.database.interfaces.encoder;
 
 import javax.annotation.Nonnull;
 
+import net.digitalid.utility.annotations.method.Impure;
 import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
 import net.digitalid.utility.validation.annotations.type.Mutable;
 
 import net.digitalid.database.exceptions.DatabaseException;
@@ -42,4 +44,13 @@ public interface SQLQueryEncoder extends SQLEncoder {
     @PureWithSideEffects
     public abstract @Nonnull SQLDecoder execute() throws DatabaseException;
     
+    /* -------------------------------------------------- Fetch Size -------------------------------------------------- */
+    
+    /**
+     * Sets the number of rows that should be fetched from the database at once when the rows of the result are iterated.
+     * A fetch size of zero lets the database driver decide. The default implementation ignores this hint.
+     */
+    @Impure
+    public default void setFetchSize(@NonNegative int fetchSize) throws DatabaseException {}
+    
 }
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.jdbc;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.type.ThreadSafe;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This class pools the connections of a {@link JDBCDatabase} so that they can be shared among threads.
+ * <p>
+ * The idle connections are kept in a lock-free deque, where the most recently returned connection is checked out first.
+ * A fair semaphore limits the number of connections that are checked out at the same time to the maximum size of the pool.
+ * Connections that have been idle for longer than the idle timeout are closed lazily as long as the pool contains more than its minimum size.
+ */
+@Mutable
+@ThreadSafe
+class ConnectionPool {
+    
+    /* -------------------------------------------------- Database -------------------------------------------------- */
+    
+    /**
+     * Stores the database whose connections are pooled.
+     */
+    private final @Nonnull JDBCDatabase database;
+    
+    /**
+     * Stores the JDBC URL to which the pooled connections are opened.
+     */
+    private final @Nonnull String url;
+    
+    /* -------------------------------------------------- Configuration -------------------------------------------------- */
+    
+    /**
+     * Stores the number of connections which are kept open even if they are idle.
+     */
+    private final @NonNegative int minimumSize;
+    
+    /**
+     * Stores the maximum number of connections which can be open at the same time.
+     */
+    private final @Positive int maximumSize;
+    
+    /**
+     * Stores the number of milliseconds after which an idle connection is closed.
+     */
+    private final @NonNegative long idleTimeout;
+    
+    /**
+     * Stores the number of milliseconds to wait for a connection if all connections are in use.
+     */
+    private final @NonNegative long acquisitionTimeout;
+    
+    /* -------------------------------------------------- State -------------------------------------------------- */
+    
+    /**
+     * Stores the connections which are currently not in use with the most recently returned connection first.
+     */
+    private final @Nonnull ConcurrentLinkedDeque<@Nonnull PooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    
+    /**
+     * Stores a permit for each connection that can still be checked out.
+     */
+    private final @Nonnull Semaphore permits;
+    
+    /**
+     * Stores the number of open connections, including the ones that are in use.
+     */
+    private final @Nonnull AtomicInteger size = new AtomicInteger();
+    
+    /**
+     * Stores whether this pool has been closed.
+     */
+    private volatile boolean closed = false;
+    
+    /* -------------------------------------------------- Constructor -------------------------------------------------- */
+    
+    /**
+     * Creates a new pool for the connections of the given database to the given URL.
+     */
+    ConnectionPool(@Nonnull JDBCDatabase database, @Nonnull String url, @NonNegative int minimumSize, @Positive int maximumSize, @NonNegative long idleTimeout, @NonNegative long acquisitionTimeout) {
+        this.database = database;
+        this.url = url;
+        this.minimumSize = Math.min(minimumSize, maximumSize);
+        this.maximumSize = maximumSize;
+        this.idleTimeout = idleTimeout;
+        this.acquisitionTimeout = acquisitionTimeout;
+        this.permits = new Semaphore(maximumSize, true);
+    }
+    
+    /* -------------------------------------------------- Size -------------------------------------------------- */
+    
+    /**
+     * Returns the number of open connections, including the ones that are in use.
+     */
+    @Pure
+    @NonNegative int getSize() {
+        return size.get();
+    }
+    
+    /**
+     * Returns the number of open connections that are currently not in use.
+     */
+    @Pure
+    @NonNegative int getIdleSize() {
+        return idleConnections.size();
+    }
+    
+    /* -------------------------------------------------- Checkout -------------------------------------------------- */
+    
+    /**
+     * Checks out a connection from this pool, which has to be {@link #checkIn(PooledConnection, boolean) checked in} again after its use.
+     * An idle connection is reused if possible, otherwise a new connection is opened unless the pool has reached its maximum size,
+     * in which case this method waits at most the acquisition timeout for another thread to return its connection.
+     */
+    @Impure
+    @Nonnull PooledConnection checkOut() throws SQLException {
+        if (closed) { throw new SQLTransientConnectionException("The connection pool has been closed.", "08003"); }
+        try {
+            if (!permits.tryAcquire(acquisitionTimeout, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Could not acquire a database connection within " + acquisitionTimeout + " ms as all " + maximumSize + " connections are in use.", "08001");
+            }
+        } catch (@Nonnull InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("The thread was interrupted while waiting for a database connection.", "08001", exception);
+        }
+        try {
+            @Nullable PooledConnection pooledConnection = idleConnections.pollFirst();
+            while (pooledConnection != null && isExpired(pooledConnection)) {
+                discard(pooledConnection);
+                pooledConnection = idleConnections.pollFirst();
+            }
+            if (pooledConnection == null) {
+                pooledConnection = new PooledConnection(this, database.openConnection(url), database.getStatementCacheCapacity());
+                size.incrementAndGet();
+                Log.debugging("Opened a new database connection, which results in $ open connections.", size.get());
+            }
+            return pooledConnection;
+        } catch (@Nonnull SQLException | RuntimeException exception) {
+            permits.release();
+            throw exception;
+        }
+    }
+    
+    /**
+     * Returns the given connection to this pool so that it can be reused by other threads.
+     * If the connection is broken, it is closed instead of being reused.
+     */
+    @Impure
+    void checkIn(@Nonnull PooledConnection pooledConnection, boolean broken) {
+        try {
+            if (broken || closed) {
+                discard(pooledConnection);
+            } else {
+                pooledConnection.touch();
+                idleConnections.offerFirst(pooledConnection);
+                evictIdleConnections();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+    
+    /* -------------------------------------------------- Eviction -------------------------------------------------- */
+    
+    /**
+     * Returns whether the given idle connection has exceeded the idle timeout and can be closed without falling below the minimum size.
+     */
+    @Pure
+    private boolean isExpired(@Nonnull PooledConnection pooledConnection) {
+        return pooledConnection.getIdleTime() > idleTimeout && size.get() > minimumSize;
+    }
+    
+    /**
+     * Closes the given connection and removes it from the size of this pool.
+     */
+    @Impure
+    private void discard(@Nonnull PooledConnection pooledConnection) {
+        size.decrementAndGet();
+        pooledConnection.close();
+    }
+    
+    /**
+     * Closes the least recently used idle connections that have exceeded the idle timeout.
+     */
+    @Impure
+    private void evictIdleConnections() {
+        final @Nonnull Iterator<@Nonnull PooledConnection> iterator = idleConnections.descendingIterator();
+        while (iterator.hasNext()) {
+            final @Nonnull PooledConnection pooledConnection = iterator.next();
+            if (!isExpired(pooledConnection)) { break; }
+            if (idleConnections.removeLastOccurrence(pooledConnection)) {
+                discard(pooledConnection);
+                Log.debugging("Closed an idle database connection, which results in $ open connections.", size.get());
+            }
+        }
+    }
+    
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    /**
+     * Closes all idle connections of this pool. Connections that are still in use are closed when they are checked in.
+     */
+    @Impure
+    void close() {
+        this.closed = true;
+        @Nullable PooledConnection pooledConnection = idleConnections.pollFirst();
+        while (pooledConnection != null) {
+            discard(pooledConnection);
+            pooledConnection = idleConnections.pollFirst();
+        }
+    }
+    
+}
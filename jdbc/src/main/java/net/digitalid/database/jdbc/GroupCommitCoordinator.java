@@ -0,0 +1,397 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.jdbc;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Savepoint;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.type.ThreadSafe;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This class batches the commits of concurrent write transactions of a {@link JDBCDatabase} into a single physical commit.
+ * <p>
+ * All write transactions share a single writer connection, which a fair semaphore grants to one transaction at a time.
+ * Each transaction begins with a savepoint so that it can be rolled back without discarding the changes of the transactions before it.
+ * When a transaction commits, it releases the writer and joins the pending batch. The first transaction of a batch becomes its leader,
+ * waits for the configured window so that further transactions can join and then commits the writer connection once for the whole batch.
+ * The committers of a batch return only after the physical commit succeeded and fail together if it did not.
+ * If the leader cannot acquire the writer within the acquisition timeout, it fails the batch, whose changes are then rolled back
+ * by the next transaction that holds the writer.
+ */
+@Mutable
+@ThreadSafe
+class GroupCommitCoordinator {
+    
+    /* -------------------------------------------------- Configuration -------------------------------------------------- */
+    
+    /**
+     * Stores the database whose write transactions are coordinated.
+     */
+    private final @Nonnull JDBCDatabase database;
+    
+    /**
+     * Stores the pool from which the writer connection is checked out.
+     */
+    private final @Nonnull ConnectionPool pool;
+    
+    /**
+     * Stores the number of nanoseconds that the leader of a batch waits for further committers.
+     */
+    private final @NonNegative long window;
+    
+    /**
+     * Stores the number of milliseconds to wait for the writer connection if it is used by another transaction.
+     */
+    private final @NonNegative long acquisitionTimeout;
+    
+    /* -------------------------------------------------- State -------------------------------------------------- */
+    
+    /**
+     * Stores the single permit for using the writer connection.
+     */
+    private final @Nonnull Semaphore writer = new Semaphore(1, true);
+    
+    /**
+     * Stores the writer connection or null if it has not yet been checked out (guarded by the writer permit).
+     */
+    private volatile @Nullable PooledConnection connection;
+    
+    /**
+     * Stores the savepoint at which the current write transaction began (guarded by the writer permit).
+     */
+    private @Nullable Savepoint savepoint;
+    
+    /**
+     * Stores the future of the batch that waits for the next physical commit or null if no commit is pending (guarded by the writer permit).
+     */
+    private @Nullable CompletableFuture<Void> batch;
+    
+    /* -------------------------------------------------- Statistics -------------------------------------------------- */
+    
+    /**
+     * Stores the number of transactions that have been committed.
+     */
+    private final @Nonnull AtomicLong numberOfCommits = new AtomicLong();
+    
+    /**
+     * Returns the number of transactions that have been committed.
+     */
+    @Pure
+    @NonNegative long getNumberOfCommits() {
+        return numberOfCommits.get();
+    }
+    
+    /**
+     * Stores the number of physical commits with which the transactions have been committed.
+     */
+    private final @Nonnull AtomicLong numberOfBatches = new AtomicLong();
+    
+    /**
+     * Returns the number of physical commits with which the transactions have been committed.
+     */
+    @Pure
+    @NonNegative long getNumberOfBatches() {
+        return numberOfBatches.get();
+    }
+    
+    /* -------------------------------------------------- Constructor -------------------------------------------------- */
+    
+    /**
+     * Creates a new coordinator for the given database whose writer connection is checked out from the given pool and whose batches wait the given number of microseconds.
+     */
+    GroupCommitCoordinator(@Nonnull JDBCDatabase database, @Nonnull ConnectionPool pool, @NonNegative long window, @NonNegative long acquisitionTimeout) {
+        this.database = database;
+        this.pool = pool;
+        this.window = TimeUnit.MICROSECONDS.toNanos(window);
+        this.acquisitionTimeout = acquisitionTimeout;
+    }
+    
+    /* -------------------------------------------------- Writer -------------------------------------------------- */
+    
+    /**
+     * Returns whether the given connection is the writer connection of this coordinator.
+     */
+    @Pure
+    boolean isWriter(@Nonnull PooledConnection pooledConnection) {
+        return connection == pooledConnection;
+    }
+    
+    /**
+     * Closes the writer connection after rolling back its pending changes and fails the pending batch with the given exception.
+     * This method may only be called while holding the writer permit.
+     */
+    @Impure
+    private void abort(@Nonnull SQLException exception) {
+        final @Nullable PooledConnection pooledConnection = connection;
+        if (pooledConnection != null) {
+            try {
+                pooledConnection.getConnection().rollback();
+            } catch (@Nonnull SQLException rollbackException) {
+                Log.warning("Could not roll back the pending changes of the writer connection.", rollbackException);
+            }
+            pool.checkIn(pooledConnection, true);
+            this.connection = null;
+        }
+        this.savepoint = null;
+        final @Nullable CompletableFuture<Void> batch = this.batch;
+        this.batch = null;
+        if (batch != null) { batch.completeExceptionally(exception); }
+    }
+    
+    /**
+     * Aborts the pending batch if its leader failed it because the writer could not be acquired in time.
+     * This method may only be called while holding the writer permit.
+     * 
+     * @return whether the pending batch was aborted, in which case the changes on the writer connection have been rolled back.
+     */
+    @Impure
+    private boolean abortIfFailed() {
+        final @Nullable CompletableFuture<Void> batch = this.batch;
+        if (batch == null || !batch.isCompletedExceptionally()) { return false; }
+        Log.warning("The pending batch is rolled back because its leader could not acquire the writer connection.");
+        abort(new SQLTransientConnectionException("The pending batch was failed by its leader.", "08001"));
+        return true;
+    }
+    
+    /**
+     * Tries to acquire the writer permit within the acquisition timeout.
+     * 
+     * @return whether the writer permit was acquired.
+     */
+    @Impure
+    private boolean tryAcquire() {
+        try {
+            return writer.tryAcquire(acquisitionTimeout, TimeUnit.MILLISECONDS);
+        } catch (@Nonnull InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    /**
+     * Checks out a valid writer connection from the pool.
+     * This method may only be called while holding the writer permit.
+     */
+    @Impure
+    private @Nonnull PooledConnection checkOut() throws SQLException {
+        @Nonnull PooledConnection pooledConnection = pool.checkOut();
+        while (database.needsValidation(pooledConnection) && !database.isValid(pooledConnection)) {
+            Log.information("The writer connection is no longer valid and is thus replaced.");
+            pool.checkIn(pooledConnection, true);
+            pooledConnection = pool.checkOut();
+        }
+        this.connection = pooledConnection;
+        return pooledConnection;
+    }
+    
+    /* -------------------------------------------------- Transactions -------------------------------------------------- */
+    
+    /**
+     * Begins a write transaction with the given isolation level by acquiring the writer connection and setting a savepoint on it.
+     * As the isolation level cannot change in the middle of a physical transaction, a pending batch with a different level is committed first.
+     * The writer connection is used exclusively by the new transaction until it is {@link #commit() committed} or {@link #rollback() rolled back}.
+     */
+    @Impure
+    @Nonnull PooledConnection begin(int isolation) throws SQLException {
+        try {
+            if (!writer.tryAcquire(acquisitionTimeout, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Could not acquire the writer connection within " + acquisitionTimeout + " ms.", "08001");
+            }
+        } catch (@Nonnull InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("The thread was interrupted while waiting for the writer connection.", "08001", exception);
+        }
+        try {
+            abortIfFailed();
+            @Nullable PooledConnection pooledConnection = connection;
+            if (pooledConnection != null && batch != null && pooledConnection.getIsolation() != isolation) {
+                commitBatch();
+                pooledConnection = connection;
+            }
+            if (pooledConnection != null && batch == null && database.needsValidation(pooledConnection) && !database.isValid(pooledConnection)) {
+                Log.information("The writer connection is no longer valid and is thus replaced.");
+                pool.checkIn(pooledConnection, true);
+                this.connection = pooledConnection = null;
+            }
+            if (pooledConnection == null) { pooledConnection = checkOut(); }
+            if (pooledConnection.getIsolation() != isolation) {
+                try {
+                    pooledConnection.setIsolation(isolation);
+                } catch (@Nonnull SQLException exception) {
+                    Log.warning("Could not set the transaction isolation level of the writer connection.", exception);
+                }
+            }
+            this.savepoint = pooledConnection.getConnection().setSavepoint();
+            return pooledConnection;
+        } catch (@Nonnull SQLException exception) {
+            abort(exception);
+            writer.release();
+            throw exception;
+        } catch (@Nonnull RuntimeException exception) {
+            writer.release();
+            throw exception;
+        }
+    }
+    
+    /**
+     * Commits the current write transaction by releasing the writer connection and waiting until the pending batch has been committed physically.
+     * 
+     * @throws SQLException if the physical commit of the batch failed, in which case the changes of the current transaction are lost.
+     */
+    @Impure
+    void commit() throws SQLException {
+        final @Nonnull CompletableFuture<Void> batch;
+        final boolean leader;
+        try {
+            if (abortIfFailed()) { throw new SQLTransientConnectionException("The transaction was rolled back together with a failed batch.", "08001"); }
+            final @Nullable PooledConnection pooledConnection = connection;
+            final @Nullable Savepoint savepoint = this.savepoint;
+            this.savepoint = null;
+            if (pooledConnection != null && savepoint != null) {
+                try {
+                    pooledConnection.getConnection().releaseSavepoint(savepoint);
+                } catch (@Nonnull SQLException exception) {
+                    Log.debugging("Could not release the savepoint of the write transaction.", exception);
+                }
+            }
+            @Nullable CompletableFuture<Void> pendingBatch = this.batch;
+            leader = pendingBatch == null;
+            if (pendingBatch == null) {
+                pendingBatch = new CompletableFuture<>();
+                this.batch = pendingBatch;
+            }
+            batch = pendingBatch;
+        } finally {
+            writer.release();
+        }
+        if (leader) {
+            if (window > 0) { LockSupport.parkNanos(window); }
+            flush(batch);
+        }
+        try {
+            batch.join();
+            numberOfCommits.incrementAndGet();
+        } catch (@Nonnull CompletionException exception) {
+            final @Nullable Throwable cause = exception.getCause();
+            if (cause instanceof SQLException) { throw (SQLException) cause; }
+            throw new SQLException("The group commit failed.", cause);
+        }
+    }
+    
+    /**
+     * Rolls back the current write transaction to its savepoint so that the pending changes of the committed transactions are kept.
+     * If the savepoint cannot be rolled back, the pending batch is aborted as well.
+     */
+    @Impure
+    void rollback() {
+        try {
+            final @Nullable PooledConnection pooledConnection = connection;
+            final @Nullable Savepoint savepoint = this.savepoint;
+            this.savepoint = null;
+            if (abortIfFailed()) { return; }
+            if (pooledConnection != null && savepoint != null) {
+                try {
+                    pooledConnection.getConnection().rollback(savepoint);
+                    pooledConnection.getConnection().releaseSavepoint(savepoint);
+                    pooledConnection.touch();
+                } catch (@Nonnull SQLException exception) {
+                    Log.error("Could not roll back the write transaction to its savepoint.", exception);
+                    abort(exception);
+                }
+            }
+        } finally {
+            writer.release();
+        }
+    }
+    
+    /**
+     * Commits the writer connection physically for the pending batch, which is completed accordingly.
+     * This method may only be called while holding the writer permit.
+     */
+    @Impure
+    private void commitBatch() {
+        final @Nullable CompletableFuture<Void> batch = this.batch;
+        final @Nullable PooledConnection pooledConnection = connection;
+        if (batch == null || pooledConnection == null || abortIfFailed()) { return; }
+        try {
+            pooledConnection.getConnection().commit();
+            pooledConnection.touch();
+            this.batch = null;
+            numberOfBatches.incrementAndGet();
+            if (!batch.complete(null)) { Log.warning("A batch was committed after its leader failed it."); }
+            Log.debugging("Committed a batch of write transactions.");
+        } catch (@Nonnull SQLException exception) {
+            abort(exception);
+        }
+    }
+    
+    /**
+     * Commits the pending batch after acquiring the writer permit.
+     * If the writer permit cannot be acquired within the acquisition timeout, the given batch of the leader is failed instead.
+     */
+    @Impure
+    private void flush(@Nonnull CompletableFuture<Void> batch) {
+        if (!tryAcquire()) {
+            batch.completeExceptionally(new SQLTransientConnectionException("Could not acquire the writer connection within " + acquisitionTimeout + " ms to commit the batch.", "08001"));
+            return;
+        }
+        try {
+            commitBatch();
+        } finally {
+            writer.release();
+        }
+    }
+    
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    /**
+     * Commits the pending batch and returns the writer connection to its pool.
+     * If the writer permit cannot be acquired within the acquisition timeout, the writer connection is left to the transaction that uses it.
+     */
+    @Impure
+    void close() {
+        if (!tryAcquire()) {
+            Log.warning("Could not acquire the writer connection within $ ms to close the group commit.", acquisitionTimeout);
+            return;
+        }
+        try {
+            commitBatch();
+            final @Nullable PooledConnection pooledConnection = connection;
+            if (pooledConnection != null) {
+                pool.checkIn(pooledConnection, false);
+                this.connection = null;
+            }
+        } finally {
+            writer.release();
+        }
+    }
+    
+}
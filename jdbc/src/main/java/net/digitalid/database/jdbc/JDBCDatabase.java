@@ -15,12 +15,23 @@
  */
 package net.digitalid.database.jdbc;
 
+import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Savepoint;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -30,11 +41,16 @@ import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.annotations.method.PureWithSideEffects;
 import net.digitalid.utility.collaboration.annotations.TODO;
 import net.digitalid.utility.collaboration.enumerations.Author;
+import net.digitalid.utility.collections.list.ReadOnlyList;
 import net.digitalid.utility.conversion.enumerations.Representation;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
 import net.digitalid.utility.logging.Log;
 import net.digitalid.utility.storage.interfaces.Unit;
+import net.digitalid.utility.validation.annotations.generation.Default;
+import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
 import net.digitalid.utility.validation.annotations.type.Mutable;
 
 import net.digitalid.database.annotations.sql.SQLStatement;
@@ -42,7 +58,6 @@ import net.digitalid.database.annotations.transaction.Committing;
 import net.digitalid.database.annotations.transaction.NonCommitting;
 import net.digitalid.database.dialect.SQLDialect;
 import net.digitalid.database.dialect.statement.SQLStatementNode;
-import net.digitalid.database.dialect.statement.SQLTableStatement;
 import net.digitalid.database.dialect.statement.delete.SQLDeleteStatement;
 import net.digitalid.database.dialect.statement.insert.SQLInsertStatement;
 import net.digitalid.database.dialect.statement.schema.SQLCreateSchemaStatement;
@@ -53,9 +68,15 @@ import net.digitalid.database.dialect.statement.update.SQLUpdateStatement;
 import net.digitalid.database.exceptions.DatabaseException;
 import net.digitalid.database.exceptions.DatabaseExceptionBuilder;
 import net.digitalid.database.interfaces.Database;
+import net.digitalid.database.interfaces.StatementMetrics;
+import net.digitalid.database.interfaces.TransactionContext;
+import net.digitalid.database.interfaces.TransactionIsolation;
 import net.digitalid.database.interfaces.encoder.SQLActionEncoder;
 import net.digitalid.database.interfaces.encoder.SQLQueryEncoder;
+import net.digitalid.database.jdbc.encoder.ExecutionObserver;
+import net.digitalid.database.jdbc.encoder.JDBCActionEncoder;
 import net.digitalid.database.jdbc.encoder.JDBCActionEncoderBuilder;
+import net.digitalid.database.jdbc.encoder.JDBCQueryEncoder;
 import net.digitalid.database.jdbc.encoder.JDBCQueryEncoderBuilder;
 
 /**
@@ -93,96 +114,480 @@ public abstract class JDBCDatabase extends Database {
     @Pure
     protected abstract @Nullable String getPassword();
     
-    /* -------------------------------------------------- Connection -------------------------------------------------- */
+    /**
+     * Returns the JDBC URLs of the read-only replicas of this database or null if read-only transactions are executed on the primary database.
+     * The replicas are accessed with the same user and password as the primary database.
+     */
+    @Pure
+    protected abstract @Nullable @NonNullableElements ReadOnlyList<@Nonnull String> getReplicaURLs();
+    
+    /**
+     * Returns the maximum number of prepared statements that are cached per connection.
+     * A capacity of zero disables the caching of prepared statements.
+     */
+    @Pure
+    @Default("64")
+    protected abstract @NonNegative int getStatementCacheCapacity();
+    
+    /**
+     * Returns the number of connections which are kept open in the pool even if they are idle.
+     */
+    @Pure
+    @Default("0")
+    protected abstract @NonNegative int getMinimumPoolSize();
+    
+    /**
+     * Returns the maximum number of connections which can be open at the same time.
+     */
+    @Pure
+    @Default("16")
+    protected abstract @Positive int getMaximumPoolSize();
+    
+    /**
+     * Returns the number of milliseconds after which an idle connection in the pool is closed.
+     */
+    @Pure
+    @Default("600_000L")
+    protected abstract @NonNegative long getIdleTimeout();
+    
+    /**
+     * Returns the number of milliseconds to wait for a connection if all connections of the pool are in use.
+     */
+    @Pure
+    @Default("30_000L")
+    protected abstract @NonNegative long getAcquisitionTimeout();
+    
+    /**
+     * Returns the number of milliseconds that a connection can be idle before it is validated again when it is checked out.
+     * Connections on which an error occurred are validated regardless of this threshold.
+     */
+    @Pure
+    @Default("30_000L")
+    protected abstract @NonNegative long getValidationThreshold();
+    
+    /**
+     * Returns the number of microseconds that a commit waits for concurrent commits in order to batch them into a single physical commit.
+     * A positive window makes all write transactions share a single writer connection on which they are serialized (as with SQLite anyway)
+     * in exchange for far fewer commits and thus fsyncs. A window of zero disables the group commit.
+     */
+    @Pure
+    @Default("0L")
+    protected abstract @NonNegative long getGroupCommitWindow();
+    
+    /**
+     * Returns the number of milliseconds after which an executed statement is logged as slow together with its values, its elapsed time and its number of rows.
+     * A threshold of zero disables the slow-statement log.
+     */
+    @Pure
+    @Default("0L")
+    protected abstract @NonNegative long getSlowStatementThreshold();
     
     /**
-     * Stores the database connection of the current thread.
+     * Returns whether the values of slow statements are redacted in the log (e.g. because they contain personal data).
      */
-    private final @Nonnull ThreadLocal<Connection> connection = new ThreadLocal<>();
+    @Pure
+    @Default("false")
+    protected abstract boolean isSlowStatementRedacted();
+    
+    /**
+     * Returns whether the query plan of slow statements is captured with the {@link SQLDialect#getExplainStatement(String) explain statement} of the dialect and logged as well.
+     */
+    @Pure
+    @Default("false")
+    protected abstract boolean isSlowStatementExplained();
+    
+    /* -------------------------------------------------- Connection -------------------------------------------------- */
     
     /**
-     * Sets a new database connection for the current thread.
+     * Opens a new database connection to the given URL, which is configured for manual transactions.
      */
     @Impure
-    @NonCommitting
     @TODO(task = "The isolation was Connection.TRANSACTION_READ_COMMITTED but SQLite does not support this.", date = "2017-08-28", author = Author.KASPAR_ETTER)
-    private void setConnection() throws DatabaseException {
+    @Nonnull Connection openConnection(@Nonnull String url) throws SQLException {
+        final @Nonnull Connection connection;
+        if (getUser() == null || getPassword() == null) { connection = DriverManager.getConnection(url); }
+        else { connection = DriverManager.getConnection(url, getUser(), getPassword()); }
+        connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        connection.setAutoCommit(false);
+        return connection;
+    }
+    
+    /**
+     * Stores the connection pool of this database, which is created lazily as the fields of the builder are not available during construction.
+     */
+    private volatile @Nullable ConnectionPool pool;
+    
+    /**
+     * Stores the connection pools of the replicas of this database, which are created together with the pool of the primary database.
+     * (The array is published safely through the volatile write of the primary pool.)
+     */
+    private @Nonnull ConnectionPool[] replicaPools = new ConnectionPool[0];
+    
+    /**
+     * Stores the coordinator of the group commit or null if the group commit is disabled, which is created together with the pool of the primary database.
+     * (The coordinator is published safely through the volatile write of the primary pool.)
+     */
+    private @Nullable GroupCommitCoordinator coordinator;
+    
+    /**
+     * Returns the connection pool of this database.
+     */
+    @Impure
+    private @Nonnull ConnectionPool getPool() {
+        @Nullable ConnectionPool pool = this.pool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = this.pool;
+                if (pool == null) {
+                    final @Nullable ReadOnlyList<@Nonnull String> replicaURLs = getReplicaURLs();
+                    if (replicaURLs != null) {
+                        final @Nonnull ConnectionPool[] replicaPools = new ConnectionPool[replicaURLs.size()];
+                        for (int i = 0; i < replicaPools.length; i++) {
+                            replicaPools[i] = new ConnectionPool(this, replicaURLs.get(i), getMinimumPoolSize(), getMaximumPoolSize(), getIdleTimeout(), getAcquisitionTimeout());
+                        }
+                        this.replicaPools = replicaPools;
+                    }
+                    pool = new ConnectionPool(this, getURL(), getMinimumPoolSize(), getMaximumPoolSize(), getIdleTimeout(), getAcquisitionTimeout());
+                    if (getGroupCommitWindow() > 0) { this.coordinator = new GroupCommitCoordinator(this, pool, getGroupCommitWindow(), getAcquisitionTimeout()); }
+                    this.pool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+    
+    /**
+     * Stores the index of the replica on which the next read-only transaction is executed.
+     */
+    private final @Nonnull AtomicInteger nextReplica = new AtomicInteger();
+    
+    /**
+     * Returns the connection pool for a read-only transaction, which is the pool of the next replica in round-robin order or the pool of the primary database if there are no replicas.
+     */
+    @Impure
+    private @Nonnull ConnectionPool getReadOnlyPool() {
+        final @Nonnull ConnectionPool pool = getPool();
+        final @Nonnull ConnectionPool[] replicaPools = this.replicaPools;
+        if (replicaPools.length == 0) { return pool; }
+        return replicaPools[Math.floorMod(nextReplica.getAndIncrement(), replicaPools.length)];
+    }
+    
+    /* -------------------------------------------------- Context -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    protected @Nonnull TransactionContext createContext() {
+        return new JDBCTransactionContext();
+    }
+    
+    /**
+     * Returns the pooled connection of the transaction context of the current thread or null if no transaction is active.
+     */
+    @Pure
+    private @Nullable PooledConnection getActiveConnection() {
+        final @Nullable JDBCTransactionContext context = (JDBCTransactionContext) getBoundContext();
+        return context != null ? context.getConnection() : null;
+    }
+    
+    /**
+     * Returns whether the given pooled connection is the writer connection of the group commit.
+     */
+    @Pure
+    private boolean isGroupCommitted(@Nonnull PooledConnection pooledConnection) {
+        final @Nullable GroupCommitCoordinator coordinator = this.coordinator;
+        return coordinator != null && coordinator.isWriter(pooledConnection);
+    }
+    
+    /**
+     * Returns the number of transactions that have been committed through the group commit.
+     */
+    @Pure
+    public @NonNegative long getNumberOfGroupCommits() {
+        final @Nullable GroupCommitCoordinator coordinator = this.coordinator;
+        return coordinator != null ? coordinator.getNumberOfCommits() : 0;
+    }
+    
+    /**
+     * Returns the number of physical commits with which the {@link #getNumberOfGroupCommits() group-committed transactions} have been committed.
+     */
+    @Pure
+    public @NonNegative long getNumberOfGroupCommitBatches() {
+        final @Nullable GroupCommitCoordinator coordinator = this.coordinator;
+        return coordinator != null ? coordinator.getNumberOfBatches() : 0;
+    }
+    
+    /* -------------------------------------------------- Validation -------------------------------------------------- */
+    
+    /**
+     * Stores the number of times that a connection has been validated.
+     */
+    private final @Nonnull AtomicLong numberOfValidations = new AtomicLong();
+    
+    /**
+     * Returns the number of times that a connection has been validated, which allows to tune the {@link #getValidationThreshold() validation threshold}.
+     */
+    @Pure
+    public @NonNegative long getNumberOfValidations() {
+        return numberOfValidations.get();
+    }
+    
+    /**
+     * Returns whether the given exception indicates that the connection to the database failed.
+     */
+    @Pure
+    static boolean isConnectionFailure(@Nonnull SQLException exception) {
+        final @Nullable String state = exception.getSQLState();
+        return exception instanceof SQLNonTransientConnectionException || exception instanceof SQLTransientConnectionException || state != null && state.startsWith("08");
+    }
+    
+    /**
+     * Marks the connection of the current transaction to be validated before its next use if the given exception indicates a connection failure.
+     * 
+     * @return the given exception wrapped in a {@link DatabaseException}.
+     */
+    @Impure
+    private @Nonnull DatabaseException handle(@Nonnull SQLException exception) {
+        final @Nullable PooledConnection pooledConnection = getActiveConnection();
+        if (pooledConnection != null && isConnectionFailure(exception)) { pooledConnection.setSuspect(true); }
+        return DatabaseExceptionBuilder.withCause(exception).build();
+    }
+    
+    /**
+     * Returns a handler that marks the connection of the current transaction to be validated before its next use if an exception of one of its statements indicates a connection failure.
+     */
+    @Pure
+    private @Nonnull Consumer<@Nonnull SQLException> getFailureHandler() {
+        final @Nullable PooledConnection pooledConnection = getActiveConnection();
+        return exception -> {
+            if (pooledConnection != null && isConnectionFailure(exception)) { pooledConnection.setSuspect(true); }
+        };
+    }
+    
+    /**
+     * Returns whether the given pooled connection has to be validated because it was idle for too long or is suspect.
+     */
+    @Pure
+    boolean needsValidation(@Nonnull PooledConnection pooledConnection) {
+        return pooledConnection.isSuspect() || pooledConnection.getIdleTime() > getValidationThreshold();
+    }
+    
+    /**
+     * Checks that the given pooled connection is valid.
+     */
+    @Impure
+    boolean isValid(@Nonnull PooledConnection pooledConnection) {
+        numberOfValidations.incrementAndGet();
         try {
-            final @Nonnull Connection connection;
-            if (getUser() == null || getPassword() == null) { connection = DriverManager.getConnection(getURL()); }
-            else { connection = DriverManager.getConnection(getURL(), getUser(), getPassword()); }
-            connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
-            connection.setAutoCommit(false);
-            this.connection.set(connection);
+            final boolean valid = pooledConnection.getConnection().isValid(1);
+            if (valid) { pooledConnection.setSuspect(false); }
+            return valid;
         } catch (@Nonnull SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            return false;
         }
     }
     
     /**
-     * Checks that the database connection of the current thread is valid.
+     * Returns the pooled connection of the current transaction and begins a new transaction if necessary.
+     * If the given statement writes data, the transaction is no longer ended implicitly after its last read.
+     * An implicit transaction that has only read so far and has no open queries moves to the writer connection of the group commit on its first write.
      */
     @Impure
     @NonCommitting
-    private void checkConnection() throws DatabaseException {
-        final @Nullable Connection connection = this.connection.get();
-        if (connection == null) {
-            setConnection();
-        } else {
+    private @Nonnull PooledConnection getPooledConnection(boolean writing) throws DatabaseException {
+        final @Nonnull JDBCTransactionContext context = (JDBCTransactionContext) getContext();
+        @Nullable PooledConnection pooledConnection = context.getConnection();
+        if (pooledConnection != null && writing && coordinator != null && !isReadOnly() && !isInScope() && !context.isWriting() && context.getOpenQueries() == 0 && !isGroupCommitted(pooledConnection)) {
+            boolean broken = false;
             try {
-                if (!connection.isValid(1)) {
-                    Log.information("The database connection is no longer valid and is thus replaced.");
-                    connection.close();
-                    setConnection();
-                }
+                pooledConnection.getConnection().commit();
             } catch (@Nonnull SQLException exception) {
-                throw DatabaseExceptionBuilder.withCause(exception).build();
+                Log.warning("Could not end the implicit read transaction.", exception);
+                broken = true;
             }
+            end(pooledConnection, broken);
+            pooledConnection = null;
         }
+        if (pooledConnection == null) {
+            begin(writing);
+            pooledConnection = context.getConnection();
+        }
+        if (writing) { context.setWriting(true); }
+        return pooledConnection;
     }
     
     /**
-     * Returns the database connection of the current thread.
+     * Returns the database connection of the current transaction, which is treated as writing data.
      * <p>
-     * <em>Important:</em> Do not commit, roll back or close
-     * the current connection as it will be reused later on!
+     * <em>Important:</em> Do not commit, roll back or close the current connection
+     * as it is returned to the connection pool at the end of the transaction!
      */
     @Impure
     @NonCommitting
     protected @Nonnull Connection getConnection() throws DatabaseException {
-        if (!transaction.get()) { begin(); }
-        return connection.get();
+        return getPooledConnection(true).getConnection();
+    }
+    
+    /**
+     * Ends the implicit transaction of the given context if it only read data and all its queries have been closed
+     * so that the connection is returned to the pool instead of being kept by a thread that never commits.
+     */
+    @Impure
+    private void endImplicitRead(@Nonnull JDBCTransactionContext context) {
+        final @Nullable PooledConnection pooledConnection = context.getConnection();
+        if (pooledConnection == null || context.isWriting() || context.getOpenQueries() > 0 || getBoundContext() != context || !canEndImplicitly() || isGroupCommitted(pooledConnection)) { return; }
+        boolean broken = false;
+        try {
+            pooledConnection.getConnection().commit();
+        } catch (@Nonnull SQLException exception) {
+            Log.warning("Could not end the implicit read transaction.", exception);
+            broken = true;
+        }
+        end(pooledConnection, broken);
+        unbindImplicitContext();
     }
     
     /* -------------------------------------------------- Transactions -------------------------------------------------- */
     
     /**
-     * Stores whether the database connection of the current thread is in a transaction.
+     * Begins a new transaction by checking out a valid connection from the pool and storing it in the transaction context of the current thread.
+     * If the group commit is enabled, explicit read-write transactions and implicit transactions that start with a write acquire the shared writer connection instead.
+     */
+    @Impure
+    @NonCommitting
+    protected void begin(boolean writing) throws DatabaseException {
+        final @Nonnull JDBCTransactionContext context = (JDBCTransactionContext) getContext();
+        if (context.getConnection() != null) { return; }
+        try {
+            final @Nonnull ConnectionPool pool = isReadOnly() ? getReadOnlyPool() : getPool();
+            final @Nullable GroupCommitCoordinator coordinator = this.coordinator;
+            if (coordinator != null && !isReadOnly() && (writing || isInScope())) {
+                context.setConnection(coordinator.begin(getIsolationLevel()));
+                return;
+            }
+            @Nonnull PooledConnection pooledConnection = pool.checkOut();
+            while (needsValidation(pooledConnection) && !isValid(pooledConnection)) {
+                Log.information("The database connection is no longer valid and is thus replaced.");
+                pool.checkIn(pooledConnection, true);
+                pooledConnection = pool.checkOut();
+            }
+            applyIsolation(pooledConnection);
+            applyReadOnly(pooledConnection);
+            context.setConnection(pooledConnection);
+        } catch (@Nonnull SQLException exception) {
+            throw DatabaseExceptionBuilder.withCause(exception).build();
+        }
+    }
+    
+    /**
+     * Returns the JDBC isolation level {@link #getIsolation() requested} for the current transaction, which is serializable by default.
+     */
+    @Pure
+    private int getIsolationLevel() {
+        final @Nullable TransactionIsolation isolation = getIsolation();
+        return isolation != null ? isolation.getLevel() : Connection.TRANSACTION_SERIALIZABLE;
+    }
+    
+    /**
+     * Sets the isolation level of the given pooled connection to the one {@link #getIsolation() requested} for the current transaction.
+     * If the database does not support the requested level (like SQLite for read committed), the connection keeps its level.
      */
-    private final @Nonnull ThreadLocal<Boolean> transaction = new ThreadLocal<Boolean>() {
-        @Override protected @Nonnull Boolean initialValue() { return Boolean.FALSE; }
-    };
+    @Impure
+    private void applyIsolation(@Nonnull PooledConnection pooledConnection) {
+        final int level = getIsolationLevel();
+        if (pooledConnection.getIsolation() != level) {
+            try {
+                pooledConnection.setIsolation(level);
+            } catch (@Nonnull SQLException exception) {
+                Log.warning("Could not set the transaction isolation level.", exception);
+            }
+        }
+    }
     
     /**
-     * Begins a new transaction.
+     * Sets the read-only mode of the given pooled connection to the one {@link #isReadOnly() requested} for the current transaction.
+     * The read-only mode is only a hint for the driver, which can use it to optimize the transaction.
      */
     @Impure
-    @NonCommitting
-    protected void begin() throws DatabaseException {
-        checkConnection();
-        transaction.set(Boolean.TRUE);
+    private void applyReadOnly(@Nonnull PooledConnection pooledConnection) {
+        final boolean readOnly = isReadOnly();
+        if (pooledConnection.isReadOnly() != readOnly) {
+            try {
+                pooledConnection.setReadOnly(readOnly);
+            } catch (@Nonnull SQLException exception) {
+                Log.warning("Could not set the read-only mode of the connection.", exception);
+            }
+        }
+    }
+    
+    /**
+     * Removes the connection of the current transaction from the transaction context of the current thread.
+     */
+    @Impure
+    private void detach() {
+        final @Nullable JDBCTransactionContext context = (JDBCTransactionContext) getBoundContext();
+        if (context != null) {
+            context.setConnection(null);
+            context.setWriting(false);
+        }
+    }
+    
+    /**
+     * Ends the current transaction by removing its connection from the transaction context and returning it to the pool.
+     */
+    @Impure
+    private void end(@Nonnull PooledConnection pooledConnection, boolean broken) {
+        detach();
+        pooledConnection.getPool().checkIn(pooledConnection, broken);
+    }
+    
+    /**
+     * Commits the current transaction on the writer connection together with the concurrent transactions of the group commit.
+     * The runnables after commit are only run once the shared physical commit succeeded.
+     */
+    @Impure
+    @Committing
+    private void commitGroup(@Nonnull GroupCommitCoordinator coordinator) throws DatabaseException {
+        detach();
+        try {
+            coordinator.commit();
+            StatementMetrics.recordCommit();
+            runRunnablesAfterCommit();
+            Log.debugging("Committed the current transaction.");
+        } catch (@Nonnull SQLException exception) {
+            StatementMetrics.recordRollback();
+            runRunnablesAfterRollback();
+            throw DatabaseExceptionBuilder.withCause(exception).build();
+        }
     }
     
     @Impure
     @Override
     @Committing
     protected void commitTransaction() throws DatabaseException {
+        final @Nullable PooledConnection pooledConnection = getActiveConnection();
+        if (pooledConnection == null) {
+            runRunnablesAfterCommit();
+            return;
+        }
+        if (isGroupCommitted(pooledConnection)) {
+            commitGroup(coordinator);
+            return;
+        }
         try {
-            getConnection().commit();
-            transaction.set(Boolean.FALSE);
+            pooledConnection.getConnection().commit();
+            end(pooledConnection, false);
+            StatementMetrics.recordCommit();
             runRunnablesAfterCommit();
             Log.debugging("Committed the current transaction.");
         } catch (@Nonnull SQLException exception) {
+            boolean broken = isConnectionFailure(exception);
+            try {
+                pooledConnection.getConnection().rollback();
+            } catch (@Nonnull SQLException rollbackException) {
+                broken = true;
+            }
+            end(pooledConnection, broken);
+            StatementMetrics.recordRollback();
             runRunnablesAfterRollback();
             throw DatabaseExceptionBuilder.withCause(exception).build();
         }
@@ -192,12 +597,25 @@ public abstract class JDBCDatabase extends Database {
     @Override
     @Committing
     protected void rollbackTransaction() {
+        final @Nullable PooledConnection pooledConnection = getActiveConnection();
         try {
-            getConnection().rollback();
-            transaction.set(Boolean.FALSE);
-            Log.debugging("Rolled back the current transaction.");
-        } catch (@Nonnull SQLException | DatabaseException exception) {
-            Log.error("Could not roll back the transaction.", exception);
+            if (pooledConnection != null && isGroupCommitted(pooledConnection)) {
+                detach();
+                coordinator.rollback();
+                StatementMetrics.recordRollback();
+                Log.debugging("Rolled back the current transaction.");
+            } else if (pooledConnection != null) {
+                boolean broken = false;
+                try {
+                    pooledConnection.getConnection().rollback();
+                    Log.debugging("Rolled back the current transaction.");
+                } catch (@Nonnull SQLException exception) {
+                    Log.error("Could not roll back the transaction.", exception);
+                    broken = true;
+                }
+                end(pooledConnection, broken);
+                StatementMetrics.recordRollback();
+            }
         } finally {
             runRunnablesAfterRollback();
         }
@@ -206,7 +624,103 @@ public abstract class JDBCDatabase extends Database {
     @Override
     @PureWithSideEffects
     public void close() throws Exception {
-        getConnection().close();
+        final @Nullable PooledConnection pooledConnection = getActiveConnection();
+        if (pooledConnection != null && isGroupCommitted(pooledConnection)) {
+            detach();
+            coordinator.rollback();
+        } else if (pooledConnection != null) { end(pooledConnection, true); }
+        final @Nonnull ConnectionPool pool = getPool();
+        if (coordinator != null) { coordinator.close(); }
+        pool.close();
+        for (@Nonnull ConnectionPool replicaPool : replicaPools) { replicaPool.close(); }
+    }
+    
+    /* -------------------------------------------------- Slow Statements -------------------------------------------------- */
+    
+    /**
+     * Returns whether an execution that took the given number of nanoseconds exceeds the {@link #getSlowStatementThreshold() slow-statement threshold}.
+     */
+    @Pure
+    private boolean isSlow(@NonNegative long nanos) {
+        final long threshold = getSlowStatementThreshold();
+        return threshold > 0 && nanos >= TimeUnit.MILLISECONDS.toNanos(threshold);
+    }
+    
+    /**
+     * Returns the given parameter value as it is written to the slow-statement log.
+     */
+    @Pure
+    private static @Nonnull String describe(@Nullable Object value) {
+        if (value == null) { return "NULL"; }
+        if (value instanceof byte[]) { return "<" + ((byte[]) value).length + " bytes>"; }
+        if (value instanceof InputStream) { return "<stream>"; }
+        if (value instanceof String) { return "'" + value + "'"; }
+        return String.valueOf(value);
+    }
+    
+    /**
+     * Returns the query plan of the given statement with the given parameter values or null if the plan cannot be captured.
+     * The plan is explained on the connection of the current transaction within a savepoint so that a failure does not affect the transaction.
+     */
+    @Impure
+    private @Nullable String explain(@Nonnull @SQLStatement String statement, @Nonnull List<@Nullable Object> parameters) {
+        final @Nonnull SQLDialect dialect = SQLDialect.instance.get();
+        final @Nullable String explainStatement = dialect.getExplainStatement(statement);
+        final @Nullable PooledConnection pooledConnection = getActiveConnection();
+        if (explainStatement == null || pooledConnection == null) { return null; }
+        for (@Nullable Object value : parameters) {
+            if (value instanceof InputStream) { return null; }
+        }
+        final @Nonnull Connection connection = pooledConnection.getConnection();
+        try {
+            final @Nonnull Savepoint savepoint = connection.setSavepoint();
+            try (@Nonnull PreparedStatement preparedStatement = connection.prepareStatement(explainStatement)) {
+                for (int i = 0; i < parameters.size(); i++) {
+                    final @Nullable Object value = parameters.get(i);
+                    if (value == null) { preparedStatement.setNull(i + 1, Types.NULL); }
+                    else { preparedStatement.setObject(i + 1, value); }
+                }
+                try (@Nonnull ResultSet resultSet = preparedStatement.executeQuery()) {
+                    return dialect.formatPlan(resultSet);
+                }
+            } catch (@Nonnull SQLException exception) {
+                connection.rollback(savepoint);
+                throw exception;
+            } finally {
+                connection.releaseSavepoint(savepoint);
+            }
+        } catch (@Nonnull SQLException exception) {
+            Log.debugging("Could not capture the query plan of $.", statement, exception);
+            return null;
+        }
+    }
+    
+    /**
+     * Logs the given statement with the given parameter values as slow if the execution that took the given number of nanoseconds and read or wrote the given number of rows exceeds the threshold.
+     */
+    @Impure
+    private void logIfSlow(@Nonnull @SQLStatement String statement, @Nonnull List<@Nullable Object> parameters, @NonNegative long nanos, @NonNegative long rows, boolean explainable) {
+        if (!isSlow(nanos)) { return; }
+        final @Nonnull StringBuilder values = new StringBuilder();
+        if (isSlowStatementRedacted()) { values.append("<redacted>"); }
+        else {
+            for (@Nullable Object value : parameters) {
+                if (values.length() > 0) { values.append(", "); }
+                values.append(describe(value));
+            }
+        }
+        final @Nullable String plan = explainable && isSlowStatementExplained() ? explain(statement, parameters) : null;
+        final double milliseconds = nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        if (plan == null) { Log.warning("The statement $ with the values ($) took $ ms for $ rows.", statement, values, milliseconds, rows); }
+        else { Log.warning("The statement $ with the values ($) took $ ms for $ rows with the following plan:\n$", statement, values, milliseconds, rows, plan); }
+    }
+    
+    /**
+     * Returns an observer which logs the executions of the given statement that exceed the {@link #getSlowStatementThreshold() slow-statement threshold}.
+     */
+    @Pure
+    private @Nonnull ExecutionObserver getSlowStatementObserver(@Nonnull @SQLStatement String statement) {
+        return (parameters, nanos, rows) -> logIfSlow(statement, parameters, nanos, rows, true);
     }
     
     /* -------------------------------------------------- Execution -------------------------------------------------- */
@@ -217,9 +731,13 @@ public abstract class JDBCDatabase extends Database {
         final @Nonnull String statementAsString = SQLDialect.unparse(statement, unit);
         Log.debugging("Executing $", statementAsString);
         try {
+            final long start = System.nanoTime();
             getConnection().createStatement().execute(statementAsString);
+            final long nanos = System.nanoTime() - start;
+            if (StatementMetrics.enabled.get()) { StatementMetrics.of(statementAsString).recordExecution(0, nanos, 0); }
+            logIfSlow(statementAsString, Collections.emptyList(), nanos, 0, false);
         } catch (@Nonnull SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
@@ -252,34 +770,99 @@ public abstract class JDBCDatabase extends Database {
         try {
             return getConnection().prepareStatement(statement);
         } catch (@Nonnull SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
+        }
+    }
+    
+    /**
+     * Acquires a prepared statement for the given statement, which writes data if indicated, from the statement cache of the current connection.
+     * The returned statement has to be released to the cache again once it is no longer used.
+     */
+    @Impure
+    protected @Nonnull PreparedStatement acquire(@Nonnull @SQLStatement String statement, boolean writing) throws DatabaseException {
+        try {
+            return getPooledConnection(writing).getStatementCache().acquire(statement);
+        } catch (@Nonnull SQLException exception) {
+            throw handle(exception);
         }
     }
     
+    /**
+     * Returns an action which releases the given prepared statement to the statement cache of the current connection.
+     */
+    @Pure
+    private @Nonnull Runnable getReleaser(@Nonnull PreparedStatement preparedStatement) {
+        final @Nonnull PreparedStatementCache statementCache = getActiveConnection().getStatementCache();
+        return () -> statementCache.release(preparedStatement);
+    }
+    
+    @PureWithSideEffects
+    private @Nonnull SQLActionEncoder getActionEncoder(@Nonnull @SQLStatement String statementAsString) throws DatabaseException {
+        Log.debugging("Executing $", statementAsString);
+        final @Nonnull PreparedStatement preparedStatement = acquire(statementAsString, true);
+        // FIXME: The converter generator does not recognize that the sql encoder implementation already implements the methods getRepresentation(), isHashing(), isCompressing() and isEncryption().
+        final @Nonnull JDBCActionEncoder actionEncoder = JDBCActionEncoderBuilder.withPreparedStatement(preparedStatement).withRepresentation(Representation.INTERNAL).withHashing(false).withCompressing(false).withEncrypting(false).build();
+        actionEncoder.onRelease(getReleaser(preparedStatement));
+        actionEncoder.onFailure(getFailureHandler());
+        if (StatementMetrics.enabled.get()) { actionEncoder.onMeasure(StatementMetrics.of(statementAsString)); }
+        if (getSlowStatementThreshold() > 0) { actionEncoder.onExecution(getSlowStatementObserver(statementAsString)); }
+        return actionEncoder;
+    }
+    
     @PureWithSideEffects
-    private @Nonnull SQLActionEncoder getEncoderForStatement(@Nonnull SQLTableStatement tableStatement, @Nonnull Unit unit) throws DatabaseException {
-        final @Nonnull String statementAsString = SQLDialect.unparse(tableStatement, unit);
+    @Nonnull SQLQueryEncoder getQueryEncoder(@Nonnull @SQLStatement String statementAsString) throws DatabaseException {
         Log.debugging("Executing $", statementAsString);
+        final @Nonnull PreparedStatement preparedStatement = acquire(statementAsString, false);
+        final @Nonnull JDBCTransactionContext context = (JDBCTransactionContext) getContext();
+        context.openQuery();
         // FIXME: The converter generator does not recognize that the sql encoder implementation already implements the methods getRepresentation(), isHashing(), isCompressing() and isEncryption().
-        return JDBCActionEncoderBuilder.withPreparedStatement(prepare(statementAsString)).withRepresentation(Representation.INTERNAL).withHashing(false).withCompressing(false).withEncrypting(false).build();
+        final @Nonnull JDBCQueryEncoder queryEncoder = JDBCQueryEncoderBuilder.withPreparedStatement(preparedStatement).withRepresentation(Representation.INTERNAL).withHashing(false).withCompressing(false).withEncrypting(false).build();
+        final @Nonnull Runnable releaser = getReleaser(preparedStatement);
+        queryEncoder.onRelease(() -> {
+            releaser.run();
+            context.closeQuery();
+            endImplicitRead(context);
+        });
+        queryEncoder.onFailure(getFailureHandler());
+        if (StatementMetrics.enabled.get()) { queryEncoder.onMeasure(StatementMetrics.of(statementAsString)); }
+        if (getSlowStatementThreshold() > 0) { queryEncoder.onExecution(getSlowStatementObserver(statementAsString)); }
+        return queryEncoder;
     }
     
     @Override
     @PureWithSideEffects
     public @Nonnull SQLActionEncoder getEncoder(@Nonnull SQLInsertStatement insertStatement, @Nonnull Unit unit) throws DatabaseException {
-        return getEncoderForStatement(insertStatement, unit);
+        return getActionEncoder(SQLDialect.unparse(insertStatement, unit));
+    }
+    
+    @Override
+    @PureWithSideEffects
+    public @Nonnull SQLActionEncoder getEncoder(@Nonnull SQLInsertStatement insertStatement, @Nonnull @SQLStatement String insertStatementAsString, @Nonnull Unit unit) throws DatabaseException {
+        return getActionEncoder(insertStatementAsString);
     }
     
     @Override
     @PureWithSideEffects
     public @Nonnull SQLActionEncoder getEncoder(@Nonnull SQLUpdateStatement updateStatement, @Nonnull Unit unit) throws DatabaseException {
-        return getEncoderForStatement(updateStatement, unit);
+        return getActionEncoder(SQLDialect.unparse(updateStatement, unit));
+    }
+    
+    @Override
+    @PureWithSideEffects
+    public @Nonnull SQLActionEncoder getEncoder(@Nonnull SQLUpdateStatement updateStatement, @Nonnull @SQLStatement String updateStatementAsString, @Nonnull Unit unit) throws DatabaseException {
+        return getActionEncoder(updateStatementAsString);
     }
     
     @Override
     @PureWithSideEffects
     public @Nonnull SQLActionEncoder getEncoder(@Nonnull SQLDeleteStatement deleteStatement, @Nonnull Unit unit) throws DatabaseException {
-        return getEncoderForStatement(deleteStatement, unit);
+        return getActionEncoder(SQLDialect.unparse(deleteStatement, unit));
+    }
+    
+    @Override
+    @PureWithSideEffects
+    public @Nonnull SQLActionEncoder getEncoder(@Nonnull SQLDeleteStatement deleteStatement, @Nonnull @SQLStatement String deleteStatementAsString, @Nonnull Unit unit) throws DatabaseException {
+        return getActionEncoder(deleteStatementAsString);
     }
     
     @Override
@@ -287,9 +870,13 @@ public abstract class JDBCDatabase extends Database {
     public @Nonnull SQLQueryEncoder getEncoder(@Nonnull SQLSelectStatement selectStatement, @Nonnull Unit unit) throws DatabaseException {
         final @Nonnull StringBuilder sqlStringBuilder = new StringBuilder();
         selectStatement.unparse(SQLDialect.instance.get(), unit, sqlStringBuilder);
-        Log.debugging("Executing $", sqlStringBuilder.toString());
-        // FIXME: The converter generator does not recognize that the sql encoder implementation already implements the methods getRepresentation(), isHashing(), isCompressing() and isEncryption().
-        return JDBCQueryEncoderBuilder.withPreparedStatement(prepare(sqlStringBuilder.toString())).withRepresentation(Representation.INTERNAL).withHashing(false).withCompressing(false).withEncrypting(false).build();
+        return getQueryEncoder(sqlStringBuilder.toString());
+    }
+    
+    @Override
+    @PureWithSideEffects
+    public @Nonnull SQLQueryEncoder getEncoder(@Nonnull SQLSelectStatement selectStatement, @Nonnull @SQLStatement String selectStatementAsString, @Nonnull Unit unit) throws DatabaseException {
+        return getQueryEncoder(selectStatementAsString);
     }
     
     /* -------------------------------------------------- Testing -------------------------------------------------- */
@@ -298,9 +885,9 @@ public abstract class JDBCDatabase extends Database {
     @PureWithSideEffects
     public @Nonnull ResultSet executeQuery(@Nonnull @SQLStatement String query) throws DatabaseException {
         try {
-            return getConnection().createStatement().executeQuery(query);
+            return getPooledConnection(false).getConnection().createStatement().executeQuery(query);
         } catch (@Nonnull SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.jdbc;
+
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+import net.digitalid.database.interfaces.TransactionContext;
+
+/**
+ * A JDBC transaction context holds the pooled connection of its transaction while the transaction is active
+ * together with the state that determines whether an implicit transaction can be ended after its last read.
+ * 
+ * @see JDBCDatabase
+ */
+@Mutable
+class JDBCTransactionContext extends TransactionContext {
+    
+    /* -------------------------------------------------- Connection -------------------------------------------------- */
+    
+    /**
+     * Stores the pooled connection which is checked out for the transaction of this context or null if no transaction is active.
+     */
+    private @Nullable PooledConnection connection;
+    
+    /**
+     * Returns the pooled connection which is checked out for the transaction of this context or null if no transaction is active.
+     */
+    @Pure
+    @Nullable PooledConnection getConnection() {
+        return connection;
+    }
+    
+    /**
+     * Sets the pooled connection which is checked out for the transaction of this context.
+     */
+    @Impure
+    void setConnection(@Nullable PooledConnection connection) {
+        this.connection = connection;
+    }
+    
+    /* -------------------------------------------------- Writing -------------------------------------------------- */
+    
+    /**
+     * Stores whether the active transaction of this context has written data (or may have through an unprepared statement).
+     */
+    private boolean writing;
+    
+    /**
+     * Returns whether the active transaction of this context has written data (or may have through an unprepared statement).
+     */
+    @Pure
+    boolean isWriting() {
+        return writing;
+    }
+    
+    /**
+     * Sets whether the active transaction of this context has written data.
+     */
+    @Impure
+    void setWriting(boolean writing) {
+        this.writing = writing;
+    }
+    
+    /* -------------------------------------------------- Queries -------------------------------------------------- */
+    
+    /**
+     * Stores the number of queries in this context whose prepared statements have not yet been released.
+     */
+    private int openQueries;
+    
+    /**
+     * Returns the number of queries in this context whose prepared statements have not yet been released.
+     */
+    @Pure
+    @NonNegative int getOpenQueries() {
+        return openQueries;
+    }
+    
+    /**
+     * Registers a query whose prepared statement has been acquired.
+     */
+    @Impure
+    void openQuery() {
+        openQueries++;
+    }
+    
+    /**
+     * Unregisters a query whose prepared statement has been released.
+     */
+    @Impure
+    void closeQuery() {
+        openQueries--;
+    }
+    
+}
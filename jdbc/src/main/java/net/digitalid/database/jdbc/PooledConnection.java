@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A pooled connection wraps a database connection together with the cache of its prepared statements.
+ * 
+ * @see ConnectionPool
+ */
+@Mutable
+class PooledConnection {
+    
+    /* -------------------------------------------------- Pool -------------------------------------------------- */
+    
+    /**
+     * Stores the pool to which this connection belongs.
+     */
+    private final @Nonnull ConnectionPool pool;
+    
+    /**
+     * Returns the pool to which this connection belongs.
+     */
+    @Pure
+    @Nonnull ConnectionPool getPool() {
+        return pool;
+    }
+    
+    /* -------------------------------------------------- Connection -------------------------------------------------- */
+    
+    /**
+     * Stores the wrapped database connection.
+     */
+    private final @Nonnull Connection connection;
+    
+    /**
+     * Returns the wrapped database connection.
+     */
+    @Pure
+    @Nonnull Connection getConnection() {
+        return connection;
+    }
+    
+    /* -------------------------------------------------- Statement Cache -------------------------------------------------- */
+    
+    /**
+     * Stores the cache of the prepared statements of the wrapped connection.
+     */
+    private final @Nonnull PreparedStatementCache statementCache;
+    
+    /**
+     * Returns the cache of the prepared statements of the wrapped connection.
+     */
+    @Pure
+    @Nonnull PreparedStatementCache getStatementCache() {
+        return statementCache;
+    }
+    
+    /* -------------------------------------------------- Last Use -------------------------------------------------- */
+    
+    /**
+     * Stores the time in milliseconds when this connection was returned to the pool the last time.
+     */
+    private volatile long lastUse = System.currentTimeMillis();
+    
+    /**
+     * Returns the number of milliseconds since this connection was returned to the pool the last time.
+     */
+    @Pure
+    @NonNegative long getIdleTime() {
+        return Math.max(0, System.currentTimeMillis() - lastUse);
+    }
+    
+    /**
+     * Marks this connection as used now.
+     */
+    @Impure
+    void touch() {
+        this.lastUse = System.currentTimeMillis();
+    }
+    
+    /* -------------------------------------------------- Suspicion -------------------------------------------------- */
+    
+    /**
+     * Stores whether this connection has to be validated before its next use (e.g. after an error).
+     */
+    private volatile boolean suspect = false;
+    
+    /**
+     * Returns whether this connection has to be validated before its next use.
+     */
+    @Pure
+    boolean isSuspect() {
+        return suspect;
+    }
+    
+    /**
+     * Sets whether this connection has to be validated before its next use.
+     */
+    @Impure
+    void setSuspect(boolean suspect) {
+        this.suspect = suspect;
+    }
+    
+    /* -------------------------------------------------- Isolation -------------------------------------------------- */
+    
+    /**
+     * Stores the transaction isolation level of the wrapped connection, which is serializable when the connection is opened.
+     */
+    private int isolation = Connection.TRANSACTION_SERIALIZABLE;
+    
+    /**
+     * Returns the transaction isolation level of the wrapped connection.
+     */
+    @Pure
+    int getIsolation() {
+        return isolation;
+    }
+    
+    /**
+     * Sets the transaction isolation level of the wrapped connection to the given level.
+     */
+    @Impure
+    void setIsolation(int isolation) throws SQLException {
+        connection.setTransactionIsolation(isolation);
+        this.isolation = isolation;
+    }
+    
+    /* -------------------------------------------------- Read-Only -------------------------------------------------- */
+    
+    /**
+     * Stores whether the wrapped connection is in read-only mode, which it is not when the connection is opened.
+     */
+    private boolean readOnly = false;
+    
+    /**
+     * Returns whether the wrapped connection is in read-only mode.
+     */
+    @Pure
+    boolean isReadOnly() {
+        return readOnly;
+    }
+    
+    /**
+     * Sets whether the wrapped connection is in read-only mode.
+     */
+    @Impure
+    void setReadOnly(boolean readOnly) throws SQLException {
+        connection.setReadOnly(readOnly);
+        this.readOnly = readOnly;
+    }
+    
+    /* -------------------------------------------------- Constructor -------------------------------------------------- */
+    
+    /**
+     * Creates a new pooled connection of the given pool which caches at most the given number of prepared statements.
+     */
+    PooledConnection(@Nonnull ConnectionPool pool, @Nonnull Connection connection, @NonNegative int statementCacheCapacity) {
+        this.pool = pool;
+        this.connection = connection;
+        this.statementCache = new PreparedStatementCache(connection, statementCacheCapacity);
+    }
+    
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    /**
+     * Closes the cached prepared statements and the wrapped connection and logs a possible exception.
+     */
+    @Impure
+    void close() {
+        statementCache.clear();
+        try {
+            connection.close();
+        } catch (@Nonnull SQLException exception) {
+            Log.warning("Could not close a database connection.", exception);
+        }
+    }
+    
+}
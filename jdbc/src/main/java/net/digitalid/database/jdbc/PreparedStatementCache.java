@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+import net.digitalid.database.annotations.sql.SQLStatement;
+
+/**
+ * This class caches the prepared statements of a single connection in least-recently-used (LRU) order.
+ * The statements are keyed by their unparsed SQL string and are closed when they are evicted from the cache.
+ * <p>
+ * A statement is leased from the cache until it is {@link #release(PreparedStatement) released}.
+ * If the statement for a given string is still leased (e.g. because its result set is still being iterated),
+ * a transient statement is prepared instead, which is closed on its release.
+ * <p>
+ * <em>Important:</em> This class is not thread-safe, which is fine as long as a connection is only used by one thread at a time.
+ */
+@Mutable
+class PreparedStatementCache {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    /**
+     * Stores the connection on which the statements are prepared.
+     */
+    private final @Nonnull Connection connection;
+    
+    /**
+     * Stores the maximum number of cached statements.
+     */
+    private final @NonNegative int capacity;
+    
+    /**
+     * Stores the cached statements in access order so that the least recently used statement is evicted first.
+     */
+    private final @Nonnull LinkedHashMap<@Nonnull String, @Nonnull PreparedStatement> statements;
+    
+    /**
+     * Stores the values of the cached statements by identity so that a release does not have to scan the cache.
+     */
+    private final @Nonnull Set<@Nonnull PreparedStatement> cached = Collections.newSetFromMap(new IdentityHashMap<>());
+    
+    /**
+     * Stores the statements which are currently in use.
+     */
+    private final @Nonnull Set<@Nonnull PreparedStatement> leased = Collections.newSetFromMap(new IdentityHashMap<>());
+    
+    /* -------------------------------------------------- Constructor -------------------------------------------------- */
+    
+    /**
+     * Creates a new cache for the given connection which keeps at most the given number of statements.
+     */
+    PreparedStatementCache(@Nonnull Connection connection, @NonNegative int capacity) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.statements = new LinkedHashMap<@Nonnull String, @Nonnull PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.@Nonnull Entry<@Nonnull String, @Nonnull PreparedStatement> eldest) {
+                if (size() > PreparedStatementCache.this.capacity) {
+                    cached.remove(eldest.getValue());
+                    if (!leased.contains(eldest.getValue())) { close(eldest.getValue()); }
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        };
+    }
+    
+    /* -------------------------------------------------- Connection -------------------------------------------------- */
+    
+    /**
+     * Returns the connection on which the statements are prepared.
+     */
+    @Pure
+    @Nonnull Connection getConnection() {
+        return connection;
+    }
+    
+    /* -------------------------------------------------- Leasing -------------------------------------------------- */
+    
+    /**
+     * Returns a prepared statement for the given string, which has to be {@link #release(PreparedStatement) released} after its use.
+     * A cached statement is reused, otherwise a new statement is prepared on the connection.
+     */
+    @Impure
+    @Nonnull PreparedStatement acquire(@Nonnull @SQLStatement String statement) throws SQLException {
+        final @Nullable PreparedStatement cachedStatement = statements.get(statement);
+        if (cachedStatement != null) {
+            if (cachedStatement.isClosed()) {
+                statements.remove(statement);
+                cached.remove(cachedStatement);
+            } else if (!leased.contains(cachedStatement)) {
+                leased.add(cachedStatement);
+                return cachedStatement;
+            } else {
+                return connection.prepareStatement(statement);
+            }
+        }
+        final @Nonnull PreparedStatement preparedStatement = connection.prepareStatement(statement);
+        if (capacity > 0) {
+            cached.add(preparedStatement);
+            statements.put(statement, preparedStatement);
+            leased.add(preparedStatement);
+        }
+        return preparedStatement;
+    }
+    
+    /**
+     * Releases the given statement so that it can be reused or closes it if it is not (or no longer) cached.
+     * The batch and the parameters of a cached statement are cleared so that a failed use does not leak into the next one.
+     * If they cannot be cleared, the statement is removed from the cache and closed.
+     */
+    @Impure
+    void release(@Nonnull PreparedStatement statement) {
+        if (!leased.remove(statement) || !cached.contains(statement)) {
+            close(statement);
+            return;
+        }
+        try {
+            statement.clearBatch();
+            statement.clearParameters();
+        } catch (@Nonnull SQLException exception) {
+            Log.warning("Could not clear a prepared statement, which is thus closed instead of cached.", exception);
+            cached.remove(statement);
+            statements.values().remove(statement);
+            close(statement);
+        }
+    }
+    
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    /**
+     * Closes the given statement and logs a possible exception.
+     */
+    @Impure
+    private static void close(@Nonnull PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (@Nonnull SQLException exception) {
+            Log.warning("Could not close a prepared statement.", exception);
+        }
+    }
+    
+    /**
+     * Closes and removes all cached statements, which is required before the connection is closed or discarded.
+     */
+    @Impure
+    void clear() {
+        final @Nonnull Iterator<@Nonnull PreparedStatement> iterator = statements.values().iterator();
+        while (iterator.hasNext()) {
+            close(iterator.next());
+            iterator.remove();
+        }
+        cached.clear();
+        leased.clear();
+    }
+    
+}
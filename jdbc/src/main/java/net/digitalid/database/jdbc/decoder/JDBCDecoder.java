@@ -19,13 +19,18 @@ import java.io.InputStream;
 import java.math.BigInteger;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.function.LongConsumer;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.contracts.Ensure;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
 import net.digitalid.utility.validation.annotations.size.Size;
 import net.digitalid.utility.validation.annotations.type.Mutable;
 
@@ -51,6 +56,41 @@ public abstract class JDBCDecoder extends SQLDecoder {
      */
     private final @Nonnull ResultSet resultSet;
     
+    /* -------------------------------------------------- Closer -------------------------------------------------- */
+    
+    /**
+     * Stores the action which is run after the result set has been closed or null if there is no such action.
+     */
+    private @Nullable Runnable closer;
+    
+    /**
+     * Sets the action which is run after the result set has been closed (e.g. to release the prepared statement).
+     */
+    @Impure
+    public void onClose(@Nonnull Runnable closer) {
+        this.closer = closer;
+    }
+    
+    /* -------------------------------------------------- Reader -------------------------------------------------- */
+    
+    /**
+     * Stores the action which is run with the number of read rows when the result set is closed or null if there is no such action.
+     */
+    private @Nullable LongConsumer reader;
+    
+    /**
+     * Stores the number of rows that have been read from the result set.
+     */
+    private long rows;
+    
+    /**
+     * Sets the action which is run with the number of read rows when the result set is closed (e.g. to record metrics).
+     */
+    @Impure
+    public void onRead(@Nonnull LongConsumer reader) {
+        this.reader = reader;
+    }
+    
     /* -------------------------------------------------- Column Index -------------------------------------------------- */
     
     /**
@@ -75,7 +115,9 @@ public abstract class JDBCDecoder extends SQLDecoder {
     public boolean moveToNextRow() throws DatabaseException {
         try {
             this.columnIndex = 1;
-            return resultSet.next();
+            final boolean moved = resultSet.next();
+            if (moved) { rows++; }
+            return moved;
         } catch (SQLException exception) {
             throw DatabaseExceptionBuilder.withCause(exception).build();
         }
@@ -86,7 +128,9 @@ public abstract class JDBCDecoder extends SQLDecoder {
     public boolean moveToFirstRow() throws DatabaseException {
         try {
             this.columnIndex = 1;
-            return resultSet.first();
+            final boolean moved = resultSet.first();
+            if (moved) { rows++; }
+            return moved;
         } catch (SQLException exception) {
             throw DatabaseExceptionBuilder.withCause(exception).build();
         }
@@ -101,32 +145,80 @@ public abstract class JDBCDecoder extends SQLDecoder {
             resultSet.close();
         } catch (SQLException exception) {
             throw DatabaseExceptionBuilder.withCause(exception).build();
+        } finally {
+            final @Nullable LongConsumer reader = this.reader;
+            this.reader = null;
+            if (reader != null) { reader.accept(rows); }
+            final @Nullable Runnable closer = this.closer;
+            this.closer = null;
+            if (closer != null) { closer.run(); }
         }
     }
     
     /* -------------------------------------------------- Nullness -------------------------------------------------- */
     
+    /**
+     * Stores whether the last decoded column was null.
+     */
+    private boolean wasNull;
+    
+    @Pure
+    @Override
+    public boolean wasNull() {
+        return wasNull;
+    }
+    
+    /**
+     * Throws an exception if the last decoded column was null, which has to be checked with the driver only if the given primitive value is the default value of its type.
+     */
+    @Impure
+    private void checkNull(boolean defaultValue) throws SQLException, DatabaseException {
+        this.wasNull = defaultValue && resultSet.wasNull();
+        if (wasNull) { throwNullException(); }
+    }
+    
+    /**
+     * Throws an exception if the given object of the last decoded column is null.
+     */
     @Impure
+    private void checkNull(@Nullable Object object) throws DatabaseException {
+        this.wasNull = object == null;
+        if (wasNull) { throwNullException(); }
+    }
+    
+    /* -------------------------------------------------- Look-Ahead -------------------------------------------------- */
+    
+    @Pure
     @Override
-    public boolean wasNull() throws DatabaseException {
+    protected boolean areNull(@Positive int numberOfColumns) throws DatabaseException {
         try {
-            return resultSet.wasNull();
+            for (int i = 0; i < numberOfColumns; i++) {
+                if (resultSet.getObject(columnIndex + i) != null) { return false; }
+            }
+            return true;
         } catch (SQLException exception) {
             throw DatabaseExceptionBuilder.withCause(exception).build();
         }
     }
     
+    @Impure
+    @Override
+    protected void skip(@NonNegative int numberOfColumns) {
+        this.columnIndex += numberOfColumns;
+        this.wasNull = true;
+    }
+    
     /* -------------------------------------------------- Decoding -------------------------------------------------- */
     
     @Impure
     @Override
     public boolean decodeBoolean() throws DatabaseException {
         try {
-            return resultSet.getBoolean(columnIndex++);
+            final boolean value = resultSet.getBoolean(columnIndex++);
+            checkNull(!value);
+            return value;
         } catch (SQLException exception) {
             throw DatabaseExceptionBuilder.withCause(exception).build();
-        } finally {
-            if (wasNull()) { throwNullException(); }
         }
     }
     
@@ -134,11 +226,11 @@ public abstract class JDBCDecoder extends SQLDecoder {
     @Override
     public byte decodeInteger08() throws DatabaseException {
         try {
-            return resultSet.getByte(columnIndex++);
+            final byte value = resultSet.getByte(columnIndex++);
+            checkNull(value == 0);
+            return value;
         } catch (SQLException exception) {
             throw DatabaseExceptionBuilder.withCause(exception).build();
-        } finally {
-            if (wasNull()) { throwNullException(); }
         }
     }
     
@@ -146,11 +238,11 @@ public abstract class JDBCDecoder extends SQLDecoder {
     @Override
     public short decodeInteger16() throws DatabaseException {
         try {
-            return resultSet.getShort(columnIndex++);
+            final short value = resultSet.getShort(columnIndex++);
+            checkNull(value == 0);
+            return value;
         } catch (SQLException exception) {
             throw DatabaseExceptionBuilder.withCause(exception).build();
-        } finally {
-            if (wasNull()) { throwNullException(); }
         }
     }
     
@@ -158,11 +250,11 @@ public abstract class JDBCDecoder extends SQLDecoder {
     @Override
     public int decodeInteger32() throws DatabaseException {
         try {
-            return resultSet.getInt(columnIndex++);
+            final int value = resultSet.getInt(columnIndex++);
+            checkNull(value == 0);
+            return value;
         } catch (SQLException exception) {
             throw DatabaseExceptionBuilder.withCause(exception).build();
-        } finally {
-            if (wasNull()) { throwNullException(); }
         }
     }
     
@@ -170,11 +262,11 @@ public abstract class JDBCDecoder extends SQLDecoder {
     @Override
     public long decodeInteger64() throws DatabaseException {
         try {
-            return resultSet.getLong(columnIndex++);
+            final long value = resultSet.getLong(columnIndex++);
+            checkNull(value == 0);
+            return value;
         } catch (SQLException exception) {
             throw DatabaseExceptionBuilder.withCause(exception).build();
-        } finally {
-            if (wasNull()) { throwNullException(); }
         }
     }
     
@@ -182,10 +274,9 @@ public abstract class JDBCDecoder extends SQLDecoder {
     @Override
     public @Nonnull BigInteger decodeInteger() throws DatabaseException {
         try {
-            final @Nonnull byte[] bytes = resultSet.getBytes(columnIndex++);
-            if (wasNull()) { throwNullException(); }
-            final @Nonnull BigInteger bigInteger = new BigInteger(bytes);
-            return bigInteger;
+            final @Nullable byte[] bytes = resultSet.getBytes(columnIndex++);
+            checkNull(bytes);
+            return new BigInteger(bytes);
         } catch (SQLException exception) {
             throw DatabaseExceptionBuilder.withCause(exception).build();
         }
@@ -195,11 +286,11 @@ public abstract class JDBCDecoder extends SQLDecoder {
     @Override
     public float decodeDecimal32() throws DatabaseException {
         try {
-            return resultSet.getFloat(columnIndex++);
+            final float value = resultSet.getFloat(columnIndex++);
+            checkNull(value == 0);
+            return value;
         } catch (SQLException exception) {
             throw DatabaseExceptionBuilder.withCause(exception).build();
-        } finally {
-            if (wasNull()) { throwNullException(); }
         }
     }
     
@@ -207,11 +298,11 @@ public abstract class JDBCDecoder extends SQLDecoder {
     @Override
     public double decodeDecimal64() throws DatabaseException {
         try {
-            return resultSet.getDouble(columnIndex++);
+            final double value = resultSet.getDouble(columnIndex++);
+            checkNull(value == 0);
+            return value;
         } catch (SQLException exception) {
             throw DatabaseExceptionBuilder.withCause(exception).build();
-        } finally {
-            if (wasNull()) { throwNullException(); }
         }
     }
     
@@ -219,8 +310,8 @@ public abstract class JDBCDecoder extends SQLDecoder {
     @Override
     public char decodeString01() throws DatabaseException {
         try {
-            final @Nonnull String string = resultSet.getString(columnIndex++);
-            if (wasNull()) { throwNullException(); }
+            final @Nullable String string = resultSet.getString(columnIndex++);
+            checkNull(string);
             Ensure.that(string.length() == 1).orThrow("The encoded object is not a character.");
             return string.charAt(0);
         } catch (SQLException exception) {
@@ -232,8 +323,8 @@ public abstract class JDBCDecoder extends SQLDecoder {
     @Override
     public @Nonnull String decodeString64() throws DatabaseException {
         try {
-            final @Nonnull String string = resultSet.getString(columnIndex++);
-            if (wasNull()) { throwNullException(); }
+            final @Nullable String string = resultSet.getString(columnIndex++);
+            checkNull(string);
             Ensure.that(string.length() <= 64).orThrow("The encoded object is not a string with less or equal than 64 characters.");
             return string;
         } catch (SQLException exception) {
@@ -245,11 +336,11 @@ public abstract class JDBCDecoder extends SQLDecoder {
     @Override
     public @Nonnull String decodeString() throws DatabaseException {
         try {
-            return resultSet.getString(columnIndex++);
+            final @Nullable String string = resultSet.getString(columnIndex++);
+            checkNull(string);
+            return string;
         } catch (SQLException exception) {
             throw DatabaseExceptionBuilder.withCause(exception).build();
-        } finally {
-            if (wasNull()) { throwNullException(); }
         }
     }
     
@@ -257,8 +348,8 @@ public abstract class JDBCDecoder extends SQLDecoder {
     @Override
     public @Nonnull @Size(16) byte[] decodeBinary128() throws DatabaseException {
         try {
-            final @Nonnull byte[] bytes = resultSet.getBytes(columnIndex++);
-            if (wasNull()) { throwNullException(); }
+            final @Nullable byte[] bytes = resultSet.getBytes(columnIndex++);
+            checkNull(bytes);
             Ensure.that(bytes.length <= 16).orThrow("The encoded byte array is not less or equal to 16 bytes");
             return bytes;
         } catch (SQLException exception) {
@@ -270,8 +361,8 @@ public abstract class JDBCDecoder extends SQLDecoder {
     @Override
     public @Nonnull @Size(32) byte[] decodeBinary256() throws DatabaseException {
         try {
-            final @Nonnull byte[] bytes = resultSet.getBytes(columnIndex++);
-            if (wasNull()) { throwNullException(); }
+            final @Nullable byte[] bytes = resultSet.getBytes(columnIndex++);
+            checkNull(bytes);
             Ensure.that(bytes.length <= 16).orThrow("The encoded byte array is not less or equal to 16 bytes");
             return bytes;
         } catch (SQLException exception) {
@@ -283,11 +374,11 @@ public abstract class JDBCDecoder extends SQLDecoder {
     @Override
     public @Nonnull byte[] decodeBinary() throws DatabaseException {
         try {
-            return resultSet.getBytes(columnIndex++);
+            final @Nullable byte[] bytes = resultSet.getBytes(columnIndex++);
+            checkNull(bytes);
+            return bytes;
         } catch (SQLException exception) {
             throw DatabaseExceptionBuilder.withCause(exception).build();
-        } finally {
-            if (wasNull()) { throwNullException(); }
         }
     }
     
@@ -295,11 +386,11 @@ public abstract class JDBCDecoder extends SQLDecoder {
     @Override
     public @Nonnull InputStream decodeBinaryStream() throws DatabaseException {
         try {
-            return resultSet.getBinaryStream(columnIndex++);
+            final @Nullable InputStream stream = resultSet.getBinaryStream(columnIndex++);
+            checkNull(stream);
+            return stream;
         } catch (SQLException exception) {
             throw DatabaseExceptionBuilder.withCause(exception).build();
-        } finally {
-            if (wasNull()) { throwNullException(); }
         }
     }
     
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.jdbc.encoder;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+
+/**
+ * An execution observer is notified after a prepared statement of a {@link JDBCEncoder} has been executed.
+ */
+@FunctionalInterface
+public interface ExecutionObserver {
+    
+    /* -------------------------------------------------- Observation -------------------------------------------------- */
+    
+    /**
+     * Observes an execution of the prepared statement with the given parameter values (of the last row in case of a batch),
+     * which took the given number of nanoseconds and read or wrote the given number of rows.
+     */
+    @Impure
+    public void observe(@NonCaptured @Unmodified @Nonnull List<@Nullable Object> parameters, @NonNegative long nanos, @NonNegative long rows);
+    
+}
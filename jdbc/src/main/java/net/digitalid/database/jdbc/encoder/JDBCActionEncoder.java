@@ -17,15 +17,18 @@ package net.digitalid.database.jdbc.encoder;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.annotations.method.PureWithSideEffects;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
 
 import net.digitalid.database.exceptions.DatabaseException;
-import net.digitalid.database.exceptions.DatabaseExceptionBuilder;
 import net.digitalid.database.interfaces.encoder.SQLActionEncoder;
 
 /**
@@ -45,9 +48,50 @@ public class JDBCActionEncoder extends JDBCEncoderSubclass implements SQLActionE
     @PureWithSideEffects
     public void execute() throws DatabaseException {
         try {
+            final long start = System.nanoTime();
             preparedStatement.execute();
+            final long rows = Math.max(0, preparedStatement.getUpdateCount());
+            notifyObserver(recordExecution(start, rows), rows);
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
+        } finally {
+            final @Nullable Runnable releaser = takeReleaser();
+            if (releaser != null) { releaser.run(); }
+        }
+    }
+    
+    /* -------------------------------------------------- Batches -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public boolean supportsBatches() {
+        return true;
+    }
+    
+    @Impure
+    @Override
+    public void addBatch() throws DatabaseException {
+        try {
+            preparedStatement.addBatch();
+            resetParameterIndex();
+        } catch (SQLException exception) {
+            throw handle(exception);
+        }
+    }
+    
+    @Override
+    @PureWithSideEffects
+    public void executeBatch() throws DatabaseException {
+        try {
+            final long start = System.nanoTime();
+            long rows = 0;
+            for (int count : preparedStatement.executeBatch()) { rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, count); }
+            notifyObserver(recordExecution(start, rows), rows);
+        } catch (SQLException exception) {
+            throw handle(exception);
+        } finally {
+            final @Nullable Runnable releaser = takeReleaser();
+            if (releaser != null) { releaser.run(); }
         }
     }
     
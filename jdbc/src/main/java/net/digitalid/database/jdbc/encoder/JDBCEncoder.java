@@ -19,18 +19,26 @@ import java.io.InputStream;
 import java.math.BigInteger;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
 import net.digitalid.utility.validation.annotations.size.MaxSize;
 import net.digitalid.utility.validation.annotations.size.Size;
 import net.digitalid.utility.validation.annotations.type.Mutable;
 
 import net.digitalid.database.exceptions.DatabaseException;
 import net.digitalid.database.exceptions.DatabaseExceptionBuilder;
+import net.digitalid.database.interfaces.StatementMetrics;
 import net.digitalid.database.interfaces.encoder.SQLEncoderImplementation;
 
 /**
@@ -51,6 +59,14 @@ public abstract class JDBCEncoder extends SQLEncoderImplementation {
      */
     private int parameterIndex = 1;
     
+    /**
+     * Resets the parameter index so that the values of the next row can be encoded.
+     */
+    @Impure
+    protected void resetParameterIndex() {
+        this.parameterIndex = 1;
+    }
+    
     /* -------------------------------------------------- Constructor -------------------------------------------------- */
     
     /**
@@ -60,25 +76,189 @@ public abstract class JDBCEncoder extends SQLEncoderImplementation {
         this.preparedStatement = preparedStatement;
     }
     
+    /* -------------------------------------------------- Release -------------------------------------------------- */
+    
+    /**
+     * Stores the action which releases the prepared statement instead of closing it or null if the statement is to be closed.
+     */
+    private @Nullable Runnable releaser;
+    
+    /**
+     * Stores whether the prepared statement has already been released or handed over to another object.
+     */
+    private boolean released = false;
+    
+    /**
+     * Sets the action which releases the prepared statement (e.g. back to a statement cache) instead of closing it.
+     */
+    @Impure
+    public void onRelease(@Nonnull Runnable releaser) {
+        this.releaser = releaser;
+    }
+    
+    /**
+     * Returns and clears the action which releases the prepared statement or null if the statement is to be closed.
+     * Subclasses that hand the statement over to another object have to take over its release with this method.
+     */
+    @Impure
+    protected @Nullable Runnable takeReleaser() {
+        final @Nullable Runnable releaser = this.releaser;
+        if (releaser != null) { this.released = true; }
+        this.releaser = null;
+        return releaser;
+    }
+    
+    /* -------------------------------------------------- Failure -------------------------------------------------- */
+    
+    /**
+     * Stores the handler which is informed about the exceptions of the prepared statement (e.g. to mark its connection as suspect) or null if there is no such handler.
+     */
+    private @Nullable Consumer<@Nonnull SQLException> failureHandler;
+    
+    /**
+     * Sets the handler which is informed about the exceptions of the prepared statement (e.g. to mark its connection as suspect).
+     */
+    @Impure
+    public void onFailure(@Nonnull Consumer<@Nonnull SQLException> failureHandler) {
+        this.failureHandler = failureHandler;
+    }
+    
+    /**
+     * Informs the failure handler (if there is one) about the given exception.
+     * 
+     * @return the given exception wrapped in a {@link DatabaseException}.
+     */
+    @Impure
+    protected @Nonnull DatabaseException handle(@Nonnull SQLException exception) {
+        final @Nullable Consumer<@Nonnull SQLException> failureHandler = this.failureHandler;
+        if (failureHandler != null) { failureHandler.accept(exception); }
+        return DatabaseExceptionBuilder.withCause(exception).build();
+    }
+    
+    /* -------------------------------------------------- Metrics -------------------------------------------------- */
+    
+    /**
+     * Stores the metrics entry in which the execution of the prepared statement is recorded or null if it is not measured.
+     */
+    private @Nullable StatementMetrics.Entry metrics;
+    
+    /**
+     * Stores the time in nanoseconds when the binding of the values started.
+     */
+    private long bindStart;
+    
+    /**
+     * Sets the metrics entry in which the execution of the prepared statement is recorded and starts measuring the binding of the values.
+     */
+    @Impure
+    public void onMeasure(@Nonnull StatementMetrics.Entry metrics) {
+        this.metrics = metrics;
+        this.bindStart = System.nanoTime();
+    }
+    
+    /**
+     * Returns the metrics entry in which the execution of the prepared statement is recorded or null if it is not measured.
+     */
+    @Pure
+    protected @Nullable StatementMetrics.Entry getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Records the execution of the prepared statement, which started at the given time in nanoseconds and wrote the given number of rows.
+     * 
+     * @return the number of nanoseconds that the execution took.
+     */
+    @Impure
+    protected @NonNegative long recordExecution(long executeStart, @NonNegative long rowsWritten) {
+        final long executeNanos = Math.max(0, System.nanoTime() - executeStart);
+        final @Nullable StatementMetrics.Entry metrics = this.metrics;
+        if (metrics != null) { metrics.recordExecution(Math.max(0, executeStart - bindStart), executeNanos, rowsWritten); }
+        return executeNanos;
+    }
+    
+    /* -------------------------------------------------- Observer -------------------------------------------------- */
+    
+    /**
+     * Stores the observer which is notified after the prepared statement has been executed or null if there is no such observer.
+     */
+    private @Nullable ExecutionObserver observer;
+    
+    /**
+     * Stores the values of the parameters of the current row, which are only captured if there is an observer.
+     */
+    private @Nullable List<@Nullable Object> parameters;
+    
+    /**
+     * Sets the observer which is notified after the prepared statement has been executed and starts capturing the values of the parameters.
+     */
+    @Impure
+    public void onExecution(@Nonnull ExecutionObserver observer) {
+        this.observer = observer;
+        this.parameters = new ArrayList<>();
+    }
+    
+    /**
+     * Captures the given value of the next parameter if there is an observer.
+     */
+    @Impure
+    private void capture(@Nullable Object value) {
+        final @Nullable List<@Nullable Object> parameters = this.parameters;
+        if (parameters != null) {
+            if (parameterIndex == 1) { parameters.clear(); }
+            parameters.add(value);
+        }
+    }
+    
+    /**
+     * Returns the observer which is notified after the prepared statement has been executed or null if there is no such observer.
+     */
+    @Pure
+    protected @Nullable ExecutionObserver getObserver() {
+        return observer;
+    }
+    
+    /**
+     * Returns the captured values of the parameters of the current row.
+     */
+    @Pure
+    protected @Nonnull List<@Nullable Object> getParameters() {
+        final @Nullable List<@Nullable Object> parameters = this.parameters;
+        return parameters != null ? parameters : Collections.emptyList();
+    }
+    
+    /**
+     * Notifies the observer (if there is one) about an execution of the prepared statement, which took the given number of nanoseconds and wrote the given number of rows.
+     */
+    @Impure
+    protected void notifyObserver(@NonNegative long nanos, @NonNegative long rows) {
+        final @Nullable ExecutionObserver observer = this.observer;
+        if (observer != null) { observer.observe(getParameters(), nanos, rows); }
+    }
+    
     /* -------------------------------------------------- SQL Encoder -------------------------------------------------- */
     
     @Impure
     @Override
     public void encodeNull(int typeCode) throws DatabaseException {
         try {
+            capture(null);
             preparedStatement.setNull(parameterIndex++, typeCode);
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
     @Impure
     @Override
     public void close() throws DatabaseException {
+        if (released) { return; }
+        final @Nullable Runnable releaser = takeReleaser();
+        if (releaser != null) { releaser.run(); return; }
         try {
             preparedStatement.close();
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
@@ -86,9 +266,10 @@ public abstract class JDBCEncoder extends SQLEncoderImplementation {
     @Override
     public void encodeBoolean(boolean value) throws DatabaseException {
         try {
+            capture(value);
             preparedStatement.setBoolean(parameterIndex++, value);
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
@@ -96,9 +277,10 @@ public abstract class JDBCEncoder extends SQLEncoderImplementation {
     @Override
     public void encodeInteger08(byte value) throws DatabaseException {
         try {
+            capture(value);
             preparedStatement.setByte(parameterIndex++, value);
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
@@ -106,9 +288,10 @@ public abstract class JDBCEncoder extends SQLEncoderImplementation {
     @Override
     public void encodeInteger16(short value) throws DatabaseException {
         try {
+            capture(value);
             preparedStatement.setShort(parameterIndex++, value);
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
@@ -116,9 +299,10 @@ public abstract class JDBCEncoder extends SQLEncoderImplementation {
     @Override
     public void encodeInteger32(int value) throws DatabaseException {
         try {
+            capture(value);
             preparedStatement.setInt(parameterIndex++, value);
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
@@ -126,9 +310,10 @@ public abstract class JDBCEncoder extends SQLEncoderImplementation {
     @Override
     public void encodeInteger64(long value) throws DatabaseException {
         try {
+            capture(value);
             preparedStatement.setLong(parameterIndex++, value);
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
@@ -136,9 +321,10 @@ public abstract class JDBCEncoder extends SQLEncoderImplementation {
     @Override
     public void encodeInteger(@Nonnull BigInteger value) throws DatabaseException {
         try {
+            capture(value);
             preparedStatement.setBytes(parameterIndex++, value.toByteArray());
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
@@ -146,9 +332,10 @@ public abstract class JDBCEncoder extends SQLEncoderImplementation {
     @Override
     public void encodeDecimal32(float value) throws DatabaseException {
         try {
+            capture(value);
             preparedStatement.setFloat(parameterIndex++, value);
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
@@ -156,9 +343,10 @@ public abstract class JDBCEncoder extends SQLEncoderImplementation {
     @Override
     public void encodeDecimal64(double value) throws DatabaseException {
         try {
+            capture(value);
             preparedStatement.setDouble(parameterIndex++, value);
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
@@ -166,9 +354,10 @@ public abstract class JDBCEncoder extends SQLEncoderImplementation {
     @Override
     public void encodeString01(char value) throws DatabaseException {
         try {
+            capture(String.valueOf(value));
             preparedStatement.setString(parameterIndex++, String.valueOf(value));
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
@@ -176,9 +365,10 @@ public abstract class JDBCEncoder extends SQLEncoderImplementation {
     @Override
     public void encodeString64(@Nonnull @MaxSize(64) String value) throws DatabaseException {
         try {
+            capture(value);
             preparedStatement.setString(parameterIndex++, value);
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
@@ -186,9 +376,10 @@ public abstract class JDBCEncoder extends SQLEncoderImplementation {
     @Override
     public void encodeString(@Nonnull String value) throws DatabaseException {
         try {
+            capture(value);
             preparedStatement.setString(parameterIndex++, value);
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
@@ -196,9 +387,10 @@ public abstract class JDBCEncoder extends SQLEncoderImplementation {
     @Override
     public void encodeBinary128(@Nonnull @Size(16) byte[] bytes) throws DatabaseException {
         try {
+            capture(bytes);
             preparedStatement.setBytes(parameterIndex++, bytes);
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
@@ -206,9 +398,10 @@ public abstract class JDBCEncoder extends SQLEncoderImplementation {
     @Override
     public void encodeBinary256(@Nonnull @Size(32) byte[] bytes) throws DatabaseException {
         try {
+            capture(bytes);
             preparedStatement.setBytes(parameterIndex++, bytes);
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
@@ -216,9 +409,10 @@ public abstract class JDBCEncoder extends SQLEncoderImplementation {
     @Override
     public void encodeBinary(@Nonnull byte[] bytes) throws DatabaseException {
         try {
+            capture(bytes);
             preparedStatement.setBytes(parameterIndex++, bytes);
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
@@ -226,9 +420,10 @@ public abstract class JDBCEncoder extends SQLEncoderImplementation {
     @Override
     public void encodeBinaryStream(@Nonnull InputStream stream, int length) throws DatabaseException {
         try {
+            capture(stream);
             preparedStatement.setBinaryStream(parameterIndex++, stream, length);
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            throw handle(exception);
         }
     }
     
@@ -18,17 +18,23 @@ package net.digitalid.database.jdbc.encoder;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import net.digitalid.utility.annotations.method.Impure;
 import net.digitalid.utility.annotations.method.PureWithSideEffects;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
 
 import net.digitalid.database.exceptions.DatabaseException;
-import net.digitalid.database.exceptions.DatabaseExceptionBuilder;
 import net.digitalid.database.interfaces.SQLDecoder;
+import net.digitalid.database.interfaces.StatementMetrics;
 import net.digitalid.database.interfaces.encoder.SQLQueryEncoder;
+import net.digitalid.database.jdbc.decoder.JDBCDecoder;
 import net.digitalid.database.jdbc.decoder.JDBCDecoderBuilder;
 
 /**
@@ -49,10 +55,38 @@ public class JDBCQueryEncoder extends JDBCEncoderSubclass implements SQLQueryEnc
     @PureWithSideEffects
     public @Nonnull SQLDecoder execute() throws DatabaseException {
         try {
+            final long start = System.nanoTime();
             final @Nonnull ResultSet resultSet = preparedStatement.executeQuery();
-            return JDBCDecoderBuilder.withResultSet(resultSet).build();
+            final @Nonnull JDBCDecoder decoder = JDBCDecoderBuilder.withResultSet(resultSet).build();
+            final @Nullable StatementMetrics.Entry metrics = getMetrics();
+            final @Nullable ExecutionObserver observer = getObserver();
+            if (metrics != null || observer != null) {
+                final @Nonnull List<@Nullable Object> parameters = new ArrayList<>(getParameters());
+                // The latency of a query includes fetching its rows, which is why it is only recorded when the decoder is closed.
+                decoder.onRead(rows -> {
+                    final long nanos = recordExecution(start, 0);
+                    if (metrics != null) { metrics.recordRowsRead(rows); }
+                    if (observer != null) { observer.observe(parameters, nanos, rows); }
+                });
+            }
+            final @Nullable Runnable releaser = takeReleaser();
+            if (releaser != null) { decoder.onClose(releaser); }
+            return decoder;
         } catch (SQLException exception) {
-            throw DatabaseExceptionBuilder.withCause(exception).build();
+            close();
+            throw handle(exception);
+        }
+    }
+    
+    /* -------------------------------------------------- Fetch Size -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public void setFetchSize(@NonNegative int fetchSize) throws DatabaseException {
+        try {
+            preparedStatement.setFetchSize(fetchSize);
+        } catch (SQLException exception) {
+            throw handle(exception);
         }
     }
     
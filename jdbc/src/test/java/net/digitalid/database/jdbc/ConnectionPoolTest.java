@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.jdbc;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.testing.UtilityTest;
+
+import org.h2.Driver;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConnectionPoolTest extends UtilityTest {
+    
+    private static final @Nonnull String URL = "jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1";
+    
+    private JDBCDatabase database;
+    
+    private ConnectionPool pool;
+    
+    @Before
+    public void createPool() {
+        database = JDBCDatabaseBuilder.withDriver(new Driver()).withURL(URL).withUser("sa").withPassword("sa").build();
+        pool = new ConnectionPool(database, URL, 0, 2, 60_000, 100);
+    }
+    
+    @After
+    public void closePool() {
+        pool.close();
+    }
+    
+    @Test
+    public void testCheckOut() throws SQLException {
+        final @Nonnull PooledConnection pooledConnection = pool.checkOut();
+        assertThat(pooledConnection.getConnection().getAutoCommit()).as("whether the connection commits automatically").isFalse();
+        pool.checkIn(pooledConnection, false);
+        final @Nonnull PooledConnection reusedConnection = pool.checkOut();
+        assertThat(reusedConnection).as("the connection checked out again").isSameAs(pooledConnection);
+        assertThat(pool.getSize()).as("the size of the pool").isEqualTo(1);
+        pool.checkIn(reusedConnection, false);
+    }
+    
+    @Test
+    public void testAcquisitionTimeout() throws SQLException {
+        final @Nonnull PooledConnection first = pool.checkOut();
+        final @Nonnull PooledConnection second = pool.checkOut();
+        try {
+            pool.checkOut();
+            Assert.fail("A connection could be checked out although all connections are in use.");
+        } catch (@Nonnull SQLTransientConnectionException exception) {
+            assertThat(JDBCDatabase.isConnectionFailure(exception)).as("whether the timeout is a connection failure").isTrue();
+        } finally {
+            pool.checkIn(first, false);
+            pool.checkIn(second, false);
+        }
+        assertThat(pool.getIdleSize()).as("the number of idle connections").isEqualTo(2);
+    }
+    
+    @Test
+    public void testValidation() throws SQLException {
+        final @Nonnull PooledConnection validConnection = pool.checkOut();
+        assertThat(database.needsValidation(validConnection)).as("whether a fresh connection needs to be validated").isFalse();
+        validConnection.setSuspect(true);
+        assertThat(database.needsValidation(validConnection)).as("whether a suspect connection needs to be validated").isTrue();
+        assertThat(database.isValid(validConnection)).as("whether the open connection is valid").isTrue();
+        assertThat(validConnection.isSuspect()).as("whether the validated connection is still suspect").isFalse();
+        pool.checkIn(validConnection, false);
+        
+        final @Nonnull PooledConnection brokenConnection = pool.checkOut();
+        brokenConnection.getConnection().close();
+        assertThat(database.isValid(brokenConnection)).as("whether the closed connection is valid").isFalse();
+        pool.checkIn(brokenConnection, true);
+        assertThat(pool.getSize()).as("the size of the pool after discarding the broken connection").isEqualTo(0);
+        assertThat(database.getNumberOfValidations()).as("the number of validations").isEqualTo(2);
+    }
+    
+}
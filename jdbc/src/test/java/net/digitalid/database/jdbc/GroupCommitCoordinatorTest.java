@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.jdbc;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.testing.UtilityTest;
+
+import org.h2.Driver;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class GroupCommitCoordinatorTest extends UtilityTest {
+    
+    private static final @Nonnull String URL = "jdbc:h2:mem:groupcommit;DB_CLOSE_DELAY=-1";
+    
+    private static JDBCDatabase database;
+    
+    private static ConnectionPool pool;
+    
+    @BeforeClass
+    public static void createTable() throws SQLException {
+        database = JDBCDatabaseBuilder.withDriver(new Driver()).withURL(URL).withUser("sa").withPassword("sa").build();
+        pool = new ConnectionPool(database, URL, 0, 4, 60_000, 10_000);
+        final @Nonnull PooledConnection pooledConnection = pool.checkOut();
+        try (@Nonnull Statement statement = pooledConnection.getConnection().createStatement()) {
+            statement.executeUpdate("CREATE TABLE entries (thread INT NOT NULL)");
+            statement.executeUpdate("CREATE TABLE failures (thread INT NOT NULL)");
+            pooledConnection.getConnection().commit();
+        } finally {
+            pool.checkIn(pooledConnection, false);
+        }
+    }
+    
+    @AfterClass
+    public static void closePool() {
+        pool.close();
+    }
+    
+    private static @Nonnull List<@Nonnull Integer> readThreads(@Nonnull String table) throws SQLException {
+        final @Nonnull List<@Nonnull Integer> threads = new ArrayList<>();
+        final @Nonnull PooledConnection pooledConnection = pool.checkOut();
+        try (@Nonnull Statement statement = pooledConnection.getConnection().createStatement(); @Nonnull ResultSet resultSet = statement.executeQuery("SELECT thread FROM " + table + " ORDER BY thread")) {
+            while (resultSet.next()) { threads.add(resultSet.getInt(1)); }
+            pooledConnection.getConnection().commit();
+        } finally {
+            pool.checkIn(pooledConnection, false);
+        }
+        return threads;
+    }
+    
+    @Test
+    public void testConcurrentCommits() throws Exception {
+        final int numberOfThreads = 8;
+        final @Nonnull GroupCommitCoordinator coordinator = new GroupCommitCoordinator(database, pool, 20_000, 10_000);
+        final @Nonnull ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        final @Nonnull CountDownLatch start = new CountDownLatch(1);
+        try {
+            final @Nonnull List<@Nonnull Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < numberOfThreads; i++) {
+                final int thread = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    final @Nonnull PooledConnection pooledConnection = coordinator.begin(Connection.TRANSACTION_SERIALIZABLE);
+                    try (@Nonnull Statement statement = pooledConnection.getConnection().createStatement()) {
+                        statement.executeUpdate("INSERT INTO entries (thread) VALUES (" + thread + ")");
+                    } catch (@Nonnull SQLException exception) {
+                        coordinator.rollback();
+                        throw exception;
+                    }
+                    // The first thread rolls back to its savepoint, which must not discard the changes of the other threads in the same batch.
+                    if (thread == 0) { coordinator.rollback(); }
+                    else { coordinator.commit(); }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (@Nonnull Future<Void> future : futures) { future.get(); }
+        } finally {
+            executor.shutdown();
+            coordinator.close();
+        }
+        
+        assertThat(readThreads("entries")).as("the threads whose rows were committed").containsExactly(1, 2, 3, 4, 5, 6, 7);
+        assertThat(coordinator.getNumberOfCommits()).as("the number of committed transactions").isEqualTo(numberOfThreads - 1);
+        assertThat(coordinator.getNumberOfBatches()).as("the number of physical commits").isBetween(1l, (long) numberOfThreads - 1);
+    }
+    
+    @Test
+    public void testFlushTimeout() throws Exception {
+        final @Nonnull GroupCommitCoordinator coordinator = new GroupCommitCoordinator(database, pool, 200_000, 100);
+        final @Nonnull ExecutorService executor = Executors.newSingleThreadExecutor();
+        final @Nonnull CountDownLatch begun = new CountDownLatch(1);
+        try {
+            final @Nonnull Future<Void> future = executor.submit(() -> {
+                final @Nonnull PooledConnection pooledConnection = coordinator.begin(Connection.TRANSACTION_SERIALIZABLE);
+                try (@Nonnull Statement statement = pooledConnection.getConnection().createStatement()) {
+                    statement.executeUpdate("INSERT INTO failures (thread) VALUES (1)");
+                } finally {
+                    begun.countDown();
+                }
+                coordinator.commit();
+                return null;
+            });
+            begun.await();
+            // The second transaction holds the writer longer than the leader of the first batch waits for it in order to commit the batch.
+            final @Nonnull PooledConnection pooledConnection = coordinator.begin(Connection.TRANSACTION_SERIALIZABLE);
+            Thread.sleep(500);
+            try (@Nonnull Statement statement = pooledConnection.getConnection().createStatement()) {
+                statement.executeUpdate("INSERT INTO failures (thread) VALUES (2)");
+            }
+            try {
+                coordinator.commit();
+                Assert.fail("The transaction could be committed although the batch before it failed.");
+            } catch (@Nonnull SQLException exception) {
+                // The changes of the second transaction are rolled back together with the failed batch.
+            }
+            try {
+                future.get();
+                Assert.fail("The batch could be committed although its leader could not acquire the writer.");
+            } catch (@Nonnull ExecutionException exception) {
+                assertThat(exception.getCause()).as("the cause of the failed commit").isInstanceOf(SQLException.class);
+            }
+        } finally {
+            executor.shutdown();
+            coordinator.close();
+        }
+        
+        assertThat(readThreads("failures")).as("the threads whose rows were committed").isEmpty();
+        assertThat(coordinator.getNumberOfBatches()).as("the number of physical commits").isEqualTo(0l);
+    }
+    
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.testing.UtilityTest;
+
+import net.digitalid.database.interfaces.SQLDecoder;
+
+import org.h2.Driver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JDBCDatabaseTest extends UtilityTest {
+    
+    private static final @Nonnull String URL = "jdbc:h2:mem:database;DB_CLOSE_DELAY=-1";
+    
+    private static final int MAXIMUM_POOL_SIZE = 2;
+    
+    private JDBCDatabase database;
+    
+    @Before
+    public void createDatabase() {
+        database = JDBCDatabaseBuilder.withDriver(new Driver()).withURL(URL).withUser("sa").withPassword("sa").withMaximumPoolSize(MAXIMUM_POOL_SIZE).withAcquisitionTimeout(1_000L).build();
+    }
+    
+    @After
+    public void closeDatabase() throws Exception {
+        database.close();
+    }
+    
+    @Test
+    public void testImplicitReadsReleaseConnections() throws Exception {
+        final int numberOfThreads = 4 * MAXIMUM_POOL_SIZE;
+        final @Nonnull ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        final @Nonnull CountDownLatch start = new CountDownLatch(1);
+        try {
+            final @Nonnull List<@Nonnull Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < numberOfThreads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int rows = 0;
+                    // The threads never commit, which means that their connections have to be returned to the pool when the decoders are closed.
+                    for (int j = 0; j < 10; j++) {
+                        final @Nonnull SQLDecoder decoder = database.getQueryEncoder("SELECT 1").execute();
+                        try {
+                            while (decoder.moveToNextRow()) { rows++; }
+                        } finally {
+                            decoder.close();
+                        }
+                    }
+                    return rows;
+                }));
+            }
+            start.countDown();
+            for (@Nonnull Future<Integer> future : futures) {
+                assertThat(future.get(30, TimeUnit.SECONDS)).as("the number of rows read by a thread").isEqualTo(10);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+}
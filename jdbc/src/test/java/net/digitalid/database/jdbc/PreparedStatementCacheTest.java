@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.jdbc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.testing.UtilityTest;
+
+import org.h2.Driver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PreparedStatementCacheTest extends UtilityTest {
+    
+    private Connection connection;
+    
+    @Before
+    public void openConnection() throws SQLException {
+        new Driver();
+        connection = DriverManager.getConnection("jdbc:h2:mem:", "sa", "sa");
+    }
+    
+    @After
+    public void closeConnection() throws SQLException {
+        connection.close();
+    }
+    
+    @Test
+    public void testCacheHit() throws SQLException {
+        final @Nonnull PreparedStatementCache cache = new PreparedStatementCache(connection, 2);
+        final @Nonnull PreparedStatement statement = cache.acquire("SELECT 1");
+        cache.release(statement);
+        assertThat(cache.acquire("SELECT 1")).as("the statement acquired again").isSameAs(statement);
+        cache.release(statement);
+        assertThat(statement.isClosed()).as("whether the released statement is closed").isFalse();
+    }
+    
+    @Test
+    public void testLeasedStatement() throws SQLException {
+        final @Nonnull PreparedStatementCache cache = new PreparedStatementCache(connection, 2);
+        final @Nonnull PreparedStatement leasedStatement = cache.acquire("SELECT 1");
+        final @Nonnull PreparedStatement transientStatement = cache.acquire("SELECT 1");
+        assertThat(transientStatement).as("the statement acquired while the cached one is leased").isNotSameAs(leasedStatement);
+        cache.release(transientStatement);
+        assertThat(transientStatement.isClosed()).as("whether the released transient statement is closed").isTrue();
+        cache.release(leasedStatement);
+        assertThat(leasedStatement.isClosed()).as("whether the released cached statement is closed").isFalse();
+    }
+    
+    @Test
+    public void testEviction() throws SQLException {
+        final @Nonnull PreparedStatementCache cache = new PreparedStatementCache(connection, 2);
+        final @Nonnull PreparedStatement first = cache.acquire("SELECT 1");
+        cache.release(first);
+        final @Nonnull PreparedStatement second = cache.acquire("SELECT 2");
+        cache.release(second);
+        final @Nonnull PreparedStatement third = cache.acquire("SELECT 3");
+        cache.release(third);
+        assertThat(first.isClosed()).as("whether the least recently used statement is closed").isTrue();
+        assertThat(second.isClosed()).as("whether the second statement is closed").isFalse();
+        assertThat(third.isClosed()).as("whether the third statement is closed").isFalse();
+        assertThat(cache.acquire("SELECT 1")).as("the statement acquired after its eviction").isNotSameAs(first);
+    }
+    
+    @Test
+    public void testEvictionOfLeasedStatement() throws SQLException {
+        final @Nonnull PreparedStatementCache cache = new PreparedStatementCache(connection, 1);
+        final @Nonnull PreparedStatement leasedStatement = cache.acquire("SELECT 1");
+        cache.release(cache.acquire("SELECT 2"));
+        assertThat(leasedStatement.isClosed()).as("whether the evicted statement is closed while it is leased").isFalse();
+        cache.release(leasedStatement);
+        assertThat(leasedStatement.isClosed()).as("whether the evicted statement is closed on its release").isTrue();
+    }
+    
+    @Test
+    public void testClearedOnRelease() throws SQLException {
+        try (@Nonnull Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE entries (value INT NOT NULL)");
+        }
+        final @Nonnull PreparedStatementCache cache = new PreparedStatementCache(connection, 2);
+        final @Nonnull PreparedStatement statement = cache.acquire("INSERT INTO entries (value) VALUES (?)");
+        statement.setInt(1, 1);
+        statement.addBatch();
+        // The statement is released without executing its batch as if the encoding of the next row failed.
+        cache.release(statement);
+        assertThat(cache.acquire("INSERT INTO entries (value) VALUES (?)")).as("the statement acquired again").isSameAs(statement);
+        assertThat(statement.executeBatch()).as("the update counts of the batch added before the release").isEmpty();
+        cache.release(statement);
+    }
+    
+}
@@ -28,12 +28,13 @@ import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
 import net.digitalid.utility.initialization.annotations.Initialize;
 import net.digitalid.utility.storage.interfaces.Unit;
 import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
+import net.digitalid.utility.validation.annotations.math.Positive;
 import net.digitalid.utility.validation.annotations.size.NonEmpty;
 import net.digitalid.utility.validation.annotations.type.Stateless;
 
 import net.digitalid.database.annotations.sql.SQLFraction;
 import net.digitalid.database.dialect.SQLDialect;
-import net.digitalid.database.dialect.SQLNode;
+import net.digitalid.database.dialect.SQLDispatchTable;
 import net.digitalid.database.dialect.expression.number.SQLCurrentTime;
 import net.digitalid.database.dialect.identifier.SQLIdentifier;
 import net.digitalid.database.dialect.statement.insert.SQLConflictClause;
@@ -81,14 +82,24 @@ public abstract class MySQLDialect extends SQLDialect {
         else { string.append("INSERT"); }
     }
     
+    private static final @Nonnull SQLDispatchTable<MySQLDialect> dispatchTable = SQLDispatchTable.<MySQLDialect>create()
+            .with(SQLType.class, MySQLDialect::unparse)
+            .with(SQLIdentifier.class, MySQLDialect::unparse)
+            .with(SQLConflictClause.class, MySQLDialect::unparse)
+            .with(SQLCurrentTime.class, (dialect, currentTime, unit, string) -> string.append("UNIX_TIMESTAMP(SYSDATE()) * 1000 + MICROSECOND(SYSDATE(3)) DIV 1000")); // TODO: Is it important that it is the UNIX timestamp? Maybe we could just define another column type.
+    
+    @Pure
+    @Override
+    protected @Nonnull SQLDispatchTable<MySQLDialect> getDispatchTable() {
+        return dispatchTable;
+    }
+    
+    /* -------------------------------------------------- Limits -------------------------------------------------- */
+    
     @Pure
     @Override
-    public void unparse(@Nonnull SQLNode node, @Nonnull Unit unit, @NonCaptured @Modified @Nonnull @SQLFraction StringBuilder string) {
-        if (node instanceof SQLType) { unparse((SQLType) node, unit, string); }
-        else if (node instanceof SQLIdentifier) { unparse((SQLIdentifier) node, unit, string); }
-        else if (node instanceof SQLConflictClause) { unparse((SQLConflictClause) node, unit, string); }
-        else if (node instanceof SQLCurrentTime) { string.append("UNIX_TIMESTAMP(SYSDATE()) * 1000 + MICROSECOND(SYSDATE(3)) DIV 1000"); } // TODO: Is it important that it is the UNIX timestamp? Maybe we could just define another column type.
-        else { super.unparse(node, unit, string); }
+    public @Positive int getMaximumNumberOfParameters() {
+        return 65_535;
     }
     
     /* -------------------------------------------------- TODO -------------------------------------------------- */
@@ -39,7 +39,7 @@ import net.digitalid.utility.validation.annotations.type.Stateless;
 import net.digitalid.database.annotations.sql.SQLFraction;
 import net.digitalid.database.annotations.transaction.NonCommitting;
 import net.digitalid.database.dialect.SQLDialect;
-import net.digitalid.database.dialect.SQLNode;
+import net.digitalid.database.dialect.SQLDispatchTable;
 import net.digitalid.database.dialect.expression.number.SQLCurrentTime;
 import net.digitalid.database.dialect.statement.table.create.SQLType;
 
@@ -84,12 +84,22 @@ public abstract class PostgresDialect extends SQLDialect {
         
     }
     
+    private static final @Nonnull SQLDispatchTable<PostgresDialect> dispatchTable = SQLDispatchTable.<PostgresDialect>create()
+            .with(SQLType.class, PostgresDialect::unparse)
+            .with(SQLCurrentTime.class, (dialect, currentTime, unit, string) -> string.append("ROUND(EXTRACT(EPOCH FROM CLOCK_TIMESTAMP()) * 1000)")); // TODO: Is it important that it is the UNIX timestamp? Maybe we could just define another column type.
+    
+    @Pure
+    @Override
+    protected @Nonnull SQLDispatchTable<PostgresDialect> getDispatchTable() {
+        return dispatchTable;
+    }
+    
+    /* -------------------------------------------------- Limits -------------------------------------------------- */
+    
     @Pure
     @Override
-    public void unparse(@Nonnull SQLNode node, @Nonnull Unit unit, @NonCaptured @Modified @Nonnull @SQLFraction StringBuilder string) {
-        if (node instanceof SQLType) { unparse((SQLType) node, unit, string); }
-        else if (node instanceof SQLCurrentTime) { string.append("ROUND(EXTRACT(EPOCH FROM CLOCK_TIMESTAMP()) * 1000)"); } // TODO: Is it important that it is the UNIX timestamp? Maybe we could just define another column type.
-        else { super.unparse(node, unit, string); }
+    public @Positive int getMaximumNumberOfParameters() {
+        return 32_767;
     }
     
     /* -------------------------------------------------- TODO -------------------------------------------------- */
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.property;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.type.ThreadSafe;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+/**
+ * This class bounds the number and the weight of the loaded persistent properties by unloading the least recently used ones.
+ * The weight of a value property is one, while the weight of a set or map property is one plus the number of its entries.
+ * The cache is disabled by default, in which case the loaded properties are neither tracked nor unloaded.
+ * <p>
+ * Instead of reordering the properties on every read, which would require a lock on the read path,
+ * the cache uses the clock algorithm: a read only sets the access flag of the property, and an accessed property
+ * gets a second chance during eviction by clearing its flag and moving it to the end of the queue.
+ * An evicted property is simply flipped back to unloaded and is loaded again from the database on its next read.
+ * <p>
+ * The properties are tracked in a concurrent queue and counted with atomic variables so that loading a property does not contend on a global lock.
+ * Only one thread evicts at a time, and other threads that exceed the bounds in the meantime leave the eviction to it.
+ */
+@Utility
+@ThreadSafe
+public abstract class PersistentPropertyCache {
+    
+    /* -------------------------------------------------- Configuration -------------------------------------------------- */
+    
+    /**
+     * Stores whether the loaded properties are tracked and unloaded when the cache exceeds its bounds.
+     */
+    public static final @Nonnull Configuration<Boolean> enabled = Configuration.with(Boolean.FALSE);
+    
+    /**
+     * Stores the maximum number of loaded properties.
+     */
+    public static final @Nonnull Configuration<Integer> maximumSize = Configuration.with(100_000);
+    
+    /**
+     * Stores the maximum total weight of the loaded properties.
+     */
+    public static final @Nonnull Configuration<Long> maximumWeight = Configuration.with(1_000_000l);
+    
+    /* -------------------------------------------------- Statistics -------------------------------------------------- */
+    
+    private static final @Nonnull LongAdder hits = new LongAdder();
+    
+    private static final @Nonnull LongAdder misses = new LongAdder();
+    
+    private static final @Nonnull LongAdder evictions = new LongAdder();
+    
+    /**
+     * Returns the number of reads that were served by an already loaded property.
+     */
+    @Pure
+    public static @NonNegative long getHitCount() {
+        return hits.sum();
+    }
+    
+    /**
+     * Returns the number of times that a property had to be loaded from the database.
+     */
+    @Pure
+    public static @NonNegative long getMissCount() {
+        return misses.sum();
+    }
+    
+    /**
+     * Returns the number of properties that were unloaded by the cache.
+     */
+    @Pure
+    public static @NonNegative long getEvictionCount() {
+        return evictions.sum();
+    }
+    
+    /**
+     * Records that a property had to be loaded from the database.
+     */
+    @Impure
+    public static void recordMiss() {
+        misses.increment();
+    }
+    
+    /* -------------------------------------------------- Entry -------------------------------------------------- */
+    
+    /**
+     * An entry tracks the weight and the recent accesses of a loaded property.
+     * Entries use identity equality because different property objects can be equal.
+     */
+    @Mutable
+    public static final class Entry {
+        
+        private final @Nonnull BooleanSupplier unloader;
+        
+        private volatile boolean accessed = false;
+        
+        /**
+         * Stores whether the property is loaded and counted in the size and weight of the cache (guarded by the lock of the property).
+         */
+        private volatile boolean cached = false;
+        
+        /**
+         * Stores whether the entry is in the queue of the cache, which prevents that it is queued twice.
+         */
+        private final @Nonnull AtomicBoolean queued = new AtomicBoolean();
+        
+        private long weight = 0;
+        
+        private Entry(@Nonnull BooleanSupplier unloader) {
+            this.unloader = unloader;
+        }
+        
+        /**
+         * Records a read of the loaded property, which protects it from the next eviction.
+         */
+        @Impure
+        public void access() {
+            if (!accessed) { accessed = true; }
+            hits.increment();
+        }
+        
+    }
+    
+    /**
+     * Returns a new entry for a property that is unloaded with the given unloader.
+     * The unloader returns whether the property could be unloaded and must not notify any observers.
+     * If it unloads the property, it has to {@link #remove(Entry) remove} the entry while holding the lock of the property.
+     */
+    @Pure
+    public static @Nonnull Entry withUnloader(@Nonnull BooleanSupplier unloader) {
+        return new Entry(unloader);
+    }
+    
+    /* -------------------------------------------------- Entries -------------------------------------------------- */
+    
+    /**
+     * Stores the entries of the loaded properties in the order in which they are examined for eviction.
+     * Entries of unloaded properties are only discarded when they reach the head of the queue.
+     */
+    private static final @Nonnull Queue<@Nonnull Entry> queue = new ConcurrentLinkedQueue<>();
+    
+    private static final @Nonnull AtomicInteger size = new AtomicInteger();
+    
+    private static final @Nonnull AtomicLong totalWeight = new AtomicLong();
+    
+    /**
+     * Ensures that only one thread evicts properties at a time.
+     */
+    private static final @Nonnull ReentrantLock evictionLock = new ReentrantLock();
+    
+    /**
+     * Returns the number of loaded properties.
+     */
+    @Pure
+    public static @NonNegative int getSize() {
+        return size.get();
+    }
+    
+    /**
+     * Returns the total weight of the loaded properties.
+     */
+    @Pure
+    public static @NonNegative long getWeight() {
+        return totalWeight.get();
+    }
+    
+    /**
+     * Appends the given entry to the queue unless it is already queued.
+     */
+    @Impure
+    private static void enqueue(@Nonnull Entry entry) {
+        if (entry.queued.compareAndSet(false, true)) { queue.add(entry); }
+    }
+    
+    /**
+     * Adds or updates the given entry with the given weight and evicts other properties if the cache exceeds its bounds.
+     * This method has to be called with the lock of the property of the given entry held.
+     */
+    @Impure
+    public static void update(@Nonnull Entry entry, @NonNegative long weight) {
+        if (!enabled.get()) { return; }
+        if (!entry.cached) {
+            entry.cached = true;
+            entry.weight = 0;
+            size.incrementAndGet();
+        }
+        totalWeight.addAndGet(weight - entry.weight);
+        entry.weight = weight;
+        enqueue(entry);
+        if (isExceeded()) { evict(entry); }
+    }
+    
+    /**
+     * Removes the given entry after its property has been unloaded.
+     * This method has to be called with the lock of the property of the given entry held.
+     */
+    @Impure
+    public static void remove(@Nonnull Entry entry) {
+        if (entry.cached) {
+            entry.cached = false;
+            size.decrementAndGet();
+            totalWeight.addAndGet(-entry.weight);
+        }
+    }
+    
+    /**
+     * Returns whether the cache exceeds its bounds.
+     */
+    @Pure
+    private static boolean isExceeded() {
+        return size.get() > maximumSize.get() || totalWeight.get() > maximumWeight.get();
+    }
+    
+    /**
+     * Evicts properties other than the one of the given entry until the cache no longer exceeds its bounds.
+     * Each entry is examined at most twice so that the eviction terminates even if no property can be unloaded.
+     * If another thread is already evicting properties, this method returns immediately.
+     */
+    @Impure
+    private static void evict(@Nonnull Entry excluded) {
+        if (!evictionLock.tryLock()) { return; }
+        try {
+            for (int budget = 2 * queue.size(); budget > 0 && isExceeded(); budget--) {
+                final @Nullable Entry candidate = queue.poll();
+                if (candidate == null) { break; }
+                candidate.queued.set(false);
+                if (!candidate.cached) { continue; }
+                if (candidate != excluded && !candidate.accessed && candidate.unloader.getAsBoolean()) {
+                    evictions.increment();
+                } else {
+                    candidate.accessed = false;
+                    enqueue(candidate);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+    
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.property;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.time.TimeBuilder;
+import net.digitalid.utility.time.TimeConverter;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.conversion.WhereCondition;
+import net.digitalid.database.conversion.WhereConditionBuilder;
+import net.digitalid.database.dialect.expression.bool.SQLComparisonOperator;
+
+/**
+ * This class configures how the persistent set and map properties are reloaded when they are reset.
+ */
+@Utility
+public abstract class PersistentPropertyReload {
+    
+    /* -------------------------------------------------- Configuration -------------------------------------------------- */
+    
+    /**
+     * Stores whether a reset only fetches the entries that were added since the last load instead of all entries of the subject.
+     * The number of entries of the subject is compared afterwards and all entries are reloaded only if the numbers differ (e.g. because of removed entries).
+     * Properties without observers are unloaded on a reset instead, and they are reloaded completely on their next access.
+     * <p>
+     * The set and map property tables only store the time at which their entries were added if this configuration is enabled when they are built,
+     * which is why it has to be set before the subject classes are loaded. Otherwise, the properties are always reloaded completely.
+     * <p>
+     * <em>Limitation:</em> An entry whose transaction commits more than the {@link #safetyMargin} after it was stamped is missed,
+     * and if as many entries were removed at the same time, the numbers match and the property stays stale until it is reloaded completely.
+     */
+    public static final @Nonnull Configuration<Boolean> incremental = Configuration.with(Boolean.FALSE);
+    
+    /**
+     * Stores the number of milliseconds that an incremental reload goes back before the last load.
+     * The entries are stamped when they are written but become visible only when their transaction commits,
+     * which is why this margin has to be at least the maximum duration of a write transaction.
+     * Entries that were already loaded are fetched again but do not change the property.
+     */
+    public static final @Nonnull Configuration<Long> safetyMargin = Configuration.with(60_000l);
+    
+    /* -------------------------------------------------- Where Condition -------------------------------------------------- */
+    
+    /**
+     * Returns a where condition that matches the entries which were added at or after the given time minus the {@link #safetyMargin}.
+     */
+    @Pure
+    public static @Nonnull WhereCondition<Time> getAddedSinceCondition(@Nonnull Time time) {
+        final @Nonnull Time since = TimeBuilder.withValue(Math.max(0, time.getValue() - safetyMargin.get())).build();
+        return WhereConditionBuilder.withConverter(TimeConverter.INSTANCE).withObject(since).withPrefix("time").withOperator(SQLComparisonOperator.GREATER_OR_EQUAL).build();
+    }
+    
+}
@@ -15,16 +15,27 @@
  */
 package net.digitalid.database.property;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import net.digitalid.utility.annotations.generics.Unspecifiable;
 import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
 import net.digitalid.utility.storage.Table;
 import net.digitalid.utility.storage.interfaces.Unit;
+import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
 import net.digitalid.utility.validation.annotations.size.MaxSize;
 import net.digitalid.utility.validation.annotations.string.CodeIdentifier;
 import net.digitalid.utility.validation.annotations.type.Immutable;
 
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.exceptions.DatabaseException;
 import net.digitalid.database.property.map.PersistentMapPropertyTable;
 import net.digitalid.database.property.set.PersistentSetPropertyTable;
 import net.digitalid.database.property.subject.Subject;
@@ -53,4 +64,37 @@ public interface PersistentPropertyTable<@Unspecifiable UNIT extends Unit, @Unsp
     @Override
     public @Nonnull SubjectModule<UNIT, SUBJECT> getParentModule();
     
+    /* -------------------------------------------------- Preloading -------------------------------------------------- */
+    
+    /**
+     * Returns the entries of the given subjects grouped by their subject, which are selected with a single statement per unit and batch of subjects.
+     */
+    @Pure
+    @NonCommitting
+    public default @Nonnull Map<@Nonnull SUBJECT, @Nonnull @NonNullableElements List<ENTRY>> selectEntries(@Nonnull @NonNullableElements Iterable<? extends SUBJECT> subjects) throws DatabaseException, RecoveryException {
+        final @Nonnull Map<@Nonnull UNIT, @Nonnull List<SUBJECT>> subjectsByUnit = new LinkedHashMap<>();
+        final @Nonnull Map<@Nonnull SUBJECT, @Nonnull List<ENTRY>> entriesBySubject = new LinkedHashMap<>();
+        for (@Nonnull SUBJECT subject : subjects) {
+            subjectsByUnit.computeIfAbsent(subject.getUnit(), unit -> new ArrayList<>()).add(subject);
+            entriesBySubject.put(subject, new ArrayList<>());
+        }
+        final @Nonnull Table<SUBJECT, @Nonnull UNIT> subjectTable = getParentModule().getSubjectTable();
+        for (Map.@Nonnull Entry<@Nonnull UNIT, @Nonnull List<SUBJECT>> subjectsOfUnit : subjectsByUnit.entrySet()) {
+            final @Nonnull UNIT unit = subjectsOfUnit.getKey();
+            for (@Nonnull ENTRY entry : SQL.selectAllMatching(this, unit, unit, subjectTable, subjectTable.getTypeName().toLowerCase(), subjectsOfUnit.getValue())) {
+                final @Nullable List<ENTRY> entries = entriesBySubject.get(entry.getSubject());
+                if (entries != null) { entries.add(entry); }
+            }
+        }
+        return entriesBySubject;
+    }
+    
+    /**
+     * Loads the entries of the given subjects with as few statements as possible and caches them in the properties of this table so that they need not be loaded individually.
+     * The properties of the given subjects that are already loaded are left unchanged.
+     */
+    @Pure
+    @NonCommitting
+    public void preload(@Nonnull @NonNullableElements Iterable<? extends SUBJECT> subjects) throws DatabaseException, RecoveryException;
+    
 }
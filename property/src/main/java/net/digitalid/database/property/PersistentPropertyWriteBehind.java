@@ -0,0 +1,435 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.database.property;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.type.ThreadSafe;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.storage.Table;
+import net.digitalid.utility.storage.interfaces.Unit;
+import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.annotations.transaction.Committing;
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.conversion.WhereCondition;
+import net.digitalid.database.dialect.statement.insert.SQLConflictClause;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
+
+/**
+ * This class buffers the mutations of persistent properties in memory and writes them to the database in a single batched transaction.
+ * The mutations are coalesced per entry: the last write wins for values, and a deletion cancels a pending insertion of the same entry for sets and maps.
+ * The buffer is flushed as soon as it contains {@link #maximumSize} entries or {@link #maximumDelay} milliseconds after the first buffered mutation.
+ * The observers of the properties are notified only after the flush has been committed.
+ * If the batched transaction fails, each entry is retried in its own transaction so that a failing entry does not block the others,
+ * and an entry is dropped after it failed {@link #maximumAttempts} times.
+ * <p>
+ * Inside an explicit transaction scope, the mutations are written directly so that they are rolled back together with the scope.
+ * <p>
+ * <em>Important:</em> Until the buffer is flushed, other processes and {@code reset()} on the affected properties do not see the buffered mutations.
+ */
+@Utility
+@ThreadSafe
+public abstract class PersistentPropertyWriteBehind {
+    
+    /* -------------------------------------------------- Configuration -------------------------------------------------- */
+    
+    /**
+     * Stores whether the mutations of persistent properties are buffered instead of being written and committed immediately.
+     */
+    public static final @Nonnull Configuration<Boolean> enabled = Configuration.with(Boolean.FALSE);
+    
+    /**
+     * Stores the number of coalesced entries after which the buffer is flushed.
+     */
+    public static final @Nonnull Configuration<Integer> maximumSize = Configuration.with(1_000);
+    
+    /**
+     * Stores the number of milliseconds after the first buffered mutation after which the buffer is flushed.
+     */
+    public static final @Nonnull Configuration<Long> maximumDelay = Configuration.with(100l);
+    
+    /**
+     * Stores the number of failed attempts to write an entry on its own after which its pending write is dropped.
+     */
+    public static final @Nonnull Configuration<Integer> maximumAttempts = Configuration.with(5);
+    
+    /**
+     * Returns whether the mutations of the current thread are to be buffered, which is not the case inside an explicit transaction scope
+     * because the buffered mutations could not be discarded if the scope is rolled back.
+     */
+    @Pure
+    public static boolean isApplicable() {
+        return enabled.get() && !Database.isInTransaction();
+    }
+    
+    /* -------------------------------------------------- Pending Write -------------------------------------------------- */
+    
+    /**
+     * A pending write stores the net effect of the buffered mutations on a single entry of a persistent property table.
+     */
+    @Mutable
+    private static class PendingWrite<@Unspecifiable ENTRY> {
+        
+        private final @Nonnull Table<ENTRY, ?> table;
+        
+        private final @Nonnull Unit unit;
+        
+        private @Nullable @NonNullableElements WhereCondition<?>[] deletionConditions;
+        
+        private @Nullable ENTRY insertedEntry;
+        
+        private boolean replacing;
+        
+        private int attempts;
+        
+        private PendingWrite(@Nonnull Table<ENTRY, ?> table, @Nonnull Unit unit) {
+            this.table = table;
+            this.unit = unit;
+        }
+        
+        @Pure
+        private boolean isEmpty() {
+            return deletionConditions == null && insertedEntry == null;
+        }
+        
+        @Impure
+        private void replace(@Nonnull ENTRY entry) {
+            this.insertedEntry = entry;
+            this.replacing = true;
+        }
+        
+        @Impure
+        private void insert(@Nonnull ENTRY entry) {
+            this.insertedEntry = entry;
+        }
+        
+        @Impure
+        private void delete(@Nonnull @NonNullableElements WhereCondition<?>[] whereConditions) {
+            if (insertedEntry != null) { this.insertedEntry = null; }
+            else { this.deletionConditions = whereConditions; }
+        }
+        
+        /**
+         * Applies the given pending write, which was buffered after this one, on top of this pending write.
+         */
+        @Impure
+        private void merge(@Nonnull PendingWrite<ENTRY> newerWrite) {
+            if (newerWrite.deletionConditions != null) { delete(newerWrite.deletionConditions); }
+            if (newerWrite.insertedEntry != null) {
+                this.insertedEntry = newerWrite.insertedEntry;
+                this.replacing |= newerWrite.replacing;
+            }
+        }
+        
+        @Impure
+        private @NonNegative int fail() {
+            return ++attempts;
+        }
+        
+        @Pure
+        @Override
+        public @Nonnull String toString() {
+            return (deletionConditions != null ? "deletion" : "") + (deletionConditions != null && insertedEntry != null ? " and " : "") + (insertedEntry != null ? "insertion of " + insertedEntry : "") + " in " + table.getTypeName() + " of " + unit.getName();
+        }
+        
+        /**
+         * Executes the deletion of this pending write and adds its insertion to the given insertions.
+         */
+        @Impure
+        @SuppressWarnings("unchecked")
+        private void execute(@Nonnull Map<@Nonnull List<?>, @Nonnull List<?>> insertions) throws DatabaseException {
+            if (deletionConditions != null) {
+                SQL.delete(table, unit, deletionConditions);
+            }
+            if (insertedEntry != null) {
+                final @Nonnull List<?> key = Arrays.asList(table, unit, replacing ? SQLConflictClause.REPLACE : SQLConflictClause.ABORT);
+                ((List<ENTRY>) insertions.computeIfAbsent(key, k -> new ArrayList<ENTRY>())).add(insertedEntry);
+            }
+        }
+        
+    }
+    
+    /* -------------------------------------------------- Buffer -------------------------------------------------- */
+    
+    /**
+     * Stores the pending writes in the order of their first mutation, keyed by the table and the identity of the entry in this table.
+     */
+    private static @Nonnull Map<@Nonnull List<?>, @Nonnull PendingWrite<?>> pendingWrites = new LinkedHashMap<>();
+    
+    /**
+     * Stores the notifications of the observers in the order of the buffered mutations.
+     */
+    private static @Nonnull List<@Nonnull Runnable> notifications = new ArrayList<>();
+    
+    /**
+     * Stores whether a flush has already been scheduled for the buffered mutations.
+     */
+    private static boolean scheduled = false;
+    
+    /**
+     * Stores whether an immediate flush has already been scheduled because the buffer became full.
+     */
+    private static boolean scheduledImmediately = false;
+    
+    /**
+     * Stores the object on which the access to the buffer is synchronized.
+     */
+    private static final @Nonnull Object monitor = new Object();
+    
+    /**
+     * Returns the number of entries with pending writes.
+     */
+    @Pure
+    public static @NonNegative int getNumberOfPendingWrites() {
+        synchronized (monitor) {
+            return pendingWrites.size();
+        }
+    }
+    
+    /**
+     * Buffers the given mutation and schedules a flush if necessary.
+     */
+    @Impure
+    @SuppressWarnings("unchecked")
+    private static <@Unspecifiable ENTRY> void buffer(@Nonnull Table<ENTRY, ?> table, @Nonnull Unit unit, @Nonnull List<?> identity, @Nonnull Mutation<ENTRY> mutation, @Nonnull Runnable notification) {
+        synchronized (monitor) {
+            final @Nonnull List<?> key = Arrays.asList(table, unit, identity);
+            final @Nonnull PendingWrite<ENTRY> pendingWrite = (PendingWrite<ENTRY>) pendingWrites.computeIfAbsent(key, k -> new PendingWrite<>(table, unit));
+            mutation.apply(pendingWrite);
+            if (pendingWrite.isEmpty()) { pendingWrites.remove(key); }
+            notifications.add(notification);
+            final boolean full = pendingWrites.size() >= maximumSize.get();
+            if (!scheduled) {
+                timer.schedule(new FlushTask(), full ? 0 : maximumDelay.get());
+                scheduled = true;
+                scheduledImmediately = full;
+            } else if (full && !scheduledImmediately) {
+                timer.schedule(new FlushTask(), 0);
+                scheduledImmediately = true;
+            }
+        }
+    }
+    
+    /**
+     * A mutation is applied to the pending write of an entry.
+     */
+    @FunctionalInterface
+    private static interface Mutation<@Unspecifiable ENTRY> {
+        
+        @Impure
+        public void apply(@Nonnull PendingWrite<ENTRY> pendingWrite);
+        
+    }
+    
+    /* -------------------------------------------------- Mutations -------------------------------------------------- */
+    
+    /**
+     * Buffers that the entry with the given identity is to be replaced by the given entry.
+     * The given notification is run after the replacement has been committed.
+     */
+    @Impure
+    public static <@Unspecifiable ENTRY> void replace(@Nonnull Table<ENTRY, ?> table, @Nonnull Unit unit, @Nonnull List<?> identity, @Nonnull ENTRY entry, @Nonnull Runnable notification) {
+        buffer(table, unit, identity, pendingWrite -> pendingWrite.replace(entry), notification);
+    }
+    
+    /**
+     * Buffers that the given entry with the given identity is to be inserted.
+     * The given notification is run after the insertion has been committed.
+     */
+    @Impure
+    public static <@Unspecifiable ENTRY> void insert(@Nonnull Table<ENTRY, ?> table, @Nonnull Unit unit, @Nonnull List<?> identity, @Nonnull ENTRY entry, @Nonnull Runnable notification) {
+        buffer(table, unit, identity, pendingWrite -> pendingWrite.insert(entry), notification);
+    }
+    
+    /**
+     * Buffers that the entry with the given identity, which is matched by the given where conditions, is to be deleted.
+     * The given notification is run after the deletion has been committed.
+     */
+    @Impure
+    public static <@Unspecifiable ENTRY> void delete(@Nonnull Table<ENTRY, ?> table, @Nonnull Unit unit, @Nonnull List<?> identity, @Nonnull @NonNullableElements WhereCondition<?>[] whereConditions, @Nonnull Runnable notification) {
+        buffer(table, unit, identity, pendingWrite -> pendingWrite.delete(whereConditions), notification);
+    }
+    
+    /* -------------------------------------------------- Flushing -------------------------------------------------- */
+    
+    /**
+     * Stores the timer which flushes the buffer in the background.
+     */
+    private static final @Nonnull Timer timer = new Timer("PersistentPropertyWriteBehind", true);
+    
+    /**
+     * Ensures that the buffer is flushed by only one thread at a time so that the order of the mutations is preserved.
+     */
+    private static final @Nonnull ReentrantLock flushLock = new ReentrantLock();
+    
+    /**
+     * This task flushes the buffer in the background.
+     */
+    private static class FlushTask extends TimerTask {
+        
+        @Impure
+        @Override
+        public void run() {
+            try {
+                flush();
+            } catch (@Nonnull DatabaseException | RuntimeException exception) {
+                Log.error("Could not flush the buffered mutations of persistent properties.", exception);
+            }
+        }
+        
+    }
+    
+    /**
+     * Puts the pending writes and notifications of a failed flush back in front of the mutations that were buffered in the meantime
+     * so that the buffered mutations do not get lost and the values in memory do not diverge from the values in the database.
+     * Another flush is scheduled after the maximum delay.
+     */
+    @Impure
+    @SuppressWarnings("unchecked")
+    private static void requeue(@Nonnull Map<@Nonnull List<?>, @Nonnull PendingWrite<?>> failedWrites, @Nonnull List<@Nonnull Runnable> failedNotifications) {
+        synchronized (monitor) {
+            for (@Nonnull Map.Entry<@Nonnull List<?>, @Nonnull PendingWrite<?>> entry : pendingWrites.entrySet()) {
+                final @Nullable PendingWrite<?> failedWrite = failedWrites.get(entry.getKey());
+                if (failedWrite != null) { ((PendingWrite<Object>) failedWrite).merge((PendingWrite<Object>) entry.getValue()); }
+                else { failedWrites.put(entry.getKey(), entry.getValue()); }
+            }
+            failedWrites.values().removeIf(pendingWrite -> pendingWrite.isEmpty());
+            failedNotifications.addAll(notifications);
+            PersistentPropertyWriteBehind.pendingWrites = failedWrites;
+            PersistentPropertyWriteBehind.notifications = failedNotifications;
+            if (!scheduled) {
+                timer.schedule(new FlushTask(), maximumDelay.get());
+                scheduled = true;
+                scheduledImmediately = false;
+            }
+        }
+    }
+    
+    /**
+     * Executes the given pending writes in the current transaction without committing it.
+     */
+    @Impure
+    @SuppressWarnings("unchecked")
+    private static void write(@Nonnull Iterable<@Nonnull PendingWrite<?>> pendingWrites) throws DatabaseException {
+        final @Nonnull Map<@Nonnull List<?>, @Nonnull List<?>> insertions = new LinkedHashMap<>();
+        for (@Nonnull PendingWrite<?> pendingWrite : pendingWrites) {
+            pendingWrite.execute(insertions);
+        }
+        for (@Nonnull Map.Entry<@Nonnull List<?>, @Nonnull List<?>> insertion : insertions.entrySet()) {
+            final @Nonnull List<?> key = insertion.getKey();
+            SQL.insertAll((Table<Object, ?>) key.get(0), insertion.getValue(), (Unit) key.get(1), (SQLConflictClause) key.get(2));
+        }
+    }
+    
+    /**
+     * Writes each of the given pending writes of a failed flush in its own transaction so that a failing entry does not prevent the others from being written.
+     * A pending write that fails is dropped after {@link #maximumAttempts} attempts and is put back into the buffer otherwise.
+     * If all of several pending writes fail, the failure is attributed to the database rather than to the entries and does not count as an attempt.
+     * The notifications are run once no failed pending write is put back into the buffer.
+     * 
+     * @return whether all pending writes could be written.
+     */
+    @Impure
+    @Committing
+    private static boolean isolate(@Nonnull Map<@Nonnull List<?>, @Nonnull PendingWrite<?>> pendingWrites, @Nonnull List<@Nonnull Runnable> notifications) {
+        final @Nonnull Map<@Nonnull List<?>, @Nonnull PendingWrite<?>> failedWrites = new LinkedHashMap<>();
+        for (@Nonnull Map.Entry<@Nonnull List<?>, @Nonnull PendingWrite<?>> entry : pendingWrites.entrySet()) {
+            try {
+                write(Collections.singletonList(entry.getValue()));
+                Database.commit();
+            } catch (@Nonnull DatabaseException | RuntimeException exception) {
+                Database.rollback();
+                Log.warning("Could not write the buffered $.", entry.getValue(), exception);
+                failedWrites.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (failedWrites.isEmpty()) {
+            notifications.forEach(Runnable::run);
+            return true;
+        }
+        if (failedWrites.size() < pendingWrites.size() || pendingWrites.size() == 1) {
+            final @Nonnull Iterator<@Nonnull PendingWrite<?>> iterator = failedWrites.values().iterator();
+            while (iterator.hasNext()) {
+                final @Nonnull PendingWrite<?> failedWrite = iterator.next();
+                if (failedWrite.fail() >= maximumAttempts.get()) {
+                    Log.error("Dropped the buffered $ after $ failed attempts.", failedWrite, failedWrite.attempts);
+                    iterator.remove();
+                }
+            }
+        }
+        if (failedWrites.isEmpty()) { notifications.forEach(Runnable::run); }
+        else { requeue(failedWrites, notifications); }
+        return false;
+    }
+    
+    /**
+     * Writes all buffered mutations to the database in a single transaction and notifies the observers after the commit.
+     * If the transaction fails, it is rolled back and the buffered mutations are {@link #isolate(Map, List) written one by one}.
+     * The current transaction of the calling thread is committed as well.
+     * 
+     * @throws DatabaseException if the batched transaction failed and not all buffered mutations could be written one by one.
+     */
+    @Impure
+    @Committing
+    public static void flush() throws DatabaseException {
+        flushLock.lock();
+        try {
+            final @Nonnull Map<@Nonnull List<?>, @Nonnull PendingWrite<?>> pendingWrites;
+            final @Nonnull List<@Nonnull Runnable> notifications;
+            synchronized (monitor) {
+                pendingWrites = PersistentPropertyWriteBehind.pendingWrites;
+                notifications = PersistentPropertyWriteBehind.notifications;
+                PersistentPropertyWriteBehind.pendingWrites = new LinkedHashMap<>();
+                PersistentPropertyWriteBehind.notifications = new ArrayList<>();
+                PersistentPropertyWriteBehind.scheduled = false;
+                PersistentPropertyWriteBehind.scheduledImmediately = false;
+            }
+            if (notifications.isEmpty()) { Database.commit(); return; }
+            try {
+                write(pendingWrites.values());
+                Database.instance.get().runAfterCommit(() -> notifications.forEach(Runnable::run));
+                Database.commit();
+            } catch (@Nonnull DatabaseException | RuntimeException exception) {
+                Database.rollback();
+                if (!isolate(pendingWrites, notifications)) { throw exception; }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+}
@@ -26,7 +26,7 @@ import net.digitalid.utility.annotations.parameter.Unmodified;
 import net.digitalid.utility.annotations.type.ThreadSafe;
 import net.digitalid.utility.collections.map.ReadOnlyMap;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
-import net.digitalid.utility.freezable.annotations.NonFrozen;
+import net.digitalid.utility.freezable.annotations.Frozen;
 import net.digitalid.utility.property.map.ReadOnlyMapProperty;
 import net.digitalid.utility.validation.annotations.type.ReadOnly;
 import net.digitalid.utility.validation.annotations.value.Valid;
@@ -51,7 +51,7 @@ public interface ReadOnlyPersistentMapProperty<@Unspecifiable SUBJECT extends Su
     @Pure
     @Override
     @NonCommitting
-    public @Nonnull @NonFrozen READONLY_MAP get() throws DatabaseException, RecoveryException;
+    public @Nonnull @Frozen READONLY_MAP get() throws DatabaseException, RecoveryException;
     
     @Pure
     @Override
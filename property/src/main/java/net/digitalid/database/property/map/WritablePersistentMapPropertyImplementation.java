@@ -15,6 +15,9 @@
  */
 package net.digitalid.database.property.map;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nonnull;
@@ -36,12 +39,15 @@ import net.digitalid.utility.collections.map.FreezableMap;
 import net.digitalid.utility.collections.map.ReadOnlyMap;
 import net.digitalid.utility.contracts.Validate;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.freezable.annotations.Frozen;
 import net.digitalid.utility.freezable.annotations.NonFrozen;
 import net.digitalid.utility.functional.interfaces.Predicate;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
 import net.digitalid.utility.property.map.WritableMapPropertyImplementation;
 import net.digitalid.utility.storage.interfaces.Unit;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.time.TimeBuilder;
 import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
 import net.digitalid.utility.validation.annotations.lock.LockNotHeldByCurrentThread;
 import net.digitalid.utility.validation.annotations.value.Valid;
@@ -53,6 +59,9 @@ import net.digitalid.database.conversion.WhereCondition;
 import net.digitalid.database.conversion.WhereConditionBuilder;
 import net.digitalid.database.exceptions.DatabaseException;
 import net.digitalid.database.interfaces.Database;
+import net.digitalid.database.property.PersistentPropertyCache;
+import net.digitalid.database.property.PersistentPropertyReload;
+import net.digitalid.database.property.PersistentPropertyWriteBehind;
 import net.digitalid.database.property.subject.Subject;
 import net.digitalid.database.property.subject.SubjectUtility;
 
@@ -89,9 +98,85 @@ public abstract class WritablePersistentMapPropertyImplementation<@Unspecifiable
     @Override
     public abstract @Nonnull PersistentMapPropertyTable<UNIT, SUBJECT, KEY, VALUE, ?, ?> getTable();
     
+    /* -------------------------------------------------- Snapshot -------------------------------------------------- */
+    
+    /**
+     * Stores a frozen copy of the map that was published after its last modification or null if this property is not loaded.
+     * Readers access the published copy through the volatile field without acquiring the lock.
+     * Writers modify the map while holding the lock and only mark the snapshot as {@link #modified} so that
+     * a sequence of modifications is copied once by the next reader instead of once per modification (copy-on-read).
+     */
+    protected volatile @Nullable READONLY_MAP snapshot;
+    
+    /**
+     * Stores whether the map has been modified since the snapshot was published.
+     */
+    protected volatile boolean modified;
+    
+    /**
+     * Publishes a frozen copy of the current map as the snapshot of this property.
+     * This method has to be called with the lock held.
+     */
+    @Impure
+    @SuppressWarnings("unchecked")
+    protected void publish() {
+        this.snapshot = (READONLY_MAP) getMap().clone().freeze();
+        this.modified = false;
+        PersistentPropertyCache.update(cacheEntry, getMap().size() + 1);
+    }
+    
+    /**
+     * Marks the snapshot of this property as outdated after a modification of the map.
+     * This method has to be called with the lock held.
+     */
+    @Impure
+    protected void invalidate() {
+        this.modified = true;
+        PersistentPropertyCache.update(cacheEntry, getMap().size() + 1);
+    }
+    
+    /* -------------------------------------------------- Cache -------------------------------------------------- */
+    
+    /**
+     * Stores the entry with which the loaded snapshot of this property is tracked in the {@link PersistentPropertyCache}.
+     */
+    protected final @Nonnull PersistentPropertyCache.Entry cacheEntry = PersistentPropertyCache.withUnloader(this::unload);
+    
+    /**
+     * Unloads this property and releases its map if its lock is available, it has no observers (which would miss the changes in the database) and no writes are pending.
+     * 
+     * @return whether this property has been unloaded.
+     */
+    @Impure
+    protected boolean unload() {
+        if (lock.isHeldByCurrentThread() || !lock.tryLock()) { return false; }
+        try {
+            if (!observers.isEmpty() || PersistentPropertyWriteBehind.getNumberOfPendingWrites() > 0) { return false; }
+            this.snapshot = null;
+            this.loadTime = null;
+            getMap().clear();
+            PersistentPropertyCache.remove(cacheEntry);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
     /* -------------------------------------------------- Loading -------------------------------------------------- */
     
-    protected boolean loaded = false;
+    /**
+     * Stores the time at which the key-value pairs of this property were last loaded from the database.
+     */
+    protected @Nullable Time loadTime;
+    
+    /**
+     * Returns the where condition that matches the entries of the subject of this property.
+     */
+    @Pure
+    protected @Nonnull WhereCondition<SUBJECT> getSubjectCondition() {
+        final @Nonnull String prefix = getTable().getParentModule().getSubjectTable().getTypeName().toLowerCase();
+        return WhereConditionBuilder.withConverter(getTable().getParentModule().getSubjectTable()).withObject(getSubject()).withPrefix(prefix).build();
+    }
     
     /**
      * Loads the key-value pairs of this property from the database.
@@ -103,36 +188,70 @@ public abstract class WritablePersistentMapPropertyImplementation<@Unspecifiable
     protected void load(final boolean locking) throws DatabaseException, RecoveryException {
         if (locking) { lock.lock(); }
         try {
+            final @Nonnull Time time = TimeBuilder.build();
             getMap().clear();
-            final @Nonnull String prefix = getTable().getParentModule().getSubjectTable().getTypeName().toLowerCase();
-            final @Nonnull @NonNullableElements WhereCondition<SUBJECT> whereCondition = WhereConditionBuilder.withConverter(getTable().getParentModule().getSubjectTable()).withObject(getSubject()).withPrefix(prefix).build();
-            final @Nonnull @NonNullableElements FreezableList<PersistentMapPropertyEntry<SUBJECT, KEY, VALUE>> entries = SQL.selectAll(getTable(), getSubject().getUnit(), getSubject().getUnit(), whereCondition);
+            final @Nonnull @NonNullableElements FreezableList<PersistentMapPropertyEntry<SUBJECT, KEY, VALUE>> entries = SQL.selectAll(getTable(), getSubject().getUnit(), getSubject().getUnit(), getSubjectCondition());
+            PersistentPropertyCache.recordMiss();
             for (@Nonnull PersistentMapPropertyEntry<SUBJECT, KEY, VALUE> entry : entries) {
                 getMap().put(entry.getKey(), entry.getValue());
             }
-            this.loaded = true;
+            this.loadTime = time;
+            publish();
         } finally {
             if (locking) { lock.unlock(); }
         }
     }
     
+    /**
+     * Sets the key-value pairs of this property to the ones of the given entries, which were {@link PersistentMapPropertyTable#preload(Iterable) preloaded} at the given time, unless this property is already loaded.
+     */
+    @Impure
+    @LockNotHeldByCurrentThread
+    void preload(@Nonnull @NonNullableElements Iterable<PersistentMapPropertyEntry<SUBJECT, KEY, VALUE>> entries, @Nonnull Time time) {
+        lock.lock();
+        try {
+            if (snapshot == null) {
+                getMap().clear();
+                for (@Nonnull PersistentMapPropertyEntry<SUBJECT, KEY, VALUE> entry : entries) {
+                    getMap().put(entry.getKey(), entry.getValue());
+                }
+                this.loadTime = time;
+                publish();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
     /* -------------------------------------------------- Getters -------------------------------------------------- */
     
     @Pure
     @Override
     @NonCommitting
-    @SuppressWarnings("unchecked")
-    public @Nonnull @NonFrozen READONLY_MAP get() throws DatabaseException, RecoveryException {
-        if (!loaded) { load(true); } // This should never trigger a reentrance exception as add(key, value), remove(key, value) and reset() that call external code ensure that the map is loaded.
-        return (READONLY_MAP) getMap();
+    public @Nonnull @Frozen READONLY_MAP get() throws DatabaseException, RecoveryException {
+        @Nullable READONLY_MAP snapshot = this.snapshot;
+        if (snapshot != null && !modified) {
+            cacheEntry.access();
+            return snapshot;
+        }
+        final boolean locking = !lock.isHeldByCurrentThread(); // Observers that are notified while the lock is held publish the modifications themselves.
+        if (locking) { lock.lock(); }
+        try {
+            if (this.snapshot == null) { load(false); }
+            else if (modified) { publish(); }
+            snapshot = this.snapshot;
+        } finally {
+            if (locking) { lock.unlock(); }
+        }
+        cacheEntry.access();
+        return snapshot;
     }
     
     @Pure
     @Override
     @NonCommitting
     public @NonCapturable @Nullable @Valid VALUE get(@NonCaptured @Unmodified @Nonnull @Valid("key") KEY key) throws DatabaseException, RecoveryException {
-        if (!loaded) { load(true); } // This should never trigger a reentrance exception as add(key, value), remove(key, value) and reset() that call external code ensure that the map is loaded.
-        return getMap().get(key);
+        return get().get(key);
     }
     
     /* -------------------------------------------------- Operations -------------------------------------------------- */
@@ -144,16 +263,24 @@ public abstract class WritablePersistentMapPropertyImplementation<@Unspecifiable
     public boolean add(@Captured @Nonnull @Valid("key") KEY key, @Captured @Nonnull @Valid VALUE value) throws DatabaseException, RecoveryException {
         lock.lock();
         try {
-            if (!loaded) { load(false); }
+            if (snapshot == null) { load(false); }
             if (getMap().containsKey(key)) {
                 Database.commit();
                 return false;
             } else {
-                final @Nonnull PersistentMapPropertyEntry<SUBJECT, KEY, VALUE> entry = new PersistentMapPropertyEntrySubclass<>(getSubject(), key, value);
-                SQL.insertOrAbort(getTable(), entry, getSubject().getUnit());
-                getMap().put(key, value);
-                Database.commit();
-                notifyObservers(key, value, true);
+                final @Nonnull PersistentMapPropertyEntry<SUBJECT, KEY, VALUE> entry = new PersistentMapPropertyEntrySubclass<>(getSubject(), TimeBuilder.build(), key, value);
+                if (PersistentPropertyWriteBehind.isApplicable()) {
+                    PersistentPropertyWriteBehind.insert(getTable(), getSubject().getUnit(), Arrays.asList(getSubject(), key), entry, () -> notifyObservers(key, value, true));
+                    getMap().put(key, value);
+                    invalidate();
+                    Database.commit();
+                } else {
+                    SQL.insertOrAbort(getTable(), entry, getSubject().getUnit());
+                    getMap().put(key, value);
+                    invalidate();
+                    Database.commit();
+                    Database.notifyAfterCommit(() -> notifyObservers(key, value, true), () -> restore(key, null));
+                }
                 return true;
             }
         } finally {
@@ -168,14 +295,22 @@ public abstract class WritablePersistentMapPropertyImplementation<@Unspecifiable
     public @Capturable @Nullable @Valid VALUE remove(@NonCaptured @Unmodified @Nonnull @Valid("key") KEY key) throws DatabaseException, RecoveryException {
         lock.lock();
         try {
-            if (!loaded) { load(false); }
+            if (snapshot == null) { load(false); }
             final @Nullable VALUE value = getMap().get(key);
             if (value != null) {
-                final @Nonnull PersistentMapPropertyEntry<SUBJECT, KEY, VALUE> entry = new PersistentMapPropertyEntrySubclass<>(getSubject(), key, value); // TODO: The value should actually not be necessary.
-                SQL.delete(getTable(), getSubject().getUnit(), WhereConditionBuilder.withConverter(getTable()).withObject(entry).build());
-                getMap().remove(key);
-                Database.commit();
-                notifyObservers(key, value, false);
+                final @Nonnull @NonNullableElements WhereCondition<?>[] whereConditions = getTable().getWhereConditions(getSubject(), key);
+                if (PersistentPropertyWriteBehind.isApplicable()) {
+                    PersistentPropertyWriteBehind.delete(getTable(), getSubject().getUnit(), Arrays.asList(getSubject(), key), whereConditions, () -> notifyObservers(key, value, false));
+                    getMap().remove(key);
+                    invalidate();
+                    Database.commit();
+                } else {
+                    SQL.delete(getTable(), getSubject().getUnit(), whereConditions);
+                    getMap().remove(key);
+                    invalidate();
+                    Database.commit();
+                    Database.notifyAfterCommit(() -> notifyObservers(key, value, false), () -> restore(key, value));
+                }
                 return value;
             } else {
                 Database.commit();
@@ -186,6 +321,24 @@ public abstract class WritablePersistentMapPropertyImplementation<@Unspecifiable
         }
     }
     
+    /**
+     * Restores the value of the given key after the transaction scope in which it was added or removed has been rolled back.
+     * 
+     * @param value the value to which the key was mapped before or null if the key was not contained in the map.
+     */
+    @Impure
+    @LockNotHeldByCurrentThread
+    protected void restore(@Nonnull @Valid("key") KEY key, @Nullable @Valid VALUE value) {
+        lock.lock();
+        try {
+            if (value != null) { getMap().put(key, value); }
+            else { getMap().remove(key); }
+            invalidate();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
     /* -------------------------------------------------- Reset -------------------------------------------------- */
     
     @Impure
@@ -195,19 +348,14 @@ public abstract class WritablePersistentMapPropertyImplementation<@Unspecifiable
     public void reset() throws DatabaseException, RecoveryException {
         lock.lock();
         try {
-            if (loaded) {
+            if (snapshot != null) {
                 if (observers.isEmpty()) {
-                    this.loaded = false;
+                    this.snapshot = null;
+                    PersistentPropertyCache.remove(cacheEntry);
+                } else if (PersistentPropertyReload.incremental.get() && getTable().isTimestamped() && loadTime != null) {
+                    reloadIncrementally(loadTime);
                 } else {
-                    final @Nonnull FreezableMap<KEY, VALUE> oldMap = getMap().clone();
-                    load(false);
-                    final @Nonnull FreezableMap<KEY, VALUE> newMap = getMap();
-                    for (Map.@Nonnull Entry<KEY, VALUE> entry : newMap.entrySet().exclude(oldMap.entrySet())) {
-                        notifyObservers(entry.getKey(), entry.getValue(), true);
-                    }
-                    for (Map.@Nonnull Entry<KEY, VALUE> entry : oldMap.entrySet().exclude(newMap.entrySet())) {
-                        notifyObservers(entry.getKey(), entry.getValue(), false);
-                    }
+                    reload();
                 }
             }
         } finally {
@@ -215,6 +363,50 @@ public abstract class WritablePersistentMapPropertyImplementation<@Unspecifiable
         }
     }
     
+    /**
+     * Reloads all key-value pairs of this property from the database and notifies the observers about the differences.
+     * This method has to be called with the lock held.
+     */
+    @Impure
+    @NonCommitting
+    protected void reload() throws DatabaseException, RecoveryException {
+        final @Nonnull FreezableMap<KEY, VALUE> oldMap = getMap().clone();
+        load(false);
+        final @Nonnull FreezableMap<KEY, VALUE> newMap = getMap();
+        for (Map.@Nonnull Entry<KEY, VALUE> entry : newMap.entrySet().exclude(oldMap.entrySet())) {
+            notifyObservers(entry.getKey(), entry.getValue(), true);
+        }
+        for (Map.@Nonnull Entry<KEY, VALUE> entry : oldMap.entrySet().exclude(newMap.entrySet())) {
+            notifyObservers(entry.getKey(), entry.getValue(), false);
+        }
+    }
+    
+    /**
+     * Loads only the key-value pairs that were added since the given time and notifies the observers about them.
+     * If the number of key-value pairs in the database differs afterwards, all key-value pairs are reloaded.
+     * Additions that commit later than the safety margin can be missed (see {@link PersistentPropertyReload#incremental}).
+     * This method has to be called with the lock held.
+     */
+    @Impure
+    @NonCommitting
+    protected void reloadIncrementally(@Nonnull Time lastLoadTime) throws DatabaseException, RecoveryException {
+        final @Nonnull Time time = TimeBuilder.build();
+        final @Nonnull WhereCondition<SUBJECT> subjectCondition = getSubjectCondition();
+        final @Nonnull @NonNullableElements FreezableList<PersistentMapPropertyEntry<SUBJECT, KEY, VALUE>> entries = SQL.selectAll(getTable(), getSubject().getUnit(), getSubject().getUnit(), subjectCondition, PersistentPropertyReload.getAddedSinceCondition(lastLoadTime));
+        final @Nonnull List<@Nonnull Runnable> notifications = new ArrayList<>();
+        for (@Nonnull PersistentMapPropertyEntry<SUBJECT, KEY, VALUE> entry : entries) {
+            final @Nullable VALUE oldValue = getMap().put(entry.getKey(), entry.getValue());
+            if (!entry.getValue().equals(oldValue)) {
+                if (oldValue != null) { notifications.add(() -> notifyObservers(entry.getKey(), oldValue, false)); }
+                notifications.add(() -> notifyObservers(entry.getKey(), entry.getValue(), true));
+            }
+        }
+        publish();
+        notifications.forEach(Runnable::run);
+        if (SQL.count(getTable(), getSubject().getUnit(), subjectCondition) != getMap().size()) { reload(); }
+        else { this.loadTime = time; }
+    }
+    
     /* -------------------------------------------------- Validate -------------------------------------------------- */
     
     @Pure
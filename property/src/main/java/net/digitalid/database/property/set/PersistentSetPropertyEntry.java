@@ -15,10 +15,13 @@
  */
 package net.digitalid.database.property.set;
 
+import javax.annotation.Nonnull;
+
 import net.digitalid.utility.annotations.generics.Unspecifiable;
 import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.time.Time;
 import net.digitalid.utility.validation.annotations.type.Immutable;
 
 import net.digitalid.database.annotations.constraints.PrimaryKey;
@@ -33,6 +36,14 @@ import net.digitalid.database.property.subject.Subject;
 @GenerateSubclass
 public abstract class PersistentSetPropertyEntry<@Unspecifiable SUBJECT extends Subject<?>, @Unspecifiable VALUE> extends PersistentPropertyEntry<SUBJECT> {
     
+    /* -------------------------------------------------- Time -------------------------------------------------- */
+    
+    /**
+     * Returns the time at which this entry was added.
+     */
+    @Pure
+    public abstract @Nonnull Time getTime();
+    
     /* -------------------------------------------------- Value -------------------------------------------------- */
     
     /**
@@ -15,6 +15,9 @@
  */
 package net.digitalid.database.property.set;
 
+import java.util.List;
+import java.util.Map;
+
 import javax.annotation.Nonnull;
 
 import net.digitalid.utility.annotations.generics.Specifiable;
@@ -40,6 +43,10 @@ import net.digitalid.utility.generator.annotations.interceptors.Cached;
 import net.digitalid.utility.immutable.ImmutableList;
 import net.digitalid.utility.storage.TableImplementation;
 import net.digitalid.utility.storage.interfaces.Unit;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.time.TimeBuilder;
+import net.digitalid.utility.time.TimeConverter;
+import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
 import net.digitalid.utility.validation.annotations.generation.Default;
 import net.digitalid.utility.validation.annotations.size.MaxSize;
 import net.digitalid.utility.validation.annotations.string.CodeIdentifier;
@@ -48,6 +55,12 @@ import net.digitalid.utility.validation.annotations.type.Immutable;
 import net.digitalid.utility.validation.annotations.value.Valid;
 
 import net.digitalid.database.annotations.constraints.PrimaryKey;
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.conversion.WhereCondition;
+import net.digitalid.database.conversion.WhereConditionBuilder;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.property.PersistentProperty;
+import net.digitalid.database.property.PersistentPropertyReload;
 import net.digitalid.database.property.PersistentPropertyTable;
 import net.digitalid.database.property.subject.Subject;
 
@@ -76,6 +89,16 @@ public abstract class PersistentSetPropertyTable<@Unspecifiable UNIT extends Uni
     @Pure
     public abstract @Nonnull Converter<VALUE, PROVIDED_FOR_VALUE> getValueConverter();
     
+    /* -------------------------------------------------- Timestamp -------------------------------------------------- */
+    
+    /**
+     * Returns whether the entries of this table store the time at which they were added, which is required to {@link PersistentPropertyReload#incremental reload incrementally}.
+     * By default, the time is only stored if incremental reloads are enabled when this table is built so that the schema of existing tables does not change otherwise.
+     */
+    @Pure
+    @Default("net.digitalid.database.property.PersistentPropertyReload.incremental.get()")
+    public abstract boolean isTimestamped();
+    
     /* -------------------------------------------------- Type -------------------------------------------------- */
     
     @Pure
@@ -106,18 +129,57 @@ public abstract class PersistentSetPropertyTable<@Unspecifiable UNIT extends Uni
     @Cached
     @Override
     public @Nonnull ImmutableList<@Nonnull CustomField> getFields(@Nonnull Representation representation) {
-        return ImmutableList.withElements(
-                CustomField.with(CustomType.TUPLE.of(getParentModule().getSubjectTable()), getParentModule().getSubjectTable().getTypeName(), ImmutableList.withElements(CustomAnnotation.with(PrimaryKey.class), CustomAnnotation.with(Nonnull.class))),
+        final @Nonnull CustomField subjectField = CustomField.with(CustomType.TUPLE.of(getParentModule().getSubjectTable()), getParentModule().getSubjectTable().getTypeName(), ImmutableList.withElements(CustomAnnotation.with(PrimaryKey.class), CustomAnnotation.with(Nonnull.class)));
+        if (!isTimestamped()) {
+            return ImmutableList.withElements(subjectField,
+                    CustomField.with(CustomType.TUPLE.of(getValueConverter()), "value", ImmutableList.withElements(CustomAnnotation.with(PrimaryKey.class), CustomAnnotation.with(Nonnull.class)/* TODO: Pass them? Probably pass the whole custom field instead. */))
+            );
+        }
+        return ImmutableList.withElements(subjectField,
+                CustomField.with(CustomType.TUPLE.of(TimeConverter.INSTANCE), "time", ImmutableList.withElements(CustomAnnotation.with(Nonnull.class))),
                 CustomField.with(CustomType.TUPLE.of(getValueConverter()), "value", ImmutableList.withElements(CustomAnnotation.with(PrimaryKey.class), CustomAnnotation.with(Nonnull.class)/* TODO: Pass them? Probably pass the whole custom field instead. */))
         );
     }
     
+    /* -------------------------------------------------- Where Conditions -------------------------------------------------- */
+    
+    /**
+     * Returns the where conditions that match the entry with the given subject and value regardless of the time at which it was added.
+     */
+    @Pure
+    public @Nonnull @NonNullableElements WhereCondition<?>[] getWhereConditions(@Nonnull SUBJECT subject, @Nonnull VALUE value) {
+        return new WhereCondition<?>[] {
+                WhereConditionBuilder.withConverter(getParentModule().getSubjectTable()).withObject(subject).withPrefix(getParentModule().getSubjectTable().getTypeName().toLowerCase()).build(),
+                WhereConditionBuilder.withConverter(getValueConverter()).withObject(value).withPrefix("value").build()
+        };
+    }
+    
+    /* -------------------------------------------------- Preloading -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    @NonCommitting
+    @SuppressWarnings("unchecked")
+    public void preload(@Nonnull @NonNullableElements Iterable<? extends SUBJECT> subjects) throws DatabaseException, RecoveryException {
+        final @Nonnull Time time = TimeBuilder.build();
+        for (Map.@Nonnull Entry<@Nonnull SUBJECT, @Nonnull @NonNullableElements List<PersistentSetPropertyEntry<SUBJECT, VALUE>>> entries : selectEntries(subjects).entrySet()) {
+            final @Nonnull SUBJECT subject = entries.getKey();
+            if (subject.hasProperty(this)) {
+                final @Nonnull PersistentProperty<?, ?> property = subject.getProperty(this);
+                if (property instanceof WritablePersistentSetPropertyImplementation) {
+                    ((WritablePersistentSetPropertyImplementation<UNIT, SUBJECT, VALUE, ?, ?>) property).preload(entries.getValue(), time);
+                }
+            }
+        }
+    }
+    
     /* -------------------------------------------------- Convert -------------------------------------------------- */
     
     @Pure
     @Override
     public <@Unspecifiable EXCEPTION extends ConnectionException> void convert(@Nonnull @NonCaptured @Unmodified PersistentSetPropertyEntry<SUBJECT, VALUE> entry, @Nonnull @NonCaptured @Modified Encoder<EXCEPTION> encoder) throws EXCEPTION {
         getParentModule().getSubjectTable().convert(entry.getSubject(), encoder);
+        if (isTimestamped()) { TimeConverter.INSTANCE.convert(entry.getTime(), encoder); }
         getValueConverter().convert(entry.getValue(), encoder);
     }
     
@@ -127,8 +189,9 @@ public abstract class PersistentSetPropertyTable<@Unspecifiable UNIT extends Uni
     @Override
     public @Capturable <@Unspecifiable EXCEPTION extends ConnectionException> @Nonnull PersistentSetPropertyEntry<SUBJECT, VALUE> recover(@Nonnull @NonCaptured @Modified Decoder<EXCEPTION> decoder, @Nonnull UNIT unit) throws EXCEPTION, RecoveryException {
         final @Nonnull SUBJECT subject = getParentModule().getSubjectTable().recover(decoder, unit);
+        final @Nonnull Time time = isTimestamped() ? TimeConverter.INSTANCE.recover(decoder, null) : TimeBuilder.build();
         final @Nonnull VALUE value = getValueConverter().recover(decoder, getProvidedObjectExtractor().evaluate(subject));
-        return new PersistentSetPropertyEntrySubclass<>(subject, value);
+        return new PersistentSetPropertyEntrySubclass<>(subject, time, value);
     }
     
 }
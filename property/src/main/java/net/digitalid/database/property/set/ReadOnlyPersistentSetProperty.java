@@ -22,7 +22,7 @@ import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.annotations.type.ThreadSafe;
 import net.digitalid.utility.collections.set.ReadOnlySet;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
-import net.digitalid.utility.freezable.annotations.NonFrozen;
+import net.digitalid.utility.freezable.annotations.Frozen;
 import net.digitalid.utility.property.set.ReadOnlySetProperty;
 import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
 import net.digitalid.utility.validation.annotations.type.ReadOnly;
@@ -48,6 +48,6 @@ public interface ReadOnlyPersistentSetProperty<@Unspecifiable SUBJECT extends Su
     @Pure
     @Override
     @NonCommitting
-    public @Nonnull @NonFrozen @NonNullableElements READONLY_SET get() throws DatabaseException, RecoveryException;
+    public @Nonnull @Frozen @NonNullableElements READONLY_SET get() throws DatabaseException, RecoveryException;
     
 }
@@ -15,7 +15,12 @@
  */
 package net.digitalid.database.property.set;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import net.digitalid.utility.annotations.generics.Unspecifiable;
 import net.digitalid.utility.annotations.method.CallSuper;
@@ -31,12 +36,15 @@ import net.digitalid.utility.collections.set.FreezableSet;
 import net.digitalid.utility.collections.set.ReadOnlySet;
 import net.digitalid.utility.contracts.Validate;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.freezable.annotations.Frozen;
 import net.digitalid.utility.freezable.annotations.NonFrozen;
 import net.digitalid.utility.functional.interfaces.Predicate;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
 import net.digitalid.utility.property.set.WritableSetPropertyImplementation;
 import net.digitalid.utility.storage.interfaces.Unit;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.time.TimeBuilder;
 import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
 import net.digitalid.utility.validation.annotations.lock.LockNotHeldByCurrentThread;
 import net.digitalid.utility.validation.annotations.value.Valid;
@@ -48,6 +56,9 @@ import net.digitalid.database.conversion.WhereCondition;
 import net.digitalid.database.conversion.WhereConditionBuilder;
 import net.digitalid.database.exceptions.DatabaseException;
 import net.digitalid.database.interfaces.Database;
+import net.digitalid.database.property.PersistentPropertyCache;
+import net.digitalid.database.property.PersistentPropertyReload;
+import net.digitalid.database.property.PersistentPropertyWriteBehind;
 import net.digitalid.database.property.subject.Subject;
 import net.digitalid.database.property.subject.SubjectUtility;
 
@@ -80,9 +91,85 @@ public abstract class WritablePersistentSetPropertyImplementation<@Unspecifiable
     @Override
     public abstract @Nonnull PersistentSetPropertyTable<UNIT, SUBJECT, VALUE, ?> getTable();
     
+    /* -------------------------------------------------- Snapshot -------------------------------------------------- */
+    
+    /**
+     * Stores a frozen copy of the set that was published after its last modification or null if this property is not loaded.
+     * Readers access the published copy through the volatile field without acquiring the lock.
+     * Writers modify the set while holding the lock and only mark the snapshot as {@link #modified} so that
+     * a sequence of modifications is copied once by the next reader instead of once per modification (copy-on-read).
+     */
+    protected volatile @Nullable READONLY_SET snapshot;
+    
+    /**
+     * Stores whether the set has been modified since the snapshot was published.
+     */
+    protected volatile boolean modified;
+    
+    /**
+     * Publishes a frozen copy of the current set as the snapshot of this property.
+     * This method has to be called with the lock held.
+     */
+    @Impure
+    @SuppressWarnings("unchecked")
+    protected void publish() {
+        this.snapshot = (READONLY_SET) getSet().clone().freeze();
+        this.modified = false;
+        PersistentPropertyCache.update(cacheEntry, getSet().size() + 1);
+    }
+    
+    /**
+     * Marks the snapshot of this property as outdated after a modification of the set.
+     * This method has to be called with the lock held.
+     */
+    @Impure
+    protected void invalidate() {
+        this.modified = true;
+        PersistentPropertyCache.update(cacheEntry, getSet().size() + 1);
+    }
+    
+    /* -------------------------------------------------- Cache -------------------------------------------------- */
+    
+    /**
+     * Stores the entry with which the loaded snapshot of this property is tracked in the {@link PersistentPropertyCache}.
+     */
+    protected final @Nonnull PersistentPropertyCache.Entry cacheEntry = PersistentPropertyCache.withUnloader(this::unload);
+    
+    /**
+     * Unloads this property and releases its set if its lock is available, it has no observers (which would miss the changes in the database) and no writes are pending.
+     * 
+     * @return whether this property has been unloaded.
+     */
+    @Impure
+    protected boolean unload() {
+        if (lock.isHeldByCurrentThread() || !lock.tryLock()) { return false; }
+        try {
+            if (!observers.isEmpty() || PersistentPropertyWriteBehind.getNumberOfPendingWrites() > 0) { return false; }
+            this.snapshot = null;
+            this.loadTime = null;
+            getSet().clear();
+            PersistentPropertyCache.remove(cacheEntry);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
     /* -------------------------------------------------- Loading -------------------------------------------------- */
     
-    protected boolean loaded = false;
+    /**
+     * Stores the time at which the values of this property were last loaded from the database.
+     */
+    protected @Nullable Time loadTime;
+    
+    /**
+     * Returns the where condition that matches the entries of the subject of this property.
+     */
+    @Pure
+    protected @Nonnull WhereCondition<SUBJECT> getSubjectCondition() {
+        final @Nonnull String prefix = getTable().getParentModule().getSubjectTable().getTypeName().toLowerCase();
+        return WhereConditionBuilder.withConverter(getTable().getParentModule().getSubjectTable()).withObject(getSubject()).withPrefix(prefix).build();
+    }
     
     /**
      * Loads the values of this property from the database.
@@ -94,28 +181,63 @@ public abstract class WritablePersistentSetPropertyImplementation<@Unspecifiable
     protected void load(final boolean locking) throws DatabaseException, RecoveryException {
         if (locking) { lock.lock(); }
         try {
+            final @Nonnull Time time = TimeBuilder.build();
             getSet().clear();
-            final @Nonnull String prefix = getTable().getParentModule().getSubjectTable().getTypeName().toLowerCase();
-            final @Nonnull WhereCondition<SUBJECT> whereCondition = WhereConditionBuilder.withConverter(getTable().getParentModule().getSubjectTable()).withObject(getSubject()).withPrefix(prefix).build();
-            final @Nonnull @NonNullableElements FreezableList<PersistentSetPropertyEntry<SUBJECT, VALUE>> entries = SQL.selectAll(getTable(), getSubject().getUnit(), getSubject().getUnit(), whereCondition);
+            final @Nonnull @NonNullableElements FreezableList<PersistentSetPropertyEntry<SUBJECT, VALUE>> entries = SQL.selectAll(getTable(), getSubject().getUnit(), getSubject().getUnit(), getSubjectCondition());
+            PersistentPropertyCache.recordMiss();
             for (@Nonnull PersistentSetPropertyEntry<SUBJECT, VALUE> entry : entries) {
                 getSet().add(entry.getValue());
             }
-            this.loaded = true;
+            this.loadTime = time;
+            publish();
         } finally {
             if (locking) { lock.unlock(); }
         }
     }
     
+    /**
+     * Sets the values of this property to the values of the given entries, which were {@link PersistentSetPropertyTable#preload(Iterable) preloaded} at the given time, unless this property is already loaded.
+     */
+    @Impure
+    @LockNotHeldByCurrentThread
+    void preload(@Nonnull @NonNullableElements Iterable<PersistentSetPropertyEntry<SUBJECT, VALUE>> entries, @Nonnull Time time) {
+        lock.lock();
+        try {
+            if (snapshot == null) {
+                getSet().clear();
+                for (@Nonnull PersistentSetPropertyEntry<SUBJECT, VALUE> entry : entries) {
+                    getSet().add(entry.getValue());
+                }
+                this.loadTime = time;
+                publish();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
     /* -------------------------------------------------- Getter -------------------------------------------------- */
     
     @Pure
     @Override
     @NonCommitting
-    @SuppressWarnings("unchecked")
-    public @Nonnull @NonFrozen @NonNullableElements READONLY_SET get() throws DatabaseException, RecoveryException {
-        if (!loaded) { load(true); } // This should never trigger a reentrance exception as add(value), remove(value) and reset() that call external code ensure that the set is loaded.
-        return (READONLY_SET) getSet();
+    public @Nonnull @Frozen @NonNullableElements READONLY_SET get() throws DatabaseException, RecoveryException {
+        @Nullable READONLY_SET snapshot = this.snapshot;
+        if (snapshot != null && !modified) {
+            cacheEntry.access();
+            return snapshot;
+        }
+        final boolean locking = !lock.isHeldByCurrentThread(); // Observers that are notified while the lock is held publish the modifications themselves.
+        if (locking) { lock.lock(); }
+        try {
+            if (this.snapshot == null) { load(false); }
+            else if (modified) { publish(); }
+            snapshot = this.snapshot;
+        } finally {
+            if (locking) { lock.unlock(); }
+        }
+        cacheEntry.access();
+        return snapshot;
     }
     
     /* -------------------------------------------------- Operations -------------------------------------------------- */
@@ -127,16 +249,24 @@ public abstract class WritablePersistentSetPropertyImplementation<@Unspecifiable
     public boolean add(@Captured @Nonnull @Valid VALUE value) throws DatabaseException, RecoveryException {
         lock.lock();
         try {
-            if (!loaded) { load(false); }
+            if (snapshot == null) { load(false); }
             if (getSet().contains(value)) {
                 Database.commit();
                 return false;
             } else {
-                final @Nonnull PersistentSetPropertyEntry<SUBJECT, VALUE> entry = new PersistentSetPropertyEntrySubclass<>(getSubject(), value);
-                SQL.insertOrAbort(getTable(), entry, getSubject().getUnit());
-                getSet().add(value);
-                Database.commit();
-                notifyObservers(value, true);
+                final @Nonnull PersistentSetPropertyEntry<SUBJECT, VALUE> entry = new PersistentSetPropertyEntrySubclass<>(getSubject(), TimeBuilder.build(), value);
+                if (PersistentPropertyWriteBehind.isApplicable()) {
+                    PersistentPropertyWriteBehind.insert(getTable(), getSubject().getUnit(), Arrays.asList(getSubject(), value), entry, () -> notifyObservers(value, true));
+                    getSet().add(value);
+                    invalidate();
+                    Database.commit();
+                } else {
+                    SQL.insertOrAbort(getTable(), entry, getSubject().getUnit());
+                    getSet().add(value);
+                    invalidate();
+                    Database.commit();
+                    Database.notifyAfterCommit(() -> notifyObservers(value, true), () -> restore(value, false));
+                }
                 return true;
             }
         } finally {
@@ -151,13 +281,21 @@ public abstract class WritablePersistentSetPropertyImplementation<@Unspecifiable
     public boolean remove(@NonCaptured @Unmodified @Nonnull @Valid VALUE value) throws DatabaseException, RecoveryException {
         lock.lock();
         try {
-            if (!loaded) { load(false); }
+            if (snapshot == null) { load(false); }
             if (getSet().contains(value)) {
-                final @Nonnull PersistentSetPropertyEntry<SUBJECT, VALUE> entry = new PersistentSetPropertyEntrySubclass<>(getSubject(), value);
-                SQL.delete(getTable(), getSubject().getUnit(), WhereConditionBuilder.withConverter(getTable()).withObject(entry).build());
-                getSet().remove(value);
-                Database.commit();
-                notifyObservers(value, false);
+                final @Nonnull @NonNullableElements WhereCondition<?>[] whereConditions = getTable().getWhereConditions(getSubject(), value);
+                if (PersistentPropertyWriteBehind.isApplicable()) {
+                    PersistentPropertyWriteBehind.delete(getTable(), getSubject().getUnit(), Arrays.asList(getSubject(), value), whereConditions, () -> notifyObservers(value, false));
+                    getSet().remove(value);
+                    invalidate();
+                    Database.commit();
+                } else {
+                    SQL.delete(getTable(), getSubject().getUnit(), whereConditions);
+                    getSet().remove(value);
+                    invalidate();
+                    Database.commit();
+                    Database.notifyAfterCommit(() -> notifyObservers(value, false), () -> restore(value, true));
+                }
                 return true;
             } else {
                 Database.commit();
@@ -168,6 +306,22 @@ public abstract class WritablePersistentSetPropertyImplementation<@Unspecifiable
         }
     }
     
+    /**
+     * Restores whether the given value is contained in the set after the transaction scope in which it was added or removed has been rolled back.
+     */
+    @Impure
+    @LockNotHeldByCurrentThread
+    protected void restore(@Nonnull @Valid VALUE value, boolean contained) {
+        lock.lock();
+        try {
+            if (contained) { getSet().add(value); }
+            else { getSet().remove(value); }
+            invalidate();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
     /* -------------------------------------------------- Reset -------------------------------------------------- */
     
     @Impure
@@ -177,19 +331,14 @@ public abstract class WritablePersistentSetPropertyImplementation<@Unspecifiable
     public void reset() throws DatabaseException, RecoveryException {
         lock.lock();
         try {
-            if (loaded) {
+            if (snapshot != null) {
                 if (observers.isEmpty()) {
-                    this.loaded = false;
+                    this.snapshot = null;
+                    PersistentPropertyCache.remove(cacheEntry);
+                } else if (PersistentPropertyReload.incremental.get() && getTable().isTimestamped() && loadTime != null) {
+                    reloadIncrementally(loadTime);
                 } else {
-                    final @Nonnull FreezableSet<VALUE> oldSet = getSet().clone();
-                    load(false);
-                    final @Nonnull FreezableSet<VALUE> newSet = getSet();
-                    for (@Nonnull @Valid VALUE value : newSet.exclude(oldSet)) {
-                        notifyObservers(value, true);
-                    }
-                    for (@Nonnull @Valid VALUE value : oldSet.exclude(newSet)) {
-                        notifyObservers(value, false);
-                    }
+                    reload();
                 }
             }
         } finally {
@@ -197,6 +346,48 @@ public abstract class WritablePersistentSetPropertyImplementation<@Unspecifiable
         }
     }
     
+    /**
+     * Reloads all values of this property from the database and notifies the observers about the differences.
+     * This method has to be called with the lock held.
+     */
+    @Impure
+    @NonCommitting
+    protected void reload() throws DatabaseException, RecoveryException {
+        final @Nonnull FreezableSet<VALUE> oldSet = getSet().clone();
+        load(false);
+        final @Nonnull FreezableSet<VALUE> newSet = getSet();
+        for (@Nonnull @Valid VALUE value : newSet.exclude(oldSet)) {
+            notifyObservers(value, true);
+        }
+        for (@Nonnull @Valid VALUE value : oldSet.exclude(newSet)) {
+            notifyObservers(value, false);
+        }
+    }
+    
+    /**
+     * Loads only the values that were added since the given time and notifies the observers about them.
+     * If the number of values in the database differs afterwards, all values are reloaded.
+     * Additions that commit later than the safety margin can be missed (see {@link PersistentPropertyReload#incremental}).
+     * This method has to be called with the lock held.
+     */
+    @Impure
+    @NonCommitting
+    protected void reloadIncrementally(@Nonnull Time lastLoadTime) throws DatabaseException, RecoveryException {
+        final @Nonnull Time time = TimeBuilder.build();
+        final @Nonnull WhereCondition<SUBJECT> subjectCondition = getSubjectCondition();
+        final @Nonnull @NonNullableElements FreezableList<PersistentSetPropertyEntry<SUBJECT, VALUE>> entries = SQL.selectAll(getTable(), getSubject().getUnit(), getSubject().getUnit(), subjectCondition, PersistentPropertyReload.getAddedSinceCondition(lastLoadTime));
+        final @Nonnull List<@Nonnull VALUE> addedValues = new ArrayList<>();
+        for (@Nonnull PersistentSetPropertyEntry<SUBJECT, VALUE> entry : entries) {
+            if (getSet().add(entry.getValue())) { addedValues.add(entry.getValue()); }
+        }
+        publish();
+        for (@Nonnull VALUE value : addedValues) {
+            notifyObservers(value, true);
+        }
+        if (SQL.count(getTable(), getSubject().getUnit(), subjectCondition) != getSet().size()) { reload(); }
+        else { this.loadTime = time; }
+    }
+    
     /* -------------------------------------------------- Validate -------------------------------------------------- */
     
     @Pure
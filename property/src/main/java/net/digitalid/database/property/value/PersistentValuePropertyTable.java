@@ -15,6 +15,9 @@
  */
 package net.digitalid.database.property.value;
 
+import java.util.List;
+import java.util.Map;
+
 import javax.annotation.Nonnull;
 
 import net.digitalid.utility.annotations.generics.Specifiable;
@@ -42,6 +45,7 @@ import net.digitalid.utility.storage.TableImplementation;
 import net.digitalid.utility.storage.interfaces.Unit;
 import net.digitalid.utility.time.Time;
 import net.digitalid.utility.time.TimeConverter;
+import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
 import net.digitalid.utility.validation.annotations.generation.Default;
 import net.digitalid.utility.validation.annotations.size.MaxSize;
 import net.digitalid.utility.validation.annotations.string.CodeIdentifier;
@@ -50,6 +54,9 @@ import net.digitalid.utility.validation.annotations.type.Immutable;
 import net.digitalid.utility.validation.annotations.value.Valid;
 
 import net.digitalid.database.annotations.constraints.PrimaryKey;
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.property.PersistentProperty;
 import net.digitalid.database.property.PersistentPropertyTable;
 import net.digitalid.database.property.subject.Subject;
 
@@ -123,6 +130,24 @@ public abstract class PersistentValuePropertyTable<@Unspecifiable UNIT extends U
         );
     }
     
+    /* -------------------------------------------------- Preloading -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    @NonCommitting
+    @SuppressWarnings("unchecked")
+    public void preload(@Nonnull @NonNullableElements Iterable<? extends SUBJECT> subjects) throws DatabaseException, RecoveryException {
+        for (Map.@Nonnull Entry<@Nonnull SUBJECT, @Nonnull @NonNullableElements List<PersistentValuePropertyEntry<SUBJECT, VALUE>>> entries : selectEntries(subjects).entrySet()) {
+            final @Nonnull SUBJECT subject = entries.getKey();
+            if (subject.hasProperty(this)) {
+                final @Nonnull PersistentProperty<?, ?> property = subject.getProperty(this);
+                if (property instanceof WritablePersistentValuePropertyImplementation) {
+                    ((WritablePersistentValuePropertyImplementation<UNIT, SUBJECT, VALUE>) property).preload(entries.getValue().isEmpty() ? null : entries.getValue().get(0));
+                }
+            }
+        }
+    }
+    
     /* -------------------------------------------------- Convert -------------------------------------------------- */
     
     @Pure
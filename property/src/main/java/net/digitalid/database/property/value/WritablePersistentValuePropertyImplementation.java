@@ -15,6 +15,7 @@
  */
 package net.digitalid.database.property.value;
 
+import java.util.Arrays;
 import java.util.Objects;
 
 import javax.annotation.Nonnull;
@@ -49,6 +50,8 @@ import net.digitalid.database.conversion.WhereCondition;
 import net.digitalid.database.conversion.WhereConditionBuilder;
 import net.digitalid.database.exceptions.DatabaseException;
 import net.digitalid.database.interfaces.Database;
+import net.digitalid.database.property.PersistentPropertyCache;
+import net.digitalid.database.property.PersistentPropertyWriteBehind;
 import net.digitalid.database.property.subject.Subject;
 import net.digitalid.database.property.subject.SubjectUtility;
 
@@ -74,9 +77,61 @@ public abstract class WritablePersistentValuePropertyImplementation<@Unspecifiab
     @Override
     public abstract @Nonnull PersistentValuePropertyTable<UNIT, SUBJECT, VALUE, ?> getTable();
     
-    /* -------------------------------------------------- Loading -------------------------------------------------- */
+    /* -------------------------------------------------- Snapshot -------------------------------------------------- */
     
-    protected boolean loaded = false;
+    /**
+     * Stores the value of this property together with the time of its last modification or null if this property is not loaded.
+     * The snapshot is immutable and published through a volatile field so that readers never acquire the lock.
+     * Writers replace the snapshot while holding the lock.
+     */
+    protected volatile @Nullable Pair<@Valid VALUE, @Nullable Time> snapshot;
+    
+    /**
+     * Returns the current snapshot of this property and loads it first if necessary.
+     */
+    @Pure
+    @NonCommitting
+    protected @Nonnull Pair<@Valid VALUE, @Nullable Time> getSnapshot() throws DatabaseException, RecoveryException {
+        @Nullable Pair<@Valid VALUE, @Nullable Time> snapshot = this.snapshot;
+        if (snapshot != null) { cacheEntry.access(); }
+        while (snapshot == null) {
+            lock.lock(); // This should never trigger a reentrance exception as both set(value) and reset() that call external code ensure that the snapshot is loaded.
+            try {
+                if (this.snapshot == null) { load(false); }
+            } finally {
+                lock.unlock();
+            }
+            snapshot = this.snapshot;
+        }
+        return snapshot;
+    }
+    
+    /* -------------------------------------------------- Cache -------------------------------------------------- */
+    
+    /**
+     * Stores the entry with which the loaded snapshot of this property is tracked in the {@link PersistentPropertyCache}.
+     */
+    protected final @Nonnull PersistentPropertyCache.Entry cacheEntry = PersistentPropertyCache.withUnloader(this::unload);
+    
+    /**
+     * Unloads this property if its lock is available, it has no observers (which would miss the changes in the database) and no writes are pending.
+     * 
+     * @return whether this property has been unloaded.
+     */
+    @Impure
+    protected boolean unload() {
+        if (lock.isHeldByCurrentThread() || !lock.tryLock()) { return false; }
+        try {
+            if (!observers.isEmpty() || PersistentPropertyWriteBehind.getNumberOfPendingWrites() > 0) { return false; }
+            this.snapshot = null;
+            PersistentPropertyCache.remove(cacheEntry);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /* -------------------------------------------------- Loading -------------------------------------------------- */
     
     /**
      * Loads the time and value of this property from the database.
@@ -91,41 +146,53 @@ public abstract class WritablePersistentValuePropertyImplementation<@Unspecifiab
             final @Nonnull Converter<SUBJECT, ?> subjectConverter = getTable().getParentModule().getSubjectTable();
             final @Nonnull WhereCondition<SUBJECT> whereCondition = WhereConditionBuilder.withConverter(subjectConverter).withObject(getSubject()).withPrefix(subjectConverter.getTypeName().toLowerCase()).build();
             final @Nullable PersistentValuePropertyEntry<SUBJECT, VALUE> entry = SQL.selectFirst(getTable(), getSubject().getUnit(), getSubject().getUnit(), whereCondition);
-            if (entry != null) {
-                this.time = entry.getTime();
-                this.value = entry.getValue();
-            } else {
-                this.time = null;
-                this.value = getTable().getDefaultValue();
-            }
-            this.loaded = true;
+            PersistentPropertyCache.recordMiss();
+            setEntry(entry);
         } finally {
             if (locking) { lock.unlock(); }
         }
     }
     
-    /* -------------------------------------------------- Time -------------------------------------------------- */
+    /**
+     * Publishes the time and value of the given entry or the default value if the entry is null as the snapshot of this property.
+     */
+    @Impure
+    private void setEntry(@Nullable PersistentValuePropertyEntry<SUBJECT, VALUE> entry) {
+        if (entry != null) { this.snapshot = Pair.of(entry.getValue(), entry.getTime()); }
+        else { this.snapshot = Pair.of(getTable().getDefaultValue(), null); }
+        PersistentPropertyCache.update(cacheEntry, 1);
+    }
     
-    protected @Nullable Time time;
+    /**
+     * Sets the time and value of this property to the given entry, which was {@link PersistentValuePropertyTable#preload(Iterable) preloaded}, unless this property is already loaded.
+     */
+    @Impure
+    @LockNotHeldByCurrentThread
+    void preload(@Nullable PersistentValuePropertyEntry<SUBJECT, VALUE> entry) {
+        lock.lock();
+        try {
+            if (snapshot == null) { setEntry(entry); }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /* -------------------------------------------------- Time -------------------------------------------------- */
     
     @Pure
     @Override
     @NonCommitting
     public @Nullable Time getTime() throws DatabaseException, RecoveryException {
-        if (!loaded) { load(true); } // This should never trigger a reentrance exception as both set(value) and reset() that call external code ensure that the time is loaded.
-        return time;
+        return getSnapshot().get1();
     }
     
     /* -------------------------------------------------- Value -------------------------------------------------- */
     
-    protected @Nullable @Valid VALUE value;
-    
     @Pure
     @Override
     @NonCommitting
     public @Valid VALUE get() throws DatabaseException, RecoveryException {
-        if (!loaded) { load(true); } // This should never trigger a reentrance exception as both set(value) and reset() that call external code ensure that the value is loaded.
-        return value;
+        return getSnapshot().get0();
     }
     
     @Impure
@@ -135,16 +202,22 @@ public abstract class WritablePersistentValuePropertyImplementation<@Unspecifiab
     public @Capturable @Valid VALUE set(@Captured @Valid VALUE newValue) throws DatabaseException, RecoveryException {
         lock.lock();
         try {
-            if (!loaded) { load(false); }
-            final @Valid VALUE oldValue = value;
+            if (snapshot == null) { load(false); }
+            final @Nonnull Pair<@Valid VALUE, @Nullable Time> oldSnapshot = snapshot;
+            final @Valid VALUE oldValue = oldSnapshot.get0();
             if (!Objects.equals(newValue, oldValue)) {
                 final @Nonnull Time newTime = TimeBuilder.build();
                 final @Nonnull PersistentValuePropertyEntry<SUBJECT, VALUE> entry = new PersistentValuePropertyEntrySubclass<>(getSubject(), newTime, newValue);
-                SQL.insertOrReplace(getTable(), entry, getSubject().getUnit());
-                this.time = newTime;
-                this.value = newValue;
-                Database.commit();
-                notifyObservers(oldValue, newValue);
+                if (PersistentPropertyWriteBehind.isApplicable()) {
+                    PersistentPropertyWriteBehind.replace(getTable(), getSubject().getUnit(), Arrays.asList(getSubject()), entry, () -> notifyObservers(oldValue, newValue));
+                    this.snapshot = Pair.of(newValue, newTime);
+                    Database.commit();
+                } else {
+                    SQL.insertOrReplace(getTable(), entry, getSubject().getUnit());
+                    this.snapshot = Pair.of(newValue, newTime);
+                    Database.commit();
+                    Database.notifyAfterCommit(() -> notifyObservers(oldValue, newValue), () -> restore(oldSnapshot));
+                }
             } else { Database.commit(); }
             return oldValue;
         } finally {
@@ -152,22 +225,30 @@ public abstract class WritablePersistentValuePropertyImplementation<@Unspecifiab
         }
     }
     
-    /* -------------------------------------------------- Combination -------------------------------------------------- */
-    
-    @Pure
-    @Override
-    @NonCommitting
+    /**
+     * Restores the given snapshot after the transaction scope in which it was replaced has been rolled back.
+     */
+    @Impure
     @LockNotHeldByCurrentThread
-    public @Nonnull Pair<@Valid VALUE, @Nullable Time> getValueWithTimeOfLastModification() throws DatabaseException, RecoveryException {
+    protected void restore(@Nonnull Pair<@Valid VALUE, @Nullable Time> oldSnapshot) {
         lock.lock();
         try {
-            if (!loaded) { load(false); }
-            return Pair.of(value, time);
+            this.snapshot = oldSnapshot;
+            PersistentPropertyCache.update(cacheEntry, 1);
         } finally {
             lock.unlock();
         }
     }
     
+    /* -------------------------------------------------- Combination -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    @NonCommitting
+    public @Nonnull Pair<@Valid VALUE, @Nullable Time> getValueWithTimeOfLastModification() throws DatabaseException, RecoveryException {
+        return getSnapshot();
+    }
+    
     /* -------------------------------------------------- Reset -------------------------------------------------- */
     
     @Impure
@@ -177,13 +258,15 @@ public abstract class WritablePersistentValuePropertyImplementation<@Unspecifiab
     public void reset() throws DatabaseException, RecoveryException {
         lock.lock();
         try {
-            if (loaded) {
+            final @Nullable Pair<@Valid VALUE, @Nullable Time> oldSnapshot = snapshot;
+            if (oldSnapshot != null) {
                 if (observers.isEmpty()) {
-                    this.loaded = false;
+                    this.snapshot = null;
+                    PersistentPropertyCache.remove(cacheEntry);
                 } else {
-                    final @Valid VALUE oldValue = value;
+                    final @Valid VALUE oldValue = oldSnapshot.get0();
                     load(false);
-                    final @Valid VALUE newValue = value;
+                    final @Valid VALUE newValue = snapshot.get0();
                     if (!Objects.equals(newValue, oldValue)) {
                         notifyObservers(oldValue, newValue);
                     }
@@ -203,7 +286,6 @@ public abstract class WritablePersistentValuePropertyImplementation<@Unspecifiab
         super.initialize();
         
         SubjectUtility.add(getSubject(), this);
-        this.value = getTable().getDefaultValue();
     }
     
 }
@@ -15,6 +15,9 @@
  */
 package net.digitalid.database.property.value;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nonnull;
@@ -23,6 +26,7 @@ import net.digitalid.utility.annotations.method.Impure;
 import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.collaboration.annotations.TODO;
 import net.digitalid.utility.collaboration.enumerations.Author;
+import net.digitalid.utility.collections.map.ReadOnlyMap;
 import net.digitalid.utility.collections.set.ReadOnlySet;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
 import net.digitalid.utility.freezable.annotations.NonFrozen;
@@ -38,12 +42,17 @@ import net.digitalid.database.annotations.constraints.PrimaryKey;
 import net.digitalid.database.conversion.SQL;
 import net.digitalid.database.exceptions.DatabaseException;
 import net.digitalid.database.interfaces.Database;
+import net.digitalid.database.property.PersistentPropertyCache;
+import net.digitalid.database.property.PersistentPropertyReload;
+import net.digitalid.database.property.PersistentPropertyWriteBehind;
 import net.digitalid.database.property.annotations.GeneratePersistentProperty;
+import net.digitalid.database.property.map.PersistentMapObserver;
 import net.digitalid.database.property.map.WritablePersistentSimpleMapProperty;
 import net.digitalid.database.property.set.WritablePersistentSimpleSetProperty;
 import net.digitalid.database.property.subject.Subject;
 import net.digitalid.database.testing.DatabaseTest;
 
+import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -86,10 +95,21 @@ abstract class Student extends Subject<Unit> {
 
 public class ValuePropertyTest extends DatabaseTest {
     
+    static {
+        // The property tables of the students are built with the first student and store the time of their entries only if incremental reloads are enabled.
+        PersistentPropertyReload.incremental.set(Boolean.TRUE);
+    }
+    
     private static final @Nonnull Student object = StudentBuilder.withKey(123).build();
     
     private static final @Nonnull Student friend = StudentBuilder.withKey(124).build();
     
+    private static final @Nonnull Student other = StudentBuilder.withKey(125).build();
+    
+    static {
+        PersistentPropertyReload.incremental.set(Boolean.FALSE);
+    }
+    
     @Impure
     @BeforeClass
     public static void createTables() throws Exception {
@@ -97,9 +117,18 @@ public class ValuePropertyTest extends DatabaseTest {
         StudentSubclass.MODULE.accept(table -> SQL.createTable(table, Unit.DEFAULT));
         SQL.insertOrAbort(StudentConverter.INSTANCE, object, Unit.DEFAULT);
         SQL.insertOrAbort(StudentConverter.INSTANCE, friend, Unit.DEFAULT);
+        SQL.insertOrAbort(StudentConverter.INSTANCE, other, Unit.DEFAULT);
         Database.commit();
     }
     
+    @Impure
+    private static @Nonnull Student createStudent(long key) throws DatabaseException {
+        final @Nonnull Student student = StudentBuilder.withKey(key).build();
+        SQL.insertOrAbort(StudentConverter.INSTANCE, student, Unit.DEFAULT);
+        Database.commit();
+        return student;
+    }
+    
     @Test
     public void testStringProperty() throws DatabaseException, RecoveryException {
         object.name().set("test");
@@ -134,4 +163,175 @@ public class ValuePropertyTest extends DatabaseTest {
         assertThat(grades).as("grades").hasSize(2).containsKey(1).containsEntry(1, 5).containsEntry(2, 2);
     }
     
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testWriteBehind() throws DatabaseException, RecoveryException {
+        final long maximumDelay = PersistentPropertyWriteBehind.maximumDelay.get();
+        try {
+            PersistentPropertyWriteBehind.enabled.set(Boolean.TRUE);
+            PersistentPropertyWriteBehind.maximumDelay.set(60_000l);
+            friend.age().set(30);
+            friend.age().set(31);
+            friend.grades().add(3, 4);
+            friend.grades().remove(3);
+            friend.grades().add(4, 6);
+            assertThat(PersistentPropertyWriteBehind.getNumberOfPendingWrites()).isEqualTo(2);
+            PersistentPropertyWriteBehind.flush();
+            assertThat(PersistentPropertyWriteBehind.getNumberOfPendingWrites()).isEqualTo(0);
+        } finally {
+            PersistentPropertyWriteBehind.enabled.set(Boolean.FALSE);
+            PersistentPropertyWriteBehind.maximumDelay.set(maximumDelay);
+        }
+        friend.age().reset();
+        assertThat(friend.age().get()).isEqualTo(31);
+        friend.grades().reset();
+        final @Nonnull Map<@Nonnull @Valid("key") Integer, @Nonnull @Valid Integer> grades = (Map<@Nonnull @Valid("key") Integer, @Nonnull @Valid Integer>) friend.grades().get();
+        assertThat(grades).as("grades").hasSize(1).containsEntry(4, 6);
+    }
+    
+    @Test
+    public void testWriteBehindInTransactionScope() throws DatabaseException, RecoveryException {
+        final long maximumDelay = PersistentPropertyWriteBehind.maximumDelay.get();
+        try {
+            PersistentPropertyWriteBehind.enabled.set(Boolean.TRUE);
+            PersistentPropertyWriteBehind.maximumDelay.set(60_000l);
+            try {
+                Database.inTransaction(() -> {
+                    object.age().set(99);
+                    assertThat(PersistentPropertyWriteBehind.getNumberOfPendingWrites()).isEqualTo(0);
+                    throw new IllegalStateException();
+                });
+                Assert.fail("The transaction scope should have failed.");
+            } catch (@Nonnull IllegalStateException exception) {}
+            PersistentPropertyWriteBehind.flush();
+        } finally {
+            PersistentPropertyWriteBehind.enabled.set(Boolean.FALSE);
+            PersistentPropertyWriteBehind.maximumDelay.set(maximumDelay);
+        }
+        assertThat(object.age().get()).isNotEqualTo(99);
+        object.age().reset();
+        assertThat(object.age().get()).isNotEqualTo(99);
+    }
+    
+    @Test
+    public void testTransactionScope() throws DatabaseException, RecoveryException {
+        Database.inTransaction(() -> {
+            friend.name().set("committed");
+            friend.friends().add(object);
+            return null;
+        });
+        try {
+            Database.inTransaction(() -> {
+                friend.name().set("rolled back");
+                friend.friends().remove(object);
+                throw new IllegalStateException();
+            });
+            Assert.fail("The transaction scope should have failed.");
+        } catch (@Nonnull IllegalStateException exception) {}
+        assertThat(friend.name().get()).isEqualTo("committed");
+        assertThat(friend.friends().get()).as("friends").extracting("key").containsExactly(123l);
+        friend.name().reset();
+        friend.friends().reset();
+        assertThat(friend.name().get()).isEqualTo("committed");
+        assertThat(friend.friends().get()).as("friends").extracting("key").containsExactly(123l);
+    }
+    
+    @Test
+    public void testNotificationOrder() throws DatabaseException {
+        final @Nonnull List<@Nonnull String> events = new ArrayList<>();
+        Database.inTransaction(() -> {
+            Database.notifyAfterCommit(() -> events.add("add"), () -> events.add("undo add"));
+            Database.notifyAfterCommit(() -> events.add("remove"), () -> events.add("undo remove"));
+            assertThat(events).isEmpty();
+            return null;
+        });
+        assertThat(events).containsExactly("add", "remove");
+        events.clear();
+        try {
+            Database.inTransaction(() -> {
+                Database.notifyAfterCommit(() -> events.add("add"), () -> events.add("undo add"));
+                Database.notifyAfterCommit(() -> events.add("remove"), () -> events.add("undo remove"));
+                throw new IllegalStateException();
+            });
+            Assert.fail("The transaction scope should have failed.");
+        } catch (@Nonnull IllegalStateException exception) {}
+        assertThat(events).containsExactly("undo remove", "undo add");
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testIncrementalReload() throws DatabaseException, RecoveryException {
+        final @Nonnull Student copy = StudentBuilder.withKey(125).build();
+        final @Nonnull List<@Nonnull String> events = new ArrayList<>();
+        // Only observed properties are reloaded on a reset, whereas the others are unloaded.
+        final @Nonnull PersistentMapObserver<Student, Integer, Integer, ReadOnlyMap<@Nonnull @Valid("key") Integer, @Nonnull @Valid Integer>> observer = (property, key, value, added) -> events.add((added ? "+" : "-") + key);
+        try {
+            PersistentPropertyReload.incremental.set(Boolean.TRUE);
+            other.grades().register(observer);
+            other.grades().add(1, 4);
+            copy.grades().add(2, 5);
+            other.grades().reset();
+            assertThat((Map<@Nonnull @Valid("key") Integer, @Nonnull @Valid Integer>) other.grades().get()).as("grades").hasSize(2).containsEntry(1, 4).containsEntry(2, 5);
+            copy.grades().remove(1);
+            other.grades().reset();
+            assertThat((Map<@Nonnull @Valid("key") Integer, @Nonnull @Valid Integer>) other.grades().get()).as("grades").hasSize(1).containsEntry(2, 5);
+            assertThat(events).as("events").containsExactly("+1", "+2", "-1");
+        } finally {
+            other.grades().deregister(observer);
+            PersistentPropertyReload.incremental.set(Boolean.FALSE);
+        }
+    }
+    
+    @Test
+    public void testPreload() throws DatabaseException, RecoveryException {
+        final @Nonnull Student first = createStudent(126);
+        final @Nonnull Student second = createStudent(127);
+        first.age().set(41);
+        second.age().set(42);
+        first.friends().add(second);
+        
+        final @Nonnull List<@Nonnull Student> copies = Arrays.asList(StudentBuilder.withKey(126).build(), StudentBuilder.withKey(127).build());
+        copies.get(0).age().getTable().preload(copies);
+        copies.get(0).friends().getTable().preload(copies);
+        assertThat(copies.get(0).age().get()).isEqualTo(41);
+        assertThat(copies.get(1).age().get()).isEqualTo(42);
+        assertThat(copies.get(0).friends().get()).as("friends").extracting("key").containsExactly(127l);
+        assertThat(copies.get(1).friends().get()).as("friends").isEmpty();
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSnapshot() throws DatabaseException, RecoveryException {
+        final @Nonnull Student student = createStudent(128);
+        student.grades().add(1, 3);
+        final @Nonnull Map<@Nonnull @Valid("key") Integer, @Nonnull @Valid Integer> snapshot = (Map<@Nonnull @Valid("key") Integer, @Nonnull @Valid Integer>) student.grades().get();
+        assertThat(student.grades().get().isFrozen()).as("frozen").isTrue();
+        student.grades().add(2, 4);
+        student.grades().add(3, 5);
+        assertThat(snapshot).as("snapshot").hasSize(1).containsEntry(1, 3);
+        assertThat((Map<@Nonnull @Valid("key") Integer, @Nonnull @Valid Integer>) student.grades().get()).as("grades").hasSize(3).containsEntry(2, 4).containsEntry(3, 5);
+    }
+    
+    @Test
+    public void testCacheEviction() throws DatabaseException, RecoveryException {
+        final @Nonnull Student student = createStudent(129);
+        final int maximumSize = PersistentPropertyCache.maximumSize.get();
+        try {
+            PersistentPropertyCache.enabled.set(Boolean.TRUE);
+            PersistentPropertyCache.maximumSize.set(1);
+            student.age().set(43);
+            final long evictions = PersistentPropertyCache.getEvictionCount();
+            assertThat(student.friends().get()).as("friends").isEmpty();
+            assertThat(PersistentPropertyCache.getEvictionCount()).as("evictions").isGreaterThan(evictions);
+            // The age is changed through another instance so that only a reload from the database returns the new value.
+            StudentBuilder.withKey(129).build().age().set(44);
+            final long misses = PersistentPropertyCache.getMissCount();
+            assertThat(student.age().get()).isEqualTo(44);
+            assertThat(PersistentPropertyCache.getMissCount()).as("misses").isGreaterThan(misses);
+        } finally {
+            PersistentPropertyCache.enabled.set(Boolean.FALSE);
+            PersistentPropertyCache.maximumSize.set(maximumSize);
+        }
+    }
+    
 }
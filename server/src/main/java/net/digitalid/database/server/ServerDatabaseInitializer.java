@@ -27,6 +27,7 @@ import java.util.Properties;
 import javax.annotation.Nonnull;
 
 import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.collections.list.FreezableArrayList;
 import net.digitalid.utility.console.Console;
 import net.digitalid.utility.file.Files;
 import net.digitalid.utility.initialization.annotations.Initialize;
@@ -50,7 +51,7 @@ public abstract class ServerDatabaseInitializer {
     @Initialize(target = Database.class, dependencies = Files.class)
     public static void initializeDatabase() throws SQLException, IOException {
         final @Nonnull Properties properties = new Properties();
-        final @Nonnull String server, port, database, user, password;
+        final @Nonnull String server, port, database, user, password, replicas, groupCommitWindow;
         final @Nonnull File file = Files.relativeToConfigurationDirectory("MySQL.conf");
         if (file.exists()) {
             try (@Nonnull FileInputStream stream = new FileInputStream(file); @Nonnull InputStreamReader reader = new InputStreamReader(stream, "UTF-8")) {
@@ -60,6 +61,8 @@ public abstract class ServerDatabaseInitializer {
                 database = properties.getProperty("Database", "digitalid");
                 user = properties.getProperty("User", "root");
                 password = properties.getProperty("Password", "");
+                replicas = properties.getProperty("Replicas", "");
+                groupCommitWindow = properties.getProperty("GroupCommitWindow", "0");
             }
         } else {
             Console.writeLine();
@@ -69,20 +72,32 @@ public abstract class ServerDatabaseInitializer {
             database = Console.readString("- Database (the default is \"digitalid\"): ", "digitalid");
             user = Console.readString("- User (the default is \"root\"): ", "root");
             password = Console.readString("- Password (the default is empty): ", null);
+            replicas = Console.readString("- Replicas as comma-separated servers with an optional port (the default is none): ", "");
+            groupCommitWindow = Console.readString("- Group commit window in microseconds (the default is 0): ", "0");
             
             properties.setProperty("Server", server);
             properties.setProperty("Port", port);
             properties.setProperty("Database", database);
             properties.setProperty("User", user);
             properties.setProperty("Password", password);
+            properties.setProperty("Replicas", replicas);
+            properties.setProperty("GroupCommitWindow", groupCommitWindow);
             
             try (@Nonnull FileOutputStream stream = new FileOutputStream(file); @Nonnull OutputStreamWriter writer = new OutputStreamWriter(stream, "UTF-8")) {
                 properties.store(writer, "Configuration of the MySQL database");
             }
         }
         
-        final @Nonnull String URL = "jdbc:mysql://" + server + ":" + port + "/" + database + "?rewriteBatchedStatements=true";
-        Database.instance.set(JDBCDatabaseBuilder.withDriver(new Driver()).withURL(URL).withUser(user).withPassword(password).build());
+        // The driver ignores the fetch size of the query encoders and buffers the whole result set unless cursor fetching is enabled.
+        final @Nonnull String parameters = "?rewriteBatchedStatements=true&useCursorFetch=true";
+        final @Nonnull String URL = "jdbc:mysql://" + server + ":" + port + "/" + database + parameters;
+        final @Nonnull FreezableArrayList<@Nonnull String> replicaURLs = FreezableArrayList.withNoElements();
+        for (@Nonnull String replica : replicas.split(",")) {
+            // Each replica is given as 'server' or 'server:port', where the port of the primary database is used if omitted.
+            final @Nonnull String address = replica.trim();
+            if (!address.isEmpty()) { replicaURLs.add("jdbc:mysql://" + address + (address.contains(":") ? "" : ":" + port) + "/" + database + parameters); }
+        }
+        Database.instance.set(JDBCDatabaseBuilder.withDriver(new Driver()).withURL(URL).withUser(user).withPassword(password).withReplicaURLs(replicaURLs.isEmpty() ? null : replicaURLs).withGroupCommitWindow(Long.parseLong(groupCommitWindow.trim())).build());
     }
     
 }
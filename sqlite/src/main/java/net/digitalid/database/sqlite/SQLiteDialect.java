@@ -18,6 +18,8 @@ package net.digitalid.database.sqlite;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -37,9 +39,10 @@ import net.digitalid.utility.validation.annotations.size.NonEmpty;
 import net.digitalid.utility.validation.annotations.type.Stateless;
 
 import net.digitalid.database.annotations.sql.SQLFraction;
+import net.digitalid.database.annotations.sql.SQLStatement;
 import net.digitalid.database.annotations.transaction.NonCommitting;
 import net.digitalid.database.dialect.SQLDialect;
-import net.digitalid.database.dialect.SQLNode;
+import net.digitalid.database.dialect.SQLDispatchTable;
 import net.digitalid.database.dialect.expression.SQLExpression;
 import net.digitalid.database.dialect.expression.bool.SQLBooleanExpression;
 import net.digitalid.database.dialect.expression.bool.SQLBooleanLiteral;
@@ -121,17 +124,47 @@ public abstract class SQLiteDialect extends SQLDialect {
         else { variadicNumberOperator.unparse(this, unit, string); }
     }
     
+    private static final @Nonnull SQLDispatchTable<SQLiteDialect> dispatchTable = SQLDispatchTable.<SQLiteDialect>create()
+            .with(SQLType.class, SQLiteDialect::unparse)
+            .with(SQLColumnDeclaration.class, SQLiteDialect::unparse)
+            .with(SQLBooleanLiteral.class, SQLiteDialect::unparse)
+            .with(SQLVariadicNumberOperator.class, SQLiteDialect::unparse)
+            .with(SQLCreateSchemaStatement.class, (dialect, createSchemaStatement, unit, string) -> string.append("CREATE TABLE IF NOT EXISTS schema_dummy (id INTEGER)"))
+            .with(SQLQualifiedTable.class, (dialect, qualifiedTable, unit, string) -> dialect.unparse(qualifiedTable.getTable(), unit, string))
+            .with(SQLCurrentTime.class, (dialect, currentTime, unit, string) -> string.append("CAST((JULIANDAY('NOW') - 2440587.5)*86400000 AS INTEGER)")); // TODO: Is it important that it is the UNIX timestamp? Maybe we could just define another column type.
+    
     @Pure
     @Override
-    public void unparse(@Nonnull SQLNode node, @Nonnull Unit unit, @NonCaptured @Modified @Nonnull @SQLFraction StringBuilder string) {
-        if (node instanceof SQLType) { unparse((SQLType) node, unit, string); }
-        else if (node instanceof SQLColumnDeclaration) { unparse((SQLColumnDeclaration) node, unit, string); }
-        else if (node instanceof SQLBooleanLiteral) { unparse((SQLBooleanLiteral) node, unit, string); }
-        else if (node instanceof SQLVariadicNumberOperator) { unparse((SQLVariadicNumberOperator) node, unit, string); }
-        else if (node instanceof SQLCreateSchemaStatement) { string.append("CREATE TABLE IF NOT EXISTS schema_dummy (id INTEGER)"); }
-        else if (node instanceof SQLQualifiedTable) { unparse(((SQLQualifiedTable) node).getTable(), unit, string); }
-        else if (node instanceof SQLCurrentTime) { string.append("CAST((JULIANDAY('NOW') - 2440587.5)*86400000 AS INTEGER)"); } // TODO: Is it important that it is the UNIX timestamp? Maybe we could just define another column type.
-        else { super.unparse(node, unit, string); }
+    protected @Nonnull SQLDispatchTable<SQLiteDialect> getDispatchTable() {
+        return dispatchTable;
+    }
+    
+    /* -------------------------------------------------- Query Plans -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public @Nonnull @SQLStatement String getExplainStatement(@Nonnull @SQLStatement String statement) {
+        return "EXPLAIN QUERY PLAN " + statement;
+    }
+    
+    /**
+     * Returns the query plan as a tree, where each step is indented below its parent step.
+     * (Versions of SQLite before 3.24 do not report the parent of a step, in which case the steps are listed flat.)
+     */
+    @Pure
+    @Override
+    public @Nonnull String formatPlan(@Nonnull ResultSet resultSet) throws SQLException {
+        final boolean tree = "id".equalsIgnoreCase(resultSet.getMetaData().getColumnLabel(1));
+        final @Nonnull Map<Integer, Integer> depths = new HashMap<>();
+        final @Nonnull StringBuilder string = new StringBuilder();
+        while (resultSet.next()) {
+            final int depth = tree ? depths.getOrDefault(resultSet.getInt(2), -1) + 1 : 0;
+            if (tree) { depths.put(resultSet.getInt(1), depth); }
+            if (string.length() > 0) { string.append(System.lineSeparator()); }
+            for (int i = 0; i < depth; i++) { string.append("   "); }
+            string.append("|--").append(resultSet.getString(4));
+        }
+        return string.toString();
     }
     
     /* -------------------------------------------------- TODO -------------------------------------------------- */